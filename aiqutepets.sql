@@ -95,10 +95,19 @@ CREATE TABLE `device_ota_log`  (
   `action_type` tinyint NULL DEFAULT 1 COMMENT '1:发起检查 2:发起升级',
   `status_code` int NULL DEFAULT NULL COMMENT '第三方返回的状态码',
   `api_response` text CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL COMMENT '第三方返回的原始报文(用于排错)',
-  `create_time` datetime NULL DEFAULT CURRENT_TIMESTAMP,
-  PRIMARY KEY (`id`) USING BTREE,
-  INDEX `idx_uid`(`device_uid` ASC) USING BTREE
-) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '设备OTA操作日志' ROW_FORMAT = Dynamic;
+  `response_hash` char(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '原始报文哈希(ota_raw_response.hash)，较长报文压缩后单独存储',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`, `create_time`) USING BTREE,
+  INDEX `idx_uid_time`(`device_uid` ASC, `create_time` ASC) USING BTREE,
+  INDEX `idx_uid_action_time`(`device_uid` ASC, `action_type` ASC, `create_time` ASC) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = '设备OTA操作日志(按月分区，过期分区由定时任务删除)' ROW_FORMAT = Dynamic
+PARTITION BY RANGE COLUMNS (`create_time`)
+PARTITIONS 5
+(PARTITION `p202610` VALUES LESS THAN ('2026-11-01 00:00:00') ENGINE = InnoDB,
+PARTITION `p202611` VALUES LESS THAN ('2026-12-01 00:00:00') ENGINE = InnoDB,
+PARTITION `p202612` VALUES LESS THAN ('2027-01-01 00:00:00') ENGINE = InnoDB,
+PARTITION `p202701` VALUES LESS THAN ('2027-02-01 00:00:00') ENGINE = InnoDB,
+PARTITION `pmax` VALUES LESS THAN (MAXVALUE) ENGINE = InnoDB);
 
 -- ----------------------------
 -- Records of device_ota_log
@@ -126,6 +135,76 @@ CREATE TABLE `mp_user`  (
 -- Records of mp_user
 -- ----------------------------
 
+-- ----------------------------
+-- Table structure for ota_raw_response
+-- ----------------------------
+DROP TABLE IF EXISTS `ota_raw_response`;
+CREATE TABLE `ota_raw_response`  (
+  `hash` char(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '原始报文SHA-256',
+  `content` mediumblob NOT NULL COMMENT 'gzip压缩后的原始报文',
+  `raw_size` int NOT NULL COMMENT '压缩前字节数',
+  `create_time` datetime NULL DEFAULT CURRENT_TIMESTAMP,
+  `last_seen` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '最近一次被日志引用的时间(早于日志保留期的由维护任务删除)',
+  PRIMARY KEY (`hash`) USING BTREE,
+  INDEX `idx_last_seen`(`last_seen` ASC) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = 'OTA第三方原始报文(压缩去重)' ROW_FORMAT = Dynamic;
+
+-- ----------------------------
+-- Records of ota_raw_response
+-- ----------------------------
+
+-- ----------------------------
+-- Table structure for ota_rollout
+-- ----------------------------
+DROP TABLE IF EXISTS `ota_rollout`;
+CREATE TABLE `ota_rollout`  (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `product_model` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '目标设备型号',
+  `from_version` varchar(32) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '源固件版本(为空表示所有非目标版本)',
+  `target_version` varchar(32) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '目标固件版本',
+  `status` tinyint NOT NULL DEFAULT 1 COMMENT '1:进行中 2:已暂停 3:已完成 4:已取消',
+  `wave_size` int NOT NULL COMMENT '每轮最多下发设备数',
+  `max_concurrent` int NOT NULL COMMENT '同时升级中设备数上限',
+  `rate_per_minute` int NOT NULL COMMENT '每分钟最多下发指令数',
+  `failure_threshold` int NOT NULL COMMENT '失败率阈值(百分比)，达到后自动暂停',
+  `cursor_device_id` bigint NOT NULL DEFAULT 0 COMMENT '已处理到的device_info.id',
+  `triggered_count` int NOT NULL DEFAULT 0 COMMENT '已下发设备数',
+  `success_count` int NOT NULL DEFAULT 0 COMMENT '升级成功设备数',
+  `failed_count` int NOT NULL DEFAULT 0 COMMENT '升级失败设备数',
+  `baseline_success_count` int NOT NULL DEFAULT 0 COMMENT '最近一次恢复时的成功数(失败率从恢复后起算)',
+  `baseline_failed_count` int NOT NULL DEFAULT 0 COMMENT '最近一次恢复时的失败数',
+  `pause_reason` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '暂停/取消原因',
+  `create_time` datetime NULL DEFAULT CURRENT_TIMESTAMP,
+  `update_time` datetime NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_status`(`status` ASC) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = 'OTA分批灰度升级任务' ROW_FORMAT = Dynamic;
+
+-- ----------------------------
+-- Records of ota_rollout
+-- ----------------------------
+
+-- ----------------------------
+-- Table structure for ota_rollout_device
+-- ----------------------------
+DROP TABLE IF EXISTS `ota_rollout_device`;
+CREATE TABLE `ota_rollout_device`  (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `rollout_id` bigint NOT NULL COMMENT '任务ID',
+  `device_uid` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL COMMENT '设备UID',
+  `status` tinyint NOT NULL DEFAULT 1 COMMENT '1:升级中 2:成功 3:失败',
+  `fail_reason` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '失败原因',
+  `trigger_time` datetime NULL DEFAULT NULL COMMENT '指令下发时间',
+  `finish_time` datetime NULL DEFAULT NULL COMMENT '结束时间',
+  PRIMARY KEY (`id`) USING BTREE,
+  UNIQUE INDEX `uk_rollout_device`(`rollout_id` ASC, `device_uid` ASC) USING BTREE,
+  INDEX `idx_rollout_status`(`rollout_id` ASC, `status` ASC) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci COMMENT = 'OTA灰度升级任务设备明细' ROW_FORMAT = Dynamic;
+
+-- ----------------------------
+-- Records of ota_rollout_device
+-- ----------------------------
+
 -- ----------------------------
 -- Table structure for user_device_rel
 -- ----------------------------
@@ -146,8 +225,10 @@ CREATE TABLE `user_device_rel`  (
   `intimacy_score` int NULL DEFAULT 0 COMMENT '缓存:亲密值进度百分比(0-100)',
   `current_badge` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '当前获得的最高徽章',
   `growth_stats_json` json NULL COMMENT '缓存:完整的五维成长数据',
+  `growth_stats_time` datetime NULL DEFAULT NULL COMMENT '缓存:成长数据刷新时间',
   `last_mood_content` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NULL DEFAULT NULL COMMENT '缓存:AI今日心情文案',
   `last_mood_date` date NULL DEFAULT NULL COMMENT '缓存:心情生成的日期(yyyy-MM-dd)',
+  `last_home_view` datetime NULL DEFAULT NULL COMMENT '最近一次打开首页的时间(每天最多记录一次，用于后台任务的活跃判定)',
   PRIMARY KEY (`id`) USING BTREE,
   UNIQUE INDEX `uk_user_device`(`user_id` ASC, `device_uid` ASC) USING BTREE,
   INDEX `idx_user_current`(`user_id` ASC, `is_current` ASC) USING BTREE
@@ -0,0 +1,26 @@
+package com.aiqutepets.common;
+
+import com.aiqutepets.enums.UpstreamEndpoint;
+import lombok.Getter;
+
+/**
+ * 上游接口暂不可用异常
+ *
+ * <p>
+ * 熔断器打开或舱壁并发已满时立即抛出，不发起真实请求；
+ * 调用方的既有 catch 分支会走原有兜底逻辑（默认心情文案、无更新等）。
+ * </p>
+ */
+@Getter
+public class UpstreamUnavailableException extends RuntimeException {
+
+    /**
+     * 被拒绝的上游接口
+     */
+    private final UpstreamEndpoint endpoint;
+
+    public UpstreamUnavailableException(UpstreamEndpoint endpoint, String message) {
+        super(message);
+        this.endpoint = endpoint;
+    }
+}
@@ -0,0 +1,19 @@
+package com.aiqutepets.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 运维管理接口配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "admin")
+public class AdminConfig {
+
+    /**
+     * 管理接口访问令牌（请求头 X-Admin-Token），为空时所有管理接口拒绝访问
+     */
+    private String token;
+}
@@ -0,0 +1,94 @@
+package com.aiqutepets.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 首页聚合配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "home")
+public class HomeConfig {
+
+    /**
+     * 首页并发查询成长数据与今日心情的共同截止时间（毫秒），超时部分使用 user_device_rel 中的缓存值
+     */
+    private Long upstreamTimeout = 1500L;
+
+    /**
+     * 首页快照新鲜期（秒）：刷新后该时间内直接返回快照，不请求上游
+     */
+    private Long snapshotFreshSeconds = 60L;
+
+    /**
+     * 首页快照最长保留时间（秒）：超过新鲜期但未超过该时间时返回旧快照并在后台刷新，超过后同步聚合
+     */
+    private Long snapshotStaleSeconds = 1800L;
+
+    /**
+     * 首页快照后台刷新锁有效期（秒），同一设备在此期间最多只有一个刷新
+     */
+    private Long snapshotRefreshLockSeconds = 10L;
+
+    /**
+     * 是否在零点后预生成今日心情
+     */
+    private Boolean moodPregenEnabled = true;
+
+    /**
+     * 心情预生成调度（每次从当天断点继续，当天完成后不再执行）
+     */
+    private String moodPregenCron = "0 5/10 0-5 * * ?";
+
+    /**
+     * 预生成范围：最近多少天内打开过首页（user_device_rel.last_home_view）的当前设备
+     */
+    private Integer moodPregenActiveDays = 7;
+
+    /**
+     * 每批读取的绑定关系条数，一批的心情全部写入后才推进断点
+     */
+    private Integer moodPregenChunkSize = 100;
+
+    /**
+     * 预生成请求上游心情接口的速率（次/秒），为首页实时请求保留配额
+     */
+    private Integer moodPregenPermitsPerSecond = 10;
+
+    /**
+     * 预生成截止时刻（小时），到点后停止，剩余设备由首页访问时按需获取
+     */
+    private Integer moodPregenEndHour = 7;
+
+    /**
+     * 成长数据最长使用时间（秒）：growth_stats_json 早于该时间时首页仍直接返回，同时在后台刷新
+     */
+    private Long growthStatsMaxAgeSeconds = 3600L;
+
+    /**
+     * 是否定时刷新成长数据
+     */
+    private Boolean growthRefreshEnabled = true;
+
+    /**
+     * 成长数据定时刷新间隔（毫秒，上一轮结束后开始计时）
+     */
+    private Long growthRefreshIntervalMillis = 600000L;
+
+    /**
+     * 定时刷新范围：最近多少天内打开过首页（user_device_rel.last_home_view）的当前设备
+     */
+    private Integer growthRefreshActiveDays = 7;
+
+    /**
+     * 定时刷新每批读取的绑定关系条数
+     */
+    private Integer growthRefreshChunkSize = 100;
+
+    /**
+     * 定时刷新请求上游成长数据接口的速率（次/秒），为首页实时请求保留配额
+     */
+    private Integer growthRefreshPermitsPerSecond = 10;
+}
@@ -0,0 +1,184 @@
+package com.aiqutepets.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * OTA 固件升级配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ota")
+public class OtaConfig {
+
+    /**
+     * /check 并发查询升级状态与最新固件信息的共同截止时间（毫秒），超时部分使用兜底值
+     */
+    private Long checkTimeout = 5000L;
+
+    /**
+     * 进度推送（SSE）连接最长保持时间（秒）
+     */
+    private Long progressStreamTimeoutSeconds = 1800L;
+
+    /**
+     * 进度推送检查状态变化的间隔（毫秒）
+     */
+    private Long progressStreamIntervalMillis = 1000L;
+
+    /**
+     * 固件目录缓存时间（秒）：(型号, 当前版本) 的最新固件信息在该时间内不再查询上游
+     */
+    private Long firmwareCacheTtlSeconds = 600L;
+
+    /**
+     * 固件目录缓存最大条目数
+     */
+    private Long firmwareCacheMaxSize = 1000L;
+
+    /**
+     * 是否启用服务端 OTA 进度跟踪（关闭后 /check 每次直接查询上游）
+     */
+    private Boolean trackerEnabled = true;
+
+    /**
+     * 跟踪器调度间隔（毫秒）：每隔该时间取出到期的设备发起一次状态查询
+     */
+    private Long trackerTickMillis = 1000L;
+
+    /**
+     * 单次调度最多查询的设备数
+     */
+    private Integer trackerBatchSize = 100;
+
+    /**
+     * 进度变化时的查询间隔（毫秒）
+     */
+    private Integer trackerMinInterval = 2000;
+
+    /**
+     * 进度无变化时逐步退避的最大查询间隔（毫秒）
+     */
+    private Integer trackerMaxInterval = 15000;
+
+    /**
+     * 下发升级指令后的宽限期（秒）：期间上游仍返回"无升级状态"时继续跟踪，等待设备开始下载
+     */
+    private Integer trackerStartGraceSeconds = 60;
+
+    /**
+     * 单台设备最长跟踪时间（分钟），超过后停止跟踪，/check 回退为直接查询上游
+     */
+    private Integer trackerMaxTrackMinutes = 120;
+
+    /**
+     * 升级结束（成功/失败）后保留最终状态的时间（秒）
+     */
+    private Integer trackerStateRetentionSeconds = 600;
+
+    /**
+     * 灰度升级调度间隔（毫秒）：每隔该时间回收已结束设备并下发下一批升级指令
+     */
+    private Long rolloutTickMillis = 10000L;
+
+    /**
+     * 灰度升级默认每轮最多下发设备数
+     */
+    private Integer rolloutDefaultWaveSize = 50;
+
+    /**
+     * 灰度升级默认同时升级中设备数上限
+     */
+    private Integer rolloutDefaultMaxConcurrent = 200;
+
+    /**
+     * 灰度升级默认每分钟最多下发指令数
+     */
+    private Integer rolloutDefaultRatePerMinute = 60;
+
+    /**
+     * 灰度升级默认失败率阈值（百分比），达到后自动暂停
+     */
+    private Integer rolloutDefaultFailureThreshold = 10;
+
+    /**
+     * 计算失败率所需的最少已结束设备数，避免前几台失败就暂停整个任务
+     */
+    private Integer rolloutMinFinished = 20;
+
+    /**
+     * 升级中设备的最长等待时间（分钟），超过仍未结束计为失败，释放并发名额
+     */
+    private Integer rolloutDeviceTimeoutMinutes = 120;
+
+    /**
+     * OTA 日志异步写入队列容量，队列满时丢弃新日志
+     */
+    private Integer logQueueCapacity = 10000;
+
+    /**
+     * OTA 日志单次批量写入最大条数
+     */
+    private Integer logBatchSize = 200;
+
+    /**
+     * OTA 日志攒批最长等待时间（毫秒）
+     */
+    private Long logFlushIntervalMillis = 1000L;
+
+    /**
+     * 队列已满时请求线程最长等待时间（毫秒），超过后丢弃该条日志
+     */
+    private Long logOfferTimeoutMillis = 20L;
+
+    /**
+     * 应用关闭时写入剩余日志的最长时间（秒）
+     */
+    private Integer logShutdownTimeoutSeconds = 10;
+
+    /**
+     * /check 日志只在状态变化时记录（结果码、升级状态、目标版本变化或进度跨区间）
+     */
+    private Boolean logTransitionOnly = true;
+
+    /**
+     * 下载/升级进度的记录区间（百分比），进度跨过区间边界时记录一次
+     */
+    private Integer logProgressBucket = 25;
+
+    /**
+     * 状态签名有效期（小时）：状态不变的设备至少每隔该时间记录一次
+     */
+    private Integer logTransitionTtlHours = 24;
+
+    /**
+     * 超过该长度（字符）的原始报文压缩后按哈希去重存入 ota_raw_response
+     */
+    private Integer logRawInlineMaxLength = 256;
+
+    /**
+     * OTA 日志保留月数（含当月），更早的月分区被删除
+     */
+    private Integer logRetentionMonths = 6;
+
+    /**
+     * 提前创建的未来月分区数
+     */
+    private Integer logPartitionAheadMonths = 3;
+
+    /**
+     * 按时间分批删除过期日志（表未分区时）及过期原始报文的单批条数
+     */
+    private Integer logPurgeBatchSize = 5000;
+
+    /**
+     * OTA 日志分区维护任务 cron（创建未来分区、删除过期分区）
+     */
+    private String logMaintenanceCron = "0 30 3 * * ?";
+
+    /**
+     * 设备 OTA 历史每页最大条数
+     */
+    private Integer historyMaxPageSize = 50;
+}
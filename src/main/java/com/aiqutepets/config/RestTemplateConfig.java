@@ -1,17 +1,83 @@
 package com.aiqutepets.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * RestTemplate 配置
+ *
+ * <p>
+ * 底层使用 Apache HttpClient 连接池（Keep-Alive 复用），超时与连接池参数由 {@link ThirdPartyConfig} 驱动，
+ * 避免每次请求都重新握手，也避免上游卡死时无限占用 Tomcat 线程。
+ * </p>
  */
 @Configuration
 public class RestTemplateConfig {
 
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager httpClientConnectionManager(ThirdPartyConfig thirdPartyConfig) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(thirdPartyConfig.getMaxTotalConnections());
+        connectionManager.setDefaultMaxPerRoute(thirdPartyConfig.getMaxConnectionsPerRoute());
+        connectionManager.setValidateAfterInactivity(thirdPartyConfig.getValidateAfterInactivity());
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager connectionManager,
+            ThirdPartyConfig thirdPartyConfig) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(thirdPartyConfig.getConnectTimeout())
+                .setSocketTimeout(thirdPartyConfig.getTimeout())
+                .setConnectionRequestTimeout(thirdPartyConfig.getConnectionRequestTimeout())
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                // 后台线程定期回收过期与空闲连接
+                .evictExpiredConnections()
+                .evictIdleConnections(thirdPartyConfig.getIdleEvictSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(CloseableHttpClient httpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    /**
+     * 连接池指标: thirdparty.http.pool.{leased|available|pending|max}
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public MeterBinder httpClientPoolMetrics(PoolingHttpClientConnectionManager connectionManager) {
+        return registry -> {
+            Gauge.builder("thirdparty.http.pool.leased", connectionManager,
+                    cm -> cm.getTotalStats().getLeased())
+                    .description("正在使用的连接数")
+                    .register(registry);
+            Gauge.builder("thirdparty.http.pool.available", connectionManager,
+                    cm -> cm.getTotalStats().getAvailable())
+                    .description("空闲可复用的连接数")
+                    .register(registry);
+            Gauge.builder("thirdparty.http.pool.pending", connectionManager,
+                    cm -> cm.getTotalStats().getPending())
+                    .description("等待获取连接的请求数")
+                    .register(registry);
+            Gauge.builder("thirdparty.http.pool.max", connectionManager,
+                    cm -> cm.getTotalStats().getMax())
+                    .description("连接池最大连接数")
+                    .register(registry);
+        };
     }
 }
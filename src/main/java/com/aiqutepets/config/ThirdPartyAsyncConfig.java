@@ -0,0 +1,76 @@
+package com.aiqutepets.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 第三方接口异步客户端配置
+ *
+ * <p>
+ * 基于 JDK HttpClient（非阻塞 IO，TLS 下通过 ALPN 协商 HTTP/2 多路复用），
+ * 等待上游响应期间不占用 Servlet 线程。三个线程池各司其职，互不排队：
+ * </p>
+ * <ul>
+ * <li>thirdPartyHttpExecutor：HttpClient 内部使用，队列不设上限、不拒绝，其中不执行任何业务代码</li>
+ * <li>thirdPartyAsyncExecutor：解析已完整接收的响应体、回调编排以及限流重试/对冲的定时任务（只访问 Redis 令牌桶），
+ * 不等待上游响应，也不访问数据库；其上的回调只能做内存计算</li>
+ * <li>upstreamWriteBackExecutor：所有需要访问 MySQL/Redis 的后续处理，包括结果写回、
+ * OTA 升级超时检测（读取升级开始时间）与 OTA 跟踪的轮询结果处理</li>
+ * </ul>
+ */
+@Configuration
+public class ThirdPartyAsyncConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor thirdPartyHttpExecutor(ThirdPartyConfig thirdPartyConfig) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(thirdPartyConfig.getHttpClientPoolSize());
+        executor.setMaxPoolSize(thirdPartyConfig.getHttpClientPoolSize());
+        executor.setThreadNamePrefix("thirdparty-http-");
+        return executor;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor thirdPartyAsyncExecutor(ThirdPartyConfig thirdPartyConfig) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(thirdPartyConfig.getAsyncPoolSize());
+        executor.setMaxPoolSize(thirdPartyConfig.getAsyncPoolSize());
+        executor.setQueueCapacity(thirdPartyConfig.getAsyncQueueCapacity());
+        executor.setThreadNamePrefix("thirdparty-async-");
+        // 队列满时由调用线程执行，形成自然背压（任务只做内存解析，不会阻塞 HttpClient 线程）
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        return executor;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor upstreamWriteBackExecutor(ThirdPartyConfig thirdPartyConfig) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(thirdPartyConfig.getWriteBackPoolSize());
+        executor.setMaxPoolSize(thirdPartyConfig.getWriteBackPoolSize());
+        executor.setQueueCapacity(thirdPartyConfig.getWriteBackQueueCapacity());
+        executor.setThreadNamePrefix("upstream-writeback-");
+        // 队列满时由提交线程（解析线程池）执行，形成背压
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        return executor;
+    }
+
+    @Bean
+    public HttpClient thirdPartyHttpClient(ThirdPartyConfig thirdPartyConfig,
+            ThreadPoolTaskExecutor thirdPartyHttpExecutor) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(thirdPartyConfig.getConnectTimeout()))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(thirdPartyHttpExecutor)
+                .build();
+    }
+}
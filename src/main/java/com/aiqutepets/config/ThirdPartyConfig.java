@@ -64,7 +64,162 @@ public class ThirdPartyConfig {
     private String badgeMarkShownUrl = "/api/devices/{device_uid}/badges/{badge_code}/mark-shown";
 
     /**
-     * 请求超时时间（毫秒）
+     * 请求超时时间（毫秒），即读超时（socket timeout）
      */
     private Integer timeout = 10000;
+
+    /**
+     * 建立连接超时时间（毫秒）
+     */
+    private Integer connectTimeout = 3000;
+
+    /**
+     * 从连接池获取连接的超时时间（毫秒）
+     */
+    private Integer connectionRequestTimeout = 1000;
+
+    /**
+     * 连接池最大连接数
+     */
+    private Integer maxTotalConnections = 200;
+
+    /**
+     * 每个路由（目标主机）最大连接数
+     */
+    private Integer maxConnectionsPerRoute = 50;
+
+    /**
+     * 空闲连接回收时间（秒），超过该时间未使用的连接将被关闭
+     */
+    private Integer idleEvictSeconds = 30;
+
+    /**
+     * 连接空闲多久后复用前需要校验（毫秒）
+     */
+    private Integer validateAfterInactivity = 2000;
+
+    /**
+     * JDK HttpClient 内部线程数（连接、TLS 与响应体接收），只执行非阻塞任务
+     */
+    private Integer httpClientPoolSize = 4;
+
+    /**
+     * 异步客户端工作线程数（负责解析响应与回调编排）
+     */
+    private Integer asyncPoolSize = 16;
+
+    /**
+     * 异步客户端任务队列容量
+     */
+    private Integer asyncQueueCapacity = 1000;
+
+    /**
+     * 上游结果回写数据库的线程数（首页缓存、成长数据、心情预生成）
+     */
+    private Integer writeBackPoolSize = 8;
+
+    /**
+     * 上游结果回写任务队列容量
+     */
+    private Integer writeBackQueueCapacity = 1000;
+
+    /**
+     * 熔断器统计窗口大小（最近 N 次调用）
+     */
+    private Integer circuitBreakerWindowSize = 20;
+
+    /**
+     * 熔断器开始计算失败率所需的最少调用次数
+     */
+    private Integer circuitBreakerMinimumCalls = 10;
+
+    /**
+     * 熔断失败率阈值（百分比），窗口内失败（含慢调用）比例达到该值时打开熔断
+     */
+    private Integer circuitBreakerFailureRateThreshold = 50;
+
+    /**
+     * 慢调用阈值（毫秒），超过该耗时的成功调用也按失败计入
+     */
+    private Integer circuitBreakerSlowCallThreshold = 5000;
+
+    /**
+     * 熔断打开后的冷却时间（秒），到期进入半开状态
+     */
+    private Integer circuitBreakerOpenSeconds = 30;
+
+    /**
+     * 半开状态允许的试探调用次数，全部成功才关闭熔断
+     */
+    private Integer circuitBreakerHalfOpenCalls = 3;
+
+    /**
+     * 舱壁：每个上游接口允许的最大并发调用数
+     */
+    private Integer bulkheadMaxConcurrentCalls = 20;
+
+    /**
+     * 舱壁：同步调用等待并发许可的最长时间（毫秒），异步调用不等待
+     */
+    private Integer bulkheadMaxWait = 100;
+
+    /**
+     * 是否启用对冲请求（仅对幂等 GET 生效）
+     */
+    private Boolean hedgeEnabled = false;
+
+    /**
+     * 对冲触发分位数：请求耗时超过近期该分位数仍未返回时，发出第二个相同请求
+     */
+    private Integer hedgePercentile = 95;
+
+    /**
+     * 计算分位数所需的最少样本数，样本不足时不对冲
+     */
+    private Integer hedgeMinSamples = 50;
+
+    /**
+     * 对冲触发的最小等待时间（毫秒），避免分位数过低时过早对冲
+     */
+    private Integer hedgeMinDelay = 50;
+
+    /**
+     * 对冲预算（百分比）：对冲请求数不超过普通请求数的该比例
+     */
+    private Integer hedgeBudgetPercent = 10;
+
+    /**
+     * 是否启用出站限流（Redis 令牌桶，集群共享）
+     */
+    private Boolean rateLimitEnabled = true;
+
+    /**
+     * 单个上游接口每秒允许的调用数（集群合计）
+     */
+    private Integer rateLimitEndpointPermitsPerSecond = 50;
+
+    /**
+     * 单个上游接口令牌桶容量（允许的突发调用数）
+     */
+    private Integer rateLimitEndpointBurst = 100;
+
+    /**
+     * 单台设备每秒允许的调用数（所有接口合计）
+     */
+    private Integer rateLimitDevicePermitsPerSecond = 5;
+
+    /**
+     * 单台设备令牌桶容量（允许的突发调用数）
+     */
+    private Integer rateLimitDeviceBurst = 20;
+
+    /**
+     * 令牌不足时最长排队时间（毫秒），超过则直接拒绝
+     */
+    private Integer rateLimitMaxWait = 200;
+
+    /**
+     * Redis 不可用时跳过限流的时长（秒）
+     */
+    private Integer rateLimitRedisRetrySeconds = 10;
 }
@@ -1,5 +1,6 @@
 package com.aiqutepets.config;
 
+import com.aiqutepets.interceptor.AdminInterceptor;
 import com.aiqutepets.interceptor.JwtInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
@@ -15,6 +16,9 @@ public class WebMvcConfig implements WebMvcConfigurer {
     @Autowired
     private JwtInterceptor jwtInterceptor;
 
+    @Autowired
+    private AdminInterceptor adminInterceptor;
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(jwtInterceptor)
@@ -25,6 +29,7 @@ public class WebMvcConfig implements WebMvcConfigurer {
                         "/api/auth/login", // 登录接口不需要鉴权
                         "/api/device/check-valid", // 设备校验接口不需要鉴权
                         "/api/content/**", // 内容接口不需要鉴权（帮助文档等）
+                        "/api/admin/**", // 运维管理接口使用独立的令牌鉴权
                         // Knife4j / Swagger 相关路径
                         "/doc.html",
                         "/doc.html/**",
@@ -37,5 +42,9 @@ public class WebMvcConfig implements WebMvcConfigurer {
                         "/swagger-ui.html",
                         "/favicon.ico",
                         "/error");
+
+        // 运维管理接口：校验 X-Admin-Token
+        registry.addInterceptor(adminInterceptor)
+                .addPathPatterns("/api/admin/**");
     }
 }
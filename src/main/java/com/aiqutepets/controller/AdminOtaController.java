@@ -0,0 +1,191 @@
+package com.aiqutepets.controller;
+
+import com.aiqutepets.common.Result;
+import com.aiqutepets.dto.OtaRolloutCreateRequest;
+import com.aiqutepets.entity.OtaRollout;
+import com.aiqutepets.service.FirmwareCatalogService;
+import com.aiqutepets.service.OtaLogService;
+import com.aiqutepets.service.OtaRolloutService;
+import com.aiqutepets.util.OtaRawResponseStore;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * OTA 运维管理控制器（需要 X-Admin-Token）
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/ota")
+@Tag(name = "OTA运维管理", description = "固件发布、灰度升级、缓存维护等运维接口")
+public class AdminOtaController {
+
+    @Autowired
+    private FirmwareCatalogService firmwareCatalogService;
+
+    @Autowired
+    private OtaRolloutService otaRolloutService;
+
+    @Autowired
+    private OtaRawResponseStore otaRawResponseStore;
+
+    @Autowired
+    private OtaLogService otaLogService;
+
+    /**
+     * 清除固件目录缓存（发布新固件后调用）
+     *
+     * @param productModel 设备型号，不传则清除全部
+     * @return 操作结果
+     */
+    @Operation(summary = "清除固件目录缓存", description = "发布新固件后调用，所有节点立即重新查询最新固件信息。需要 X-Admin-Token")
+    @PostMapping("/firmware-cache/invalidate")
+    public Result<String> invalidateFirmwareCache(
+            @Parameter(description = "设备型号，不传则清除全部") @RequestParam(required = false) String productModel) {
+        log.info("运维清除固件目录缓存: productModel={}", productModel);
+        firmwareCatalogService.invalidate(productModel);
+        return Result.success("已清除");
+    }
+
+    /**
+     * 创建灰度升级任务
+     *
+     * @param request 任务参数
+     * @return 新建的任务
+     */
+    @Operation(summary = "创建灰度升级任务", description = "按型号与固件版本圈定设备，分批下发升级指令，失败率过高时自动暂停。需要 X-Admin-Token")
+    @PostMapping("/rollouts")
+    public Result<OtaRollout> createRollout(@RequestBody OtaRolloutCreateRequest request) {
+        log.info("运维创建灰度升级任务: {}", request);
+        try {
+            return Result.success(otaRolloutService.create(request));
+        } catch (RuntimeException e) {
+            log.warn("创建灰度升级任务失败: {}", e.getMessage());
+            return Result.error(400, e.getMessage());
+        }
+    }
+
+    /**
+     * 查询所有灰度升级任务
+     *
+     * @return 任务列表
+     */
+    @Operation(summary = "查询灰度升级任务列表", description = "需要 X-Admin-Token")
+    @GetMapping("/rollouts")
+    public Result<List<OtaRollout>> listRollouts() {
+        return Result.success(otaRolloutService.listAll());
+    }
+
+    /**
+     * 查询灰度升级任务详情
+     *
+     * @param id 任务ID
+     * @return 任务详情（含下发/成功/失败计数）
+     */
+    @Operation(summary = "查询灰度升级任务详情", description = "需要 X-Admin-Token")
+    @GetMapping("/rollouts/{id}")
+    public Result<OtaRollout> getRollout(@Parameter(description = "任务ID") @PathVariable Long id) {
+        OtaRollout rollout = otaRolloutService.getById(id);
+        if (rollout == null) {
+            return Result.error(404, "灰度升级任务不存在");
+        }
+        return Result.success(rollout);
+    }
+
+    /**
+     * 暂停灰度升级任务
+     *
+     * @param id     任务ID
+     * @param reason 暂停原因
+     * @return 操作结果
+     */
+    @Operation(summary = "暂停灰度升级任务", description = "已下发的设备继续升级，不再下发新设备。需要 X-Admin-Token")
+    @PostMapping("/rollouts/{id}/pause")
+    public Result<String> pauseRollout(@Parameter(description = "任务ID") @PathVariable Long id,
+            @Parameter(description = "暂停原因") @RequestParam(required = false) String reason) {
+        log.info("运维暂停灰度升级任务: id={}, reason={}", id, reason);
+        try {
+            otaRolloutService.pause(id, reason);
+            return Result.success("已暂停");
+        } catch (RuntimeException e) {
+            return Result.error(400, e.getMessage());
+        }
+    }
+
+    /**
+     * 恢复灰度升级任务（含失败率过高自动暂停的任务）
+     *
+     * @param id 任务ID
+     * @return 操作结果
+     */
+    @Operation(summary = "恢复灰度升级任务", description = "需要 X-Admin-Token")
+    @PostMapping("/rollouts/{id}/resume")
+    public Result<String> resumeRollout(@Parameter(description = "任务ID") @PathVariable Long id) {
+        log.info("运维恢复灰度升级任务: id={}", id);
+        try {
+            otaRolloutService.resume(id);
+            return Result.success("已恢复");
+        } catch (RuntimeException e) {
+            return Result.error(400, e.getMessage());
+        }
+    }
+
+    /**
+     * 取消灰度升级任务
+     *
+     * @param id     任务ID
+     * @param reason 取消原因
+     * @return 操作结果
+     */
+    @Operation(summary = "取消灰度升级任务", description = "需要 X-Admin-Token")
+    @PostMapping("/rollouts/{id}/cancel")
+    public Result<String> cancelRollout(@Parameter(description = "任务ID") @PathVariable Long id,
+            @Parameter(description = "取消原因") @RequestParam(required = false) String reason) {
+        log.info("运维取消灰度升级任务: id={}, reason={}", id, reason);
+        try {
+            otaRolloutService.cancel(id, reason);
+            return Result.success("已取消");
+        } catch (RuntimeException e) {
+            return Result.error(400, e.getMessage());
+        }
+    }
+
+    /**
+     * 查看 OTA 日志引用的第三方原始报文
+     *
+     * @param hash device_ota_log.response_hash
+     * @return 解压后的原始报文
+     */
+    @Operation(summary = "查看OTA原始报文", description = "按 device_ota_log.response_hash 读取压缩存储的第三方原始报文。需要 X-Admin-Token")
+    @GetMapping("/raw-responses/{hash}")
+    public Result<String> getRawResponse(@Parameter(description = "报文哈希") @PathVariable String hash) {
+        String raw = otaRawResponseStore.load(hash);
+        if (raw == null) {
+            return Result.error(404, "报文不存在");
+        }
+        return Result.success(raw);
+    }
+
+    /**
+     * 立即执行 OTA 日志分区维护（创建未来分区、删除过期分区）
+     *
+     * @return 操作结果
+     */
+    @Operation(summary = "执行OTA日志分区维护", description = "与每日定时任务相同：创建未来月分区并删除超过保留期的分区。需要 X-Admin-Token")
+    @PostMapping("/logs/maintain")
+    public Result<String> maintainLogPartitions() {
+        log.info("运维执行OTA日志分区维护");
+        try {
+            otaLogService.maintainPartitions();
+            return Result.success("已完成");
+        } catch (RuntimeException e) {
+            log.error("OTA日志分区维护失败", e);
+            return Result.error("分区维护失败: " + e.getMessage());
+        }
+    }
+}
@@ -6,8 +6,8 @@ import com.aiqutepets.entity.DeviceDiary;
 import com.aiqutepets.entity.DeviceInfo;
 import com.aiqutepets.entity.UserDeviceRel;
 import com.aiqutepets.mapper.DeviceDiaryMapper;
-import com.aiqutepets.mapper.DeviceInfoMapper;
 import com.aiqutepets.mapper.UserDeviceRelMapper;
+import com.aiqutepets.service.DeviceInfoService;
 import com.aiqutepets.util.ThirdPartyClient;
 import com.aiqutepets.vo.AiBadgeListVO;
 import com.aiqutepets.vo.AiDiaryDateVO;
@@ -44,7 +44,7 @@ public class MemoryController {
     private UserDeviceRelMapper userDeviceRelMapper;
 
     @Autowired
-    private DeviceInfoMapper deviceInfoMapper;
+    private DeviceInfoService deviceInfoService;
 
     @Autowired
     private DeviceDiaryMapper deviceDiaryMapper;
@@ -82,7 +82,7 @@ public class MemoryController {
         String deviceUid = currentDevice.getDeviceUid();
 
         // 获取设备 secretKey
-        DeviceInfo deviceInfo = deviceInfoMapper.selectByDeviceUid(deviceUid);
+        DeviceInfo deviceInfo = deviceInfoService.getByDeviceUid(deviceUid);
         if (deviceInfo == null) {
             log.error("设备信息不存在: deviceUid={}", deviceUid);
             return Result.error("设备信息异常");
@@ -150,7 +150,7 @@ public class MemoryController {
         String deviceUid = currentDevice.getDeviceUid();
 
         // 获取设备 secretKey
-        DeviceInfo deviceInfo = deviceInfoMapper.selectByDeviceUid(deviceUid);
+        DeviceInfo deviceInfo = deviceInfoService.getByDeviceUid(deviceUid);
         if (deviceInfo == null) {
             log.error("设备信息不存在: deviceUid={}", deviceUid);
             return Result.error("设备信息异常");
@@ -274,7 +274,7 @@ public class MemoryController {
         String deviceUid = currentDevice.getDeviceUid();
 
         // 获取设备 secretKey
-        DeviceInfo deviceInfo = deviceInfoMapper.selectByDeviceUid(deviceUid);
+        DeviceInfo deviceInfo = deviceInfoService.getByDeviceUid(deviceUid);
         if (deviceInfo == null) {
             log.error("设备信息不存在: deviceUid={}", deviceUid);
             return Result.error("设备信息异常");
@@ -327,7 +327,7 @@ public class MemoryController {
         String deviceUid = currentDevice.getDeviceUid();
 
         // 获取设备 secretKey
-        DeviceInfo deviceInfo = deviceInfoMapper.selectByDeviceUid(deviceUid);
+        DeviceInfo deviceInfo = deviceInfoService.getByDeviceUid(deviceUid);
         if (deviceInfo == null) {
             log.error("设备信息不存在: deviceUid={}", deviceUid);
             return Result.error("设备信息异常");
@@ -1,15 +1,22 @@
 package com.aiqutepets.controller;
 
 import com.aiqutepets.common.Result;
+import com.aiqutepets.config.OtaConfig;
 import com.aiqutepets.dto.OtaCheckResultDTO;
+import com.aiqutepets.dto.OtaHistoryPageDTO;
 import com.aiqutepets.entity.DeviceInfo;
 import com.aiqutepets.entity.DeviceOtaLog;
 import com.aiqutepets.entity.UserDeviceRel;
 import com.aiqutepets.enums.OtaStatusEnum;
-import com.aiqutepets.mapper.DeviceInfoMapper;
-import com.aiqutepets.mapper.DeviceOtaLogMapper;
 import com.aiqutepets.mapper.UserDeviceRelMapper;
+import com.aiqutepets.service.DeviceInfoService;
+import com.aiqutepets.service.FirmwareCatalogService;
+import com.aiqutepets.service.OtaLogService;
+import com.aiqutepets.service.OtaProgressStreamService;
+import com.aiqutepets.service.OtaTrackerService;
 import com.aiqutepets.service.ThirdPartyOtaService;
+import com.aiqutepets.util.OtaCheckLogFilter;
+import com.aiqutepets.util.OtaLogWriter;
 import com.aiqutepets.vo.OtaFirmwareInfoVO;
 import com.aiqutepets.vo.OtaStatusVO;
 import io.swagger.v3.oas.annotations.Operation;
@@ -17,9 +24,12 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * OTA固件升级控制器
@@ -34,13 +44,31 @@ public class OtaController {
     private UserDeviceRelMapper userDeviceRelMapper;
 
     @Autowired
-    private DeviceInfoMapper deviceInfoMapper;
+    private DeviceInfoService deviceInfoService;
 
     @Autowired
     private ThirdPartyOtaService thirdPartyOtaService;
 
     @Autowired
-    private DeviceOtaLogMapper deviceOtaLogMapper;
+    private OtaLogWriter otaLogWriter;
+
+    @Autowired
+    private OtaCheckLogFilter otaCheckLogFilter;
+
+    @Autowired
+    private OtaTrackerService otaTrackerService;
+
+    @Autowired
+    private OtaConfig otaConfig;
+
+    @Autowired
+    private FirmwareCatalogService firmwareCatalogService;
+
+    @Autowired
+    private OtaProgressStreamService otaProgressStreamService;
+
+    @Autowired
+    private OtaLogService otaLogService;
 
     /**
      * 检查固件更新状态（聚合接口）
@@ -69,7 +97,7 @@ public class OtaController {
         }
 
         // ============ 步骤 B: 获取设备信息 ============
-        DeviceInfo deviceInfo = deviceInfoMapper.selectByDeviceUid(deviceUid);
+        DeviceInfo deviceInfo = deviceInfoService.getByDeviceUid(deviceUid);
         if (deviceInfo == null) {
             log.error("设备信息不存在: deviceUid={}", deviceUid);
             return Result.error("设备信息异常");
@@ -77,15 +105,29 @@ public class OtaController {
         String secretKey = deviceInfo.getSecretKey();
         String currentVersion = deviceInfo.getFirmwareVersion(); // 数据库中的当前版本
 
-        // ============ 步骤 C: 查询当前升级状态 (0-6) ============
-        OtaStatusVO otaStatus = thirdPartyOtaService.getOtaStatus(deviceUid, secretKey);
+        // ============ 步骤 C: 并发查询当前升级状态 (0-6) 与最新固件信息 ============
+        // 两者互不依赖，同时发起并共用一个截止时间，耗时取两者较慢者；任一部分失败或超时使用兜底值
+        // 升级过程中由服务端跟踪器集中轮询，直接读取其最新状态；未跟踪时查询上游
+        long checkTimeout = otaConfig.getCheckTimeout();
+        OtaStatusVO trackedStatus = otaTrackerService.getTrackedStatus(deviceUid);
+        CompletableFuture<OtaStatusVO> statusFuture = (trackedStatus != null
+                ? CompletableFuture.completedFuture(trackedStatus)
+                : thirdPartyOtaService.getOtaStatusAsync(deviceUid, secretKey))
+                .completeOnTimeout(OtaStatusVO.queryFailed(deviceUid, "查询超时"), checkTimeout, TimeUnit.MILLISECONDS);
+        // 最新固件信息按 (型号, 当前版本) 缓存，同型号同版本设备共用
+        CompletableFuture<OtaFirmwareInfoVO> firmwareFuture = firmwareCatalogService
+                .getLatestFirmwareAsync(deviceUid, secretKey, deviceInfo.getProductModel(), currentVersion)
+                .completeOnTimeout(OtaFirmwareInfoVO.noUpdate(), checkTimeout, TimeUnit.MILLISECONDS);
+
+        OtaStatusVO otaStatus = statusFuture.join();
+        OtaFirmwareInfoVO firmwareInfo = firmwareFuture.join();
+        if (trackedStatus == null) {
+            otaTrackerService.onStatusQueried(deviceUid, otaStatus);
+        }
+
         Integer status = otaStatus.getStatus() != null ? otaStatus.getStatus() : 0;
         Integer progress = otaStatus.getProgress() != null ? otaStatus.getProgress() : 0;
         log.info("OTA状态查询结果: deviceUid={}, status={}, progress={}", deviceUid, status, progress);
-
-        // ============ 步骤 D: 查询最新固件信息 ============
-        OtaFirmwareInfoVO firmwareInfo = thirdPartyOtaService.getLatestFirmwareInfo(deviceUid, secretKey,
-                currentVersion);
         log.info("最新固件信息: deviceUid={}, hasUpdate={}, version={}",
                 deviceUid, firmwareInfo.hasUpdate(), firmwareInfo.getVersion());
 
@@ -123,7 +165,7 @@ public class OtaController {
             if (latestVersion != null && !latestVersion.isEmpty()) {
                 try {
                     deviceInfo.setFirmwareVersion(latestVersion);
-                    deviceInfoMapper.update(deviceInfo);
+                    deviceInfoService.update(deviceInfo);
                     currentVersion = latestVersion; // 更新返回值
                     log.info("升级成功，已更新数据库固件版本: deviceUid={}, newVersion={}", deviceUid, latestVersion);
                 } catch (Exception e) {
@@ -148,18 +190,20 @@ public class OtaController {
             }
         });
 
-        // ============ 步骤 H: 记录日志 ============
+        // ============ 步骤 H: 记录日志（仅状态变化时） ============
         try {
-            DeviceOtaLog otaLog = DeviceOtaLog.builder()
-                    .deviceUid(deviceUid)
-                    .userId(userId)
-                    .targetVersion(firmwareInfo.getVersion())
-                    .actionType(DeviceOtaLog.ACTION_CHECK)
-                    .statusCode(otaStatus.getResult())
-                    .apiResponse(otaStatus.getRawResponse())
-                    .build();
-            deviceOtaLogMapper.insert(otaLog);
-            log.debug("OTA检查日志已记录: id={}", otaLog.getId());
+            if (otaCheckLogFilter.shouldLog(deviceUid, otaStatus.getResult(), status, progress,
+                    firmwareInfo.getVersion())) {
+                DeviceOtaLog otaLog = DeviceOtaLog.builder()
+                        .deviceUid(deviceUid)
+                        .userId(userId)
+                        .targetVersion(firmwareInfo.getVersion())
+                        .actionType(DeviceOtaLog.ACTION_CHECK)
+                        .statusCode(otaStatus.getResult())
+                        .apiResponse(otaStatus.getRawResponse())
+                        .build();
+                otaLogWriter.submit(otaLog, () -> otaCheckLogFilter.forget(finalDeviceUid));
+            }
         } catch (Exception e) {
             log.error("记录OTA日志失败", e);
         }
@@ -183,6 +227,100 @@ public class OtaController {
         return Result.success(dto);
     }
 
+    /**
+     * 订阅升级进度（Server-Sent Events）
+     *
+     * <p>
+     * 立即推送一次当前状态，之后状态或进度变化时推送 progress 事件（数据为 OtaStatusVO），
+     * 升级成功(5)/失败(6) 后推送最终状态并关闭连接；设备未在升级中时推送当前状态后立即关闭。
+     * 鉴权或设备校验失败时推送 error 事件（数据为 Result）后关闭。
+     * </p>
+     *
+     * @param userId    当前登录用户ID (JWT 解析)
+     * @param deviceUid 设备UID
+     * @return SSE 连接
+     */
+    @Operation(summary = "订阅升级进度", description = "SSE 推送OTA升级状态与进度，代替轮询 /check，升级结束后自动关闭。需要JWT鉴权")
+    @GetMapping(value = "/progress/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamProgress(
+            @RequestAttribute("userId") Long userId,
+            @Parameter(description = "设备UID", required = true) @RequestParam String deviceUid) {
+
+        log.info("订阅OTA升级进度: userId={}, deviceUid={}", userId, deviceUid);
+
+        // ============ 步骤 A: 校验权限 ============
+        UserDeviceRel userDevice = userDeviceRelMapper.selectByUserIdAndDeviceUid(userId, deviceUid);
+        if (userDevice == null) {
+            log.warn("用户无权访问该设备: userId={}, deviceUid={}", userId, deviceUid);
+            return errorStream(Result.error(403, "无权访问该设备"));
+        }
+
+        // ============ 步骤 B: 获取设备信息 ============
+        DeviceInfo deviceInfo = deviceInfoService.getByDeviceUid(deviceUid);
+        if (deviceInfo == null) {
+            log.error("设备信息不存在: deviceUid={}", deviceUid);
+            return errorStream(Result.error("设备信息异常"));
+        }
+
+        // ============ 步骤 C: 获取当前状态（跟踪器优先，未跟踪时查询上游） ============
+        OtaStatusVO otaStatus = otaTrackerService.getTrackedStatus(deviceUid);
+        if (otaStatus == null) {
+            otaStatus = thirdPartyOtaService.getOtaStatus(deviceUid, deviceInfo.getSecretKey());
+            otaTrackerService.onStatusQueried(deviceUid, otaStatus);
+        }
+
+        // ============ 步骤 D: 打开推送连接 ============
+        return otaProgressStreamService.open(deviceUid, otaStatus);
+    }
+
+    /**
+     * 分页查询设备 OTA 操作历史
+     *
+     * @param userId     当前登录用户ID (JWT 解析)
+     * @param deviceUid  设备UID
+     * @param actionType 操作类型（可选）: 1-检查 2-升级
+     * @param cursor     上一页返回的 nextCursor，第一页不传
+     * @param size       每页条数
+     * @return 分页结果
+     */
+    @Operation(summary = "查询OTA操作历史", description = "按时间倒序分页返回设备的OTA检查/升级记录，翻页时传回上一页的 nextCursor。需要JWT鉴权")
+    @GetMapping("/history")
+    public Result<OtaHistoryPageDTO> getHistory(
+            @RequestAttribute("userId") Long userId,
+            @Parameter(description = "设备UID", required = true) @RequestParam String deviceUid,
+            @Parameter(description = "操作类型: 1-检查 2-升级，不传查询全部") @RequestParam(required = false) Integer actionType,
+            @Parameter(description = "分页游标，第一页不传") @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页条数，默认 20") @RequestParam(required = false) Integer size) {
+
+        // ============ 步骤 A: 校验权限 ============
+        UserDeviceRel userDevice = userDeviceRelMapper.selectByUserIdAndDeviceUid(userId, deviceUid);
+        if (userDevice == null) {
+            log.warn("用户无权访问该设备: userId={}, deviceUid={}", userId, deviceUid);
+            return Result.error(403, "无权访问该设备");
+        }
+
+        // ============ 步骤 B: 分页查询 ============
+        try {
+            return Result.success(otaLogService.getHistory(deviceUid, actionType, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        }
+    }
+
+    /**
+     * 推送一个 error 事件后关闭的 SSE 连接
+     */
+    private SseEmitter errorStream(Result<?> error) {
+        SseEmitter emitter = new SseEmitter();
+        try {
+            emitter.send(SseEmitter.event().name("error").data(error, MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (Exception e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
     /**
      * 执行立即升级
      *
@@ -213,7 +351,7 @@ public class OtaController {
         }
 
         // ============ 步骤 B: 获取设备密钥 ============
-        DeviceInfo deviceInfo = deviceInfoMapper.selectByDeviceUid(deviceUid);
+        DeviceInfo deviceInfo = deviceInfoService.getByDeviceUid(deviceUid);
         if (deviceInfo == null) {
             log.error("设备信息不存在: deviceUid={}", deviceUid);
             return Result.error("设备信息异常");
@@ -240,8 +378,7 @@ public class OtaController {
                     .statusCode(success ? 1 : 0)
                     .apiResponse(success ? "升级指令下发成功" : errorMessage)
                     .build();
-            deviceOtaLogMapper.insert(otaLog);
-            log.debug("OTA升级日志已记录: id={}", otaLog.getId());
+            otaLogWriter.submit(otaLog);
         } catch (Exception e) {
             log.error("记录OTA日志失败", e);
         }
@@ -249,6 +386,7 @@ public class OtaController {
         // ============ 步骤 E: 返回结果 ============
         if (success) {
             log.info("升级指令下发成功: deviceUid={}", deviceUid);
+            otaTrackerService.track(deviceUid);
             return Result.success("指令已下发");
         } else {
             return Result.error(errorMessage != null ? errorMessage : "升级指令下发失败");
@@ -0,0 +1,35 @@
+package com.aiqutepets.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * OTA 操作历史条目 DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "OTA操作历史条目")
+public class OtaHistoryItemDTO {
+
+    @Schema(description = "记录ID")
+    private Long id;
+
+    @Schema(description = "操作类型: 1-检查 2-升级")
+    private Integer actionType;
+
+    @Schema(description = "目标版本号")
+    private String targetVersion;
+
+    @Schema(description = "第三方返回的状态码")
+    private Integer statusCode;
+
+    @Schema(description = "记录时间")
+    private LocalDateTime createTime;
+}
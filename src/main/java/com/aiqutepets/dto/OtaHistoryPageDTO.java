@@ -0,0 +1,29 @@
+package com.aiqutepets.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * OTA 操作历史分页结果 DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "OTA操作历史分页结果")
+public class OtaHistoryPageDTO {
+
+    @Schema(description = "本页记录（按时间倒序）")
+    private List<OtaHistoryItemDTO> list;
+
+    @Schema(description = "是否还有下一页")
+    private Boolean hasMore;
+
+    @Schema(description = "下一页游标，请求下一页时原样传回；没有下一页时为空")
+    private String nextCursor;
+}
@@ -0,0 +1,45 @@
+package com.aiqutepets.dto;
+
+import lombok.Data;
+
+/**
+ * 创建 OTA 灰度升级任务请求 DTO
+ */
+@Data
+public class OtaRolloutCreateRequest {
+
+    /**
+     * 目标设备型号
+     */
+    private String productModel;
+
+    /**
+     * 源固件版本（可选，为空表示该型号下所有非目标版本的设备）
+     */
+    private String fromVersion;
+
+    /**
+     * 目标固件版本
+     */
+    private String targetVersion;
+
+    /**
+     * 每轮最多下发设备数（可选）
+     */
+    private Integer waveSize;
+
+    /**
+     * 同时升级中设备数上限（可选）
+     */
+    private Integer maxConcurrent;
+
+    /**
+     * 每分钟最多下发指令数（可选）
+     */
+    private Integer ratePerMinute;
+
+    /**
+     * 失败率阈值，百分比（可选）
+     */
+    private Integer failureThreshold;
+}
@@ -47,10 +47,15 @@ public class DeviceOtaLog {
     private Integer statusCode;
 
     /**
-     * 第三方返回的原始报文(用于排错)
+     * 第三方返回的原始报文(用于排错)；较长的报文压缩后存入 ota_raw_response，此处为空
      */
     private String apiResponse;
 
+    /**
+     * 原始报文哈希 (ota_raw_response.hash)
+     */
+    private String responseHash;
+
     /**
      * 创建时间
      */
@@ -0,0 +1,37 @@
+package com.aiqutepets.entity;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * OTA 第三方原始报文表（gzip 压缩，按内容哈希去重）
+ */
+@Data
+public class OtaRawResponse {
+
+    /**
+     * 原始报文 SHA-256（十六进制），device_ota_log.response_hash 引用
+     */
+    private String hash;
+
+    /**
+     * gzip 压缩后的报文
+     */
+    private byte[] content;
+
+    /**
+     * 压缩前字节数
+     */
+    private Integer rawSize;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 最近一次被日志引用的时间
+     */
+    private LocalDateTime lastSeen;
+}
@@ -0,0 +1,124 @@
+package com.aiqutepets.entity;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * OTA 分批灰度升级任务表
+ */
+@Data
+public class OtaRollout {
+
+    /**
+     * 主键ID
+     */
+    private Long id;
+
+    /**
+     * 目标设备型号 (device_info.product_model)
+     */
+    private String productModel;
+
+    /**
+     * 源固件版本，为空表示该型号下所有非目标版本的设备
+     */
+    private String fromVersion;
+
+    /**
+     * 目标固件版本
+     */
+    private String targetVersion;
+
+    /**
+     * 状态: 1-进行中 2-已暂停 3-已完成 4-已取消
+     */
+    private Integer status;
+
+    /**
+     * 每轮最多下发的设备数
+     */
+    private Integer waveSize;
+
+    /**
+     * 同时处于升级中的设备数上限
+     */
+    private Integer maxConcurrent;
+
+    /**
+     * 每分钟最多下发的升级指令数
+     */
+    private Integer ratePerMinute;
+
+    /**
+     * 失败率阈值（百分比），达到后自动暂停
+     */
+    private Integer failureThreshold;
+
+    /**
+     * 已处理到的 device_info.id（按 id 递增分批选取设备）
+     */
+    private Long cursorDeviceId;
+
+    /**
+     * 已下发设备数
+     */
+    private Integer triggeredCount;
+
+    /**
+     * 升级成功设备数
+     */
+    private Integer successCount;
+
+    /**
+     * 升级失败设备数（含指令下发失败）
+     */
+    private Integer failedCount;
+
+    /**
+     * 最近一次恢复时的成功设备数（自动暂停的失败率只统计恢复之后结束的设备）
+     */
+    private Integer baselineSuccessCount;
+
+    /**
+     * 最近一次恢复时的失败设备数
+     */
+    private Integer baselineFailedCount;
+
+    /**
+     * 暂停/取消原因
+     */
+    private String pauseReason;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+
+    // ========== 状态常量 ==========
+
+    /**
+     * 状态: 进行中
+     */
+    public static final int STATUS_RUNNING = 1;
+
+    /**
+     * 状态: 已暂停
+     */
+    public static final int STATUS_PAUSED = 2;
+
+    /**
+     * 状态: 已完成
+     */
+    public static final int STATUS_COMPLETED = 3;
+
+    /**
+     * 状态: 已取消
+     */
+    public static final int STATUS_CANCELLED = 4;
+}
@@ -0,0 +1,64 @@
+package com.aiqutepets.entity;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * OTA 灰度升级任务设备明细表
+ */
+@Data
+public class OtaRolloutDevice {
+
+    /**
+     * 主键ID
+     */
+    private Long id;
+
+    /**
+     * 任务ID (ota_rollout.id)
+     */
+    private Long rolloutId;
+
+    /**
+     * 设备UID
+     */
+    private String deviceUid;
+
+    /**
+     * 状态: 1-升级中 2-成功 3-失败
+     */
+    private Integer status;
+
+    /**
+     * 失败原因
+     */
+    private String failReason;
+
+    /**
+     * 指令下发时间
+     */
+    private LocalDateTime triggerTime;
+
+    /**
+     * 结束时间
+     */
+    private LocalDateTime finishTime;
+
+    // ========== 状态常量 ==========
+
+    /**
+     * 状态: 升级中
+     */
+    public static final int STATUS_UPGRADING = 1;
+
+    /**
+     * 状态: 成功
+     */
+    public static final int STATUS_SUCCESS = 2;
+
+    /**
+     * 状态: 失败
+     */
+    public static final int STATUS_FAILED = 3;
+}
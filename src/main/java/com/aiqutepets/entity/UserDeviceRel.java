@@ -79,6 +79,17 @@ public class UserDeviceRel {
      */
     private String currentBadge;
 
+    /**
+     * 完整的五维成长数据（缓存，AiGrowthStatsVO.GrowthStatsData 的 JSON）
+     * 以下成长数据、心情与首页访问字段只由首页查询 selectHomeDevice 读取
+     */
+    private String growthStatsJson;
+
+    /**
+     * 成长数据刷新时间
+     */
+    private LocalDateTime growthStatsTime;
+
     /**
      * 最后心情日期（用于缓存判断）
      */
@@ -89,6 +100,11 @@ public class UserDeviceRel {
      */
     private String lastMoodContent;
 
+    /**
+     * 最近一次打开首页的时间（每天最多记录一次）
+     */
+    private LocalDateTime lastHomeView;
+
     /**
      * OTA更新标记: 0-无更新, 1-有更新（用于首页红点缓存）
      */
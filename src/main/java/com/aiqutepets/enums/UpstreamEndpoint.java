@@ -0,0 +1,33 @@
+package com.aiqutepets.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 第三方（AI 玩具平台）上游接口枚举
+ *
+ * <p>
+ * 用于请求合并、熔断、指标统计等按接口维度区分的场景，code 作为指标标签值；
+ * hedgeable 标记幂等且允许对冲（重复发送）的 GET 接口。
+ * </p>
+ */
+@Getter
+@AllArgsConstructor
+public enum UpstreamEndpoint {
+
+    GROWTH("growth", "成长统计", true),
+    MOOD("mood", "今日心情", false),
+    DIARY_LIST("diary_list", "日记列表", false),
+    DIARY_DATES("diary_dates", "日记日期列表", true),
+    DIARY_DETAIL("diary_detail", "日记详情", true),
+    BADGES("badges", "徽章列表", true),
+    BADGE_MARK_SHOWN("badge_mark_shown", "徽章标记已展示", false),
+    OTA_CHECK("ota_check", "OTA状态检查(设备端)", false),
+    OTA_STATUS("ota_status", "OTA升级状态", true),
+    FIRMWARE_INFO("firmware_info", "最新固件信息", false),
+    UPGRADE("upgrade", "发起固件升级", false);
+
+    private final String code;
+    private final String description;
+    private final boolean hedgeable;
+}
@@ -0,0 +1,43 @@
+package com.aiqutepets.interceptor;
+
+import com.aiqutepets.config.AdminConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * 运维管理接口鉴权拦截器（/api/admin/**）
+ */
+@Slf4j
+@Component
+public class AdminInterceptor implements HandlerInterceptor {
+
+    public static final String ADMIN_TOKEN_HEADER = "X-Admin-Token";
+
+    @Autowired
+    private AdminConfig adminConfig;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        String expected = adminConfig.getToken();
+        String token = request.getHeader(ADMIN_TOKEN_HEADER);
+
+        if (expected == null || expected.isEmpty() || token == null
+                || !MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+                        token.getBytes(StandardCharsets.UTF_8))) {
+            log.warn("管理接口鉴权失败: uri={}, remote={}", request.getRequestURI(), request.getRemoteAddr());
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            response.setContentType("application/json;charset=UTF-8");
+            response.getWriter().write("{\"code\":403,\"message\":\"无权访问管理接口\",\"data\":null}");
+            return false;
+        }
+        return true;
+    }
+}
@@ -27,6 +27,21 @@ public interface DeviceInfoMapper {
      */
     List<DeviceInfo> selectAll();
 
+    /**
+     * 按 id 递增分批查询灰度升级候选设备（已激活、指定型号、固件版本不是目标版本）
+     *
+     * @param productModel  设备型号
+     * @param fromVersion   源固件版本，为空时不限
+     * @param targetVersion 目标固件版本
+     * @param afterId       上一批最后一台设备的 id
+     * @param limit         最多返回条数
+     */
+    List<DeviceInfo> selectRolloutCandidates(@Param("productModel") String productModel,
+            @Param("fromVersion") String fromVersion,
+            @Param("targetVersion") String targetVersion,
+            @Param("afterId") Long afterId,
+            @Param("limit") Integer limit);
+
     /**
      * 新增设备
      */
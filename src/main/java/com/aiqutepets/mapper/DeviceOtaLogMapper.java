@@ -4,7 +4,9 @@ import com.aiqutepets.entity.DeviceOtaLog;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 设备OTA日志 Mapper
@@ -21,12 +23,28 @@ public interface DeviceOtaLogMapper {
     int insert(DeviceOtaLog log);
 
     /**
-     * 根据设备UID查询日志列表
+     * 批量插入OTA操作日志（多行 INSERT）
      *
-     * @param deviceUid 设备UID
+     * @param logs 日志列表
+     * @return 影响行数
+     */
+    int insertBatch(@Param("logs") List<DeviceOtaLog> logs);
+
+    /**
+     * 按时间倒序分页查询设备日志（keyset 分页，翻页代价与历史数据量无关）
+     *
+     * @param deviceUid  设备UID
+     * @param actionType 操作类型，为空时查询全部类型
+     * @param beforeTime 上一页最后一条的创建时间，为空时查询第一页
+     * @param beforeId   上一页最后一条的ID
+     * @param limit      最多返回条数
      * @return 日志列表
      */
-    List<DeviceOtaLog> selectByDeviceUid(@Param("deviceUid") String deviceUid);
+    List<DeviceOtaLog> selectHistory(@Param("deviceUid") String deviceUid,
+            @Param("actionType") Integer actionType,
+            @Param("beforeTime") LocalDateTime beforeTime,
+            @Param("beforeId") Long beforeId,
+            @Param("limit") Integer limit);
 
     /**
      * 根据设备UID和操作类型查询最新一条日志
@@ -37,4 +55,32 @@ public interface DeviceOtaLogMapper {
      */
     DeviceOtaLog selectLatestByDeviceUidAndAction(@Param("deviceUid") String deviceUid,
             @Param("actionType") Integer actionType);
+
+    /**
+     * 查询日志表的分区名（按分区顺序）；表未分区时返回空列表
+     */
+    List<String> selectPartitionNames();
+
+    /**
+     * 拆分 pmax 分区，追加按月分区
+     *
+     * @param partitions 新分区（名称 → 上界，格式 yyyy-MM-dd HH:mm:ss）
+     */
+    int addPartitions(@Param("partitions") Map<String, String> partitions);
+
+    /**
+     * 删除分区
+     *
+     * @param partitionNames 分区名列表
+     */
+    int dropPartitions(@Param("partitionNames") List<String> partitionNames);
+
+    /**
+     * 删除早于指定时间的日志（表未分区时使用，分批执行）
+     *
+     * @param before 截止时间
+     * @param limit  单次最多删除条数
+     * @return 删除条数
+     */
+    int deleteBefore(@Param("before") LocalDateTime before, @Param("limit") Integer limit);
 }
@@ -0,0 +1,40 @@
+package com.aiqutepets.mapper;
+
+import com.aiqutepets.entity.OtaRawResponse;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * OTA 第三方原始报文 Mapper
+ */
+@Mapper
+public interface OtaRawResponseMapper {
+
+    /**
+     * 批量插入报文，哈希已存在的只刷新 last_seen
+     *
+     * @param responses 报文列表
+     * @return 影响行数
+     */
+    int upsertBatch(@Param("responses") List<OtaRawResponse> responses);
+
+    /**
+     * 根据哈希查询报文
+     *
+     * @param hash 报文哈希
+     * @return 报文记录
+     */
+    OtaRawResponse selectByHash(@Param("hash") String hash);
+
+    /**
+     * 删除 last_seen 早于指定时间的报文
+     *
+     * @param before 截止时间
+     * @param limit  单批条数
+     * @return 删除条数
+     */
+    int deleteLastSeenBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
@@ -0,0 +1,35 @@
+package com.aiqutepets.mapper;
+
+import com.aiqutepets.entity.OtaRolloutDevice;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * OTA 灰度升级任务设备明细 Mapper
+ */
+@Mapper
+public interface OtaRolloutDeviceMapper {
+
+    /**
+     * 新增明细（同一任务同一设备已有明细时保留原记录）
+     */
+    int insert(OtaRolloutDevice device);
+
+    /**
+     * 查询任务中某台设备的明细
+     */
+    OtaRolloutDevice selectByRolloutIdAndDeviceUid(@Param("rolloutId") Long rolloutId,
+            @Param("deviceUid") String deviceUid);
+
+    /**
+     * 查询任务中仍在升级中的设备
+     */
+    List<OtaRolloutDevice> selectUpgradingByRolloutId(@Param("rolloutId") Long rolloutId);
+
+    /**
+     * 更新设备结果
+     */
+    int updateResult(@Param("id") Long id, @Param("status") Integer status, @Param("failReason") String failReason);
+}
@@ -0,0 +1,53 @@
+package com.aiqutepets.mapper;
+
+import com.aiqutepets.entity.OtaRollout;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * OTA 灰度升级任务 Mapper
+ */
+@Mapper
+public interface OtaRolloutMapper {
+
+    /**
+     * 新增任务
+     */
+    int insert(OtaRollout rollout);
+
+    /**
+     * 根据ID查询任务
+     */
+    OtaRollout selectById(@Param("id") Long id);
+
+    /**
+     * 查询所有任务（按创建时间倒序）
+     */
+    List<OtaRollout> selectAll();
+
+    /**
+     * 根据状态查询任务
+     */
+    List<OtaRollout> selectByStatus(@Param("status") Integer status);
+
+    /**
+     * 更新任务状态（仅当当前状态为 expectedStatus 时）
+     *
+     * @return 影响行数，0 表示状态已被修改
+     */
+    int updateStatus(@Param("id") Long id, @Param("expectedStatus") Integer expectedStatus,
+            @Param("status") Integer status, @Param("pauseReason") String pauseReason);
+
+    /**
+     * 更新任务进度（游标与计数）
+     */
+    int updateProgress(OtaRollout rollout);
+
+    /**
+     * 更新状态（乐观校验当前状态），清空暂停原因，并把当前成功/失败数记为失败率统计起点
+     */
+    int updateStatusWithBaseline(@Param("id") Long id, @Param("expectedStatus") Integer expectedStatus,
+            @Param("status") Integer status);
+}
@@ -6,6 +6,8 @@ import com.aiqutepets.entity.UserDeviceRel;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -108,6 +110,15 @@ public interface UserDeviceRelMapper {
      */
     UserDeviceRel selectCurrentDevice(@Param("userId") Long userId);
 
+    /**
+     * 查询用户当前选中的设备（首页使用）
+     * 在 selectCurrentDevice 的基础上额外读取成长数据、心情与首页访问缓存
+     *
+     * @param userId 用户ID
+     * @return 当前选中设备的绑定关系，如果没有则返回 null
+     */
+    UserDeviceRel selectHomeDevice(@Param("userId") Long userId);
+
     /**
      * 更新设备的OTA更新标记（用于首页红点缓存）
      *
@@ -117,4 +128,114 @@ public interface UserDeviceRelMapper {
      */
     int updateOtaUpdateFlag(@Param("deviceUid") String deviceUid,
             @Param("hasOtaUpdate") Integer hasOtaUpdate);
+
+    /**
+     * 更新成长数据缓存（只写传入的非空列）
+     * 仅当等级/进度仍为读取时的旧值时更新，避免较旧的结果覆盖新值
+     *
+     * @param id            关系ID
+     * @param intimacyLevel 新等级（不变传 null）
+     * @param intimacyScore 新进度（不变传 null）
+     * @param expectedLevel 读取时的等级
+     * @param expectedScore 读取时的进度
+     * @return 影响行数，0 表示已被其他请求更新
+     */
+    int updateGrowthCache(@Param("id") Long id,
+            @Param("intimacyLevel") Integer intimacyLevel,
+            @Param("intimacyScore") Integer intimacyScore,
+            @Param("expectedLevel") Integer expectedLevel,
+            @Param("expectedScore") Integer expectedScore);
+
+    /**
+     * 首次解锁徽章（仅当该绑定关系尚无徽章时写入）
+     *
+     * @param id           关系ID
+     * @param currentBadge 徽章名称
+     * @return 影响行数，0 表示已有徽章
+     */
+    int unlockBadge(@Param("id") Long id, @Param("currentBadge") String currentBadge);
+
+    /**
+     * 更新今日心情缓存
+     * 库中已有更晚日期的心情时不更新
+     *
+     * @param id              关系ID
+     * @param lastMoodDate    心情日期
+     * @param lastMoodContent 心情文案
+     * @return 影响行数
+     */
+    int updateMoodCache(@Param("id") Long id,
+            @Param("lastMoodDate") LocalDate lastMoodDate,
+            @Param("lastMoodContent") String lastMoodContent);
+
+    /**
+     * 更新设备所有绑定关系的今日心情缓存
+     * 只更新心情日期早于 lastMoodDate 的行（已有当天心情的不覆盖）
+     *
+     * @param deviceUid       设备UID
+     * @param lastMoodDate    心情日期
+     * @param lastMoodContent 心情文案
+     * @return 影响行数
+     */
+    int updateMoodCacheByDeviceUid(@Param("deviceUid") String deviceUid,
+            @Param("lastMoodDate") LocalDate lastMoodDate,
+            @Param("lastMoodContent") String lastMoodContent);
+
+    /**
+     * 记录首页访问时间（当天已记录过的不再写入）
+     *
+     * @param id       关系ID
+     * @param viewTime 访问时间
+     * @param today    今天
+     * @return 影响行数，0 表示当天已记录
+     */
+    int updateLastHomeView(@Param("id") Long id, @Param("viewTime") LocalDateTime viewTime,
+            @Param("today") LocalDate today);
+
+    /**
+     * 查询需要预生成今日心情的绑定关系（按 id 游标分页）
+     * 条件：当前选中设备，activeSince 之后打开过首页（last_home_view），且今天尚未生成心情
+     *
+     * @param activeSince 活跃起始日期
+     * @param today       今天
+     * @param afterId     游标：上一批最后一条的 id
+     * @param limit       本批条数
+     * @return 绑定关系列表（按 id 升序，只填充 id 与 deviceUid）
+     */
+    List<UserDeviceRel> selectMoodPregenCandidates(@Param("activeSince") LocalDate activeSince,
+            @Param("today") LocalDate today,
+            @Param("afterId") Long afterId,
+            @Param("limit") Integer limit);
+
+    /**
+     * 更新设备所有绑定关系的成长数据缓存
+     * 只更新成长数据刷新时间早于 growthStatsTime 的行（避免较旧的结果覆盖新数据）；等级、进度为 null 时不修改
+     *
+     * @param deviceUid       设备UID
+     * @param intimacyLevel   亲密等级
+     * @param intimacyScore   亲密度百分比
+     * @param growthStatsJson 五维成长数据 JSON
+     * @param growthStatsTime 刷新时间
+     * @return 影响行数
+     */
+    int updateGrowthStatsByDeviceUid(@Param("deviceUid") String deviceUid,
+            @Param("intimacyLevel") Integer intimacyLevel,
+            @Param("intimacyScore") Integer intimacyScore,
+            @Param("growthStatsJson") String growthStatsJson,
+            @Param("growthStatsTime") LocalDateTime growthStatsTime);
+
+    /**
+     * 查询需要刷新成长数据的绑定关系（按 id 游标分页）
+     * 条件：当前选中设备，activeSince 之后打开过首页（last_home_view），且成长数据缺失或刷新时间早于 staleBefore
+     *
+     * @param activeSince 活跃起始日期
+     * @param staleBefore 成长数据过期时间
+     * @param afterId     游标：上一批最后一条的 id
+     * @param limit       本批条数
+     * @return 绑定关系列表（按 id 升序，只填充 id 与 deviceUid）
+     */
+    List<UserDeviceRel> selectGrowthRefreshCandidates(@Param("activeSince") LocalDate activeSince,
+            @Param("staleBefore") LocalDateTime staleBefore,
+            @Param("afterId") Long afterId,
+            @Param("limit") Integer limit);
 }
@@ -0,0 +1,35 @@
+package com.aiqutepets.service;
+
+import com.aiqutepets.vo.OtaFirmwareInfoVO;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 固件目录服务接口
+ *
+ * <p>
+ * 最新固件信息只取决于设备型号与当前版本，与具体设备无关；按 (型号, 当前版本) 缓存上游结果，
+ * 同型号同版本的设备共用一次上游查询。
+ * </p>
+ */
+public interface FirmwareCatalogService {
+
+    /**
+     * 获取最新固件信息（优先读缓存，未命中时以该设备的凭证查询上游）
+     *
+     * @param deviceUid      设备唯一标识（仅用于未命中时签名请求）
+     * @param secretKey      设备通信密钥
+     * @param productModel   设备型号，为空时不缓存
+     * @param currentVersion 当前版本号
+     * @return 最新固件信息的 Future，失败时以"无更新"完成
+     */
+    CompletableFuture<OtaFirmwareInfoVO> getLatestFirmwareAsync(String deviceUid, String secretKey,
+            String productModel, String currentVersion);
+
+    /**
+     * 发布新固件后清除缓存（所有节点）
+     *
+     * @param productModel 设备型号，为空时清除全部
+     */
+    void invalidate(String productModel);
+}
@@ -0,0 +1,37 @@
+package com.aiqutepets.service;
+
+import com.aiqutepets.entity.UserDeviceRel;
+import com.aiqutepets.vo.AiGrowthStatsVO;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 设备成长数据缓存服务接口
+ * 将上游 /stats/growth 的结果缓存到 user_device_rel.growth_stats_json，首页直接读取
+ */
+public interface GrowthStatsService {
+
+    /**
+     * 读取绑定关系中缓存的成长数据
+     *
+     * @param rel 绑定关系
+     * @return 成长数据（status=success）；未缓存或内容无法解析时返回 null
+     */
+    AiGrowthStatsVO getCachedStats(UserDeviceRel rel);
+
+    /**
+     * 立即从上游刷新设备成长数据，成功时写入该设备所有绑定关系
+     * 同一设备已有刷新在进行时复用其结果
+     *
+     * @param deviceUid 设备UID
+     * @return 上游返回的成长数据（失败时 status=error）
+     */
+    CompletableFuture<AiGrowthStatsVO> refreshAsync(String deviceUid);
+
+    /**
+     * 刷新近期活跃设备中缺失或过期的成长数据
+     *
+     * @return 本次请求上游的设备数；其他节点正在执行时返回 0
+     */
+    int refreshStaleStats();
+}
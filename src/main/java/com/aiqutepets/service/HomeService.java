@@ -0,0 +1,20 @@
+package com.aiqutepets.service;
+
+import com.aiqutepets.dto.HomeIndexDTO;
+import com.aiqutepets.entity.DeviceInfo;
+import com.aiqutepets.entity.UserDeviceRel;
+
+/**
+ * 首页聚合服务接口
+ */
+public interface HomeService {
+
+    /**
+     * 获取首页聚合数据
+     *
+     * @param currentDevice 当前选中设备的绑定关系
+     * @param deviceInfo    设备信息（包含 secretKey 和 productModel）
+     * @return 首页数据
+     */
+    HomeIndexDTO getHomeIndex(UserDeviceRel currentDevice, DeviceInfo deviceInfo);
+}
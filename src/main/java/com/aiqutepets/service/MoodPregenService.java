@@ -0,0 +1,19 @@
+package com.aiqutepets.service;
+
+/**
+ * 今日心情预生成服务接口
+ *
+ * <p>
+ * 零点后分批为近期活跃设备预取今日心情并写入 user_device_rel 缓存，
+ * 避免早高峰首页访问集中同步请求上游心情接口。
+ * </p>
+ */
+public interface MoodPregenService {
+
+    /**
+     * 为近期活跃设备预生成今日心情（从当天的断点继续，已完成则直接返回）
+     *
+     * @return 本次请求上游心情接口的设备数
+     */
+    int pregenerateTodayMood();
+}
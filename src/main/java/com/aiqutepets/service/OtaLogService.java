@@ -0,0 +1,30 @@
+package com.aiqutepets.service;
+
+import com.aiqutepets.dto.OtaHistoryPageDTO;
+
+/**
+ * OTA 操作日志服务接口
+ *
+ * <p>
+ * 提供设备 OTA 历史分页查询，并维护 device_ota_log 的按月分区与保留期。
+ * </p>
+ */
+public interface OtaLogService {
+
+    /**
+     * 按时间倒序分页查询设备 OTA 历史
+     *
+     * @param deviceUid  设备UID
+     * @param actionType 操作类型（可选）
+     * @param cursor     上一页返回的 nextCursor，第一页传空
+     * @param size       每页条数
+     * @return 分页结果
+     * @throws IllegalArgumentException 游标格式错误
+     */
+    OtaHistoryPageDTO getHistory(String deviceUid, Integer actionType, String cursor, Integer size);
+
+    /**
+     * 创建未来月分区，删除超过保留期的日志及不再被引用的原始报文
+     */
+    void maintainPartitions();
+}
@@ -0,0 +1,24 @@
+package com.aiqutepets.service;
+
+import com.aiqutepets.vo.OtaStatusVO;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * OTA 升级进度推送服务接口（Server-Sent Events）
+ */
+public interface OtaProgressStreamService {
+
+    /**
+     * 打开一个进度推送连接
+     *
+     * <p>
+     * 立即推送当前状态，之后状态或进度变化时推送 progress 事件；
+     * 升级成功(5)/失败(6) 或跟踪结束后推送最终状态并关闭连接。
+     * </p>
+     *
+     * @param deviceUid     设备唯一标识
+     * @param currentStatus 当前状态（首个事件）
+     * @return SSE 连接
+     */
+    SseEmitter open(String deviceUid, OtaStatusVO currentStatus);
+}
@@ -0,0 +1,59 @@
+package com.aiqutepets.service;
+
+import com.aiqutepets.dto.OtaRolloutCreateRequest;
+import com.aiqutepets.entity.OtaRollout;
+
+import java.util.List;
+
+/**
+ * OTA 分批灰度升级服务接口
+ *
+ * <p>
+ * 运维按型号与固件版本圈定设备，由调度任务分批下发升级指令：
+ * 限制同时升级中的设备数与每分钟下发数，失败率过高时自动暂停。
+ * </p>
+ */
+public interface OtaRolloutService {
+
+    /**
+     * 创建并启动灰度升级任务
+     *
+     * @param request 任务参数，未填写的限流参数使用默认配置
+     * @return 新建的任务
+     */
+    OtaRollout create(OtaRolloutCreateRequest request);
+
+    /**
+     * 查询所有任务
+     */
+    List<OtaRollout> listAll();
+
+    /**
+     * 根据ID查询任务
+     */
+    OtaRollout getById(Long id);
+
+    /**
+     * 暂停任务（已下发的设备继续升级，不再下发新设备）
+     *
+     * @param id     任务ID
+     * @param reason 暂停原因
+     */
+    void pause(Long id, String reason);
+
+    /**
+     * 恢复已暂停的任务
+     * 自动暂停的失败率从恢复时起重新统计，恢复前的失败不再触发暂停
+     *
+     * @param id 任务ID
+     */
+    void resume(Long id);
+
+    /**
+     * 取消任务
+     *
+     * @param id     任务ID
+     * @param reason 取消原因
+     */
+    void cancel(Long id, String reason);
+}
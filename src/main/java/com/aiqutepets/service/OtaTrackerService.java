@@ -0,0 +1,45 @@
+package com.aiqutepets.service;
+
+import com.aiqutepets.vo.OtaStatusVO;
+
+/**
+ * OTA 升级进度跟踪服务接口
+ *
+ * <p>
+ * 服务端集中轮询正在下载/升级的设备，最新状态保存在 Redis 中，
+ * 客户端轮询 /check 时直接读取，不再每次请求上游。
+ * </p>
+ */
+public interface OtaTrackerService {
+
+    /**
+     * 开始跟踪设备（下发升级指令成功后调用），立即安排一次状态查询
+     *
+     * @param deviceUid 设备唯一标识
+     */
+    void track(String deviceUid);
+
+    /**
+     * 获取跟踪器中的最新状态
+     *
+     * @param deviceUid 设备唯一标识
+     * @return 最新状态；未跟踪、状态已过期或 Redis 不可用时返回 null（调用方应直接查询上游）
+     */
+    OtaStatusVO getTrackedStatus(String deviceUid);
+
+    /**
+     * 设备当前是否处于跟踪中（升级尚未结束）
+     *
+     * @param deviceUid 设备唯一标识
+     * @return 是否跟踪中；Redis 不可用时返回 false
+     */
+    boolean isTracked(String deviceUid);
+
+    /**
+     * 上报一次直接查询上游得到的状态；处于下载/升级中时开始跟踪
+     *
+     * @param deviceUid 设备唯一标识
+     * @param status    上游返回的状态
+     */
+    void onStatusQueried(String deviceUid, OtaStatusVO status);
+}
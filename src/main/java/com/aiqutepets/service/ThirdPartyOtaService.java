@@ -3,11 +3,18 @@ package com.aiqutepets.service;
 import com.aiqutepets.dto.FirmwareCheckResponse;
 import com.aiqutepets.vo.AiGrowthStatsVO;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * 第三方 OTA 固件升级服务接口
  */
 public interface ThirdPartyOtaService {
 
+    /**
+     * 默认心情兜底文案
+     */
+    String DEFAULT_MOOD_CONTENT = "今天也是充满活力的一天，期待和你说话哦！";
+
     /**
      * 检查设备固件更新状态
      *
@@ -26,6 +33,15 @@ public interface ThirdPartyOtaService {
      */
     AiGrowthStatsVO getDeviceGrowthStats(String deviceUid, String secretKey);
 
+    /**
+     * 异步获取设备成长统计数据（非阻塞，失败时以 status=error 的对象完成）
+     *
+     * @param deviceUid 设备唯一标识
+     * @param secretKey 设备通信密钥
+     * @return 成长统计 VO 的 Future
+     */
+    CompletableFuture<AiGrowthStatsVO> getDeviceGrowthStatsAsync(String deviceUid, String secretKey);
+
     /**
      * 计算亲密度百分比
      *
@@ -43,6 +59,15 @@ public interface ThirdPartyOtaService {
      */
     String getDeviceTodayMood(String deviceUid, String secretKey);
 
+    /**
+     * 异步获取设备今日心情（非阻塞，失败时以默认兜底文案完成）
+     *
+     * @param deviceUid 设备唯一标识
+     * @param secretKey 设备通信密钥
+     * @return 心情内容的 Future
+     */
+    CompletableFuture<String> getDeviceTodayMoodAsync(String deviceUid, String secretKey);
+
     /**
      * 查询设备OTA升级状态
      *
@@ -52,6 +77,15 @@ public interface ThirdPartyOtaService {
      */
     com.aiqutepets.vo.OtaStatusVO getOtaStatus(String deviceUid, String secretKey);
 
+    /**
+     * 异步查询设备OTA升级状态（非阻塞，失败时以 result=0 的兜底状态完成）
+     *
+     * @param deviceUid 设备唯一标识
+     * @param secretKey 设备通信密钥
+     * @return OTA升级状态的 Future
+     */
+    CompletableFuture<com.aiqutepets.vo.OtaStatusVO> getOtaStatusAsync(String deviceUid, String secretKey);
+
     /**
      * 发起设备固件升级指令
      *
@@ -73,6 +107,18 @@ public interface ThirdPartyOtaService {
     com.aiqutepets.vo.OtaFirmwareInfoVO getLatestFirmwareInfo(String deviceUid, String secretKey,
             String currentVersion);
 
+    /**
+     * 异步获取设备最新固件信息（非阻塞，失败时以"无更新"完成）
+     *
+     * @param deviceUid      设备唯一标识
+     * @param secretKey      设备通信密钥
+     * @param currentVersion 当前版本号（可选，用于服务端对比）
+     * @param productModel   设备型号（可选，由调用方传入，避免再次查询设备信息）
+     * @return 最新固件信息的 Future
+     */
+    CompletableFuture<com.aiqutepets.vo.OtaFirmwareInfoVO> getLatestFirmwareInfoAsync(String deviceUid,
+            String secretKey, String currentVersion, String productModel);
+
     /**
      * 获取设备最新固件信息（不传当前版本）
      *
@@ -3,20 +3,77 @@ package com.aiqutepets.service.impl;
 import com.aiqutepets.entity.DeviceInfo;
 import com.aiqutepets.mapper.DeviceInfoMapper;
 import com.aiqutepets.service.DeviceInfoService;
+import com.aiqutepets.util.CacheInvalidationBus;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.annotation.PostConstruct;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 设备信息 Service 实现类
+ *
+ * <p>
+ * 按设备UID查询走本地 Caffeine 缓存（容量上限 + 过期时间），热路径上获取 secret_key 不再每次查 MySQL。
+ * 通过本服务更新/删除设备时清除本地缓存，并经 Redis 频道 {@value #INVALIDATE_CHANNEL} 通知其他节点清除。
+ * </p>
+ *
+ * <p>
+ * <b>注意：</b>缓存中保存的是快照，{@link #getByDeviceUid(String)} 每次返回副本，调用方修改返回对象不会影响缓存；
+ * 修改后必须调用 {@link #update(DeviceInfo)} 落库。
+ * </p>
  */
+@Slf4j
 @Service
 public class DeviceInfoServiceImpl implements DeviceInfoService {
 
+    /**
+     * 跨节点缓存失效通知频道，消息体为设备UID（{@value #INVALIDATE_ALL} 表示全部失效）
+     */
+    private static final String INVALIDATE_CHANNEL = "device:info:invalidate";
+
+    private static final String INVALIDATE_ALL = "*";
+
+    /**
+     * 本地缓存最大设备数
+     */
+    private static final long CACHE_MAX_SIZE = 10_000;
+
+    /**
+     * 本地缓存过期时间（分钟），作为漏收失效通知时的兜底
+     */
+    private static final long CACHE_EXPIRE_MINUTES = 10;
+
+    private final Cache<String, DeviceInfo> deviceCache = Caffeine.newBuilder()
+            .maximumSize(CACHE_MAX_SIZE)
+            .expireAfterWrite(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
+            .recordStats()
+            .build();
+
     @Autowired
     private DeviceInfoMapper deviceInfoMapper;
 
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void init() {
+        CaffeineCacheMetrics.monitor(meterRegistry, deviceCache, "device_info");
+        cacheInvalidationBus.subscribe(INVALIDATE_CHANNEL, this::evictLocal);
+    }
+
     @Override
     public DeviceInfo getById(Long id) {
         return deviceInfoMapper.selectById(id);
@@ -24,7 +81,12 @@ public class DeviceInfoServiceImpl implements DeviceInfoService {
 
     @Override
     public DeviceInfo getByDeviceUid(String deviceUid) {
-        return deviceInfoMapper.selectByDeviceUid(deviceUid);
+        if (deviceUid == null) {
+            return null;
+        }
+        // 设备不存在时 loader 返回 null，不会被缓存
+        DeviceInfo cached = deviceCache.get(deviceUid, deviceInfoMapper::selectByDeviceUid);
+        return cached == null ? null : copyOf(cached);
     }
 
     @Override
@@ -39,11 +101,52 @@ public class DeviceInfoServiceImpl implements DeviceInfoService {
 
     @Override
     public boolean update(DeviceInfo deviceInfo) {
-        return deviceInfoMapper.update(deviceInfo) > 0;
+        boolean updated = deviceInfoMapper.update(deviceInfo) > 0;
+        invalidate(deviceInfo.getDeviceUid() != null ? deviceInfo.getDeviceUid() : INVALIDATE_ALL);
+        return updated;
     }
 
     @Override
     public boolean removeById(Long id) {
-        return deviceInfoMapper.deleteById(id) > 0;
+        DeviceInfo existing = deviceInfoMapper.selectById(id);
+        boolean removed = deviceInfoMapper.deleteById(id) > 0;
+        invalidate(existing != null ? existing.getDeviceUid() : INVALIDATE_ALL);
+        return removed;
+    }
+
+    /**
+     * 清除本地缓存并通知其他节点；处于事务中时提交后再清除一次，避免提交前被其他请求回填旧值
+     */
+    private void invalidate(String deviceUid) {
+        evictLocal(deviceUid);
+        publishInvalidation(deviceUid);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictLocal(deviceUid);
+                    publishInvalidation(deviceUid);
+                }
+            });
+        }
+    }
+
+    private void evictLocal(String deviceUid) {
+        if (INVALIDATE_ALL.equals(deviceUid)) {
+            deviceCache.invalidateAll();
+        } else {
+            deviceCache.invalidate(deviceUid);
+        }
+    }
+
+    private void publishInvalidation(String deviceUid) {
+        cacheInvalidationBus.publish(INVALIDATE_CHANNEL, deviceUid);
+    }
+
+    private static DeviceInfo copyOf(DeviceInfo source) {
+        DeviceInfo copy = new DeviceInfo();
+        BeanUtils.copyProperties(source, copy);
+        return copy;
     }
 }
@@ -9,15 +9,18 @@ import com.aiqutepets.dto.FirmwareCheckResponse;
 import com.aiqutepets.dto.MyDeviceDTO;
 import com.aiqutepets.entity.DeviceInfo;
 import com.aiqutepets.entity.UserDeviceRel;
-import com.aiqutepets.mapper.DeviceInfoMapper;
 import com.aiqutepets.mapper.UserDeviceRelMapper;
+import com.aiqutepets.service.DeviceInfoService;
 import com.aiqutepets.service.DeviceManageService;
 import com.aiqutepets.service.DeviceMqttService;
+import com.aiqutepets.service.GrowthStatsService;
 import com.aiqutepets.service.ThirdPartyOtaService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -30,7 +33,7 @@ import java.util.List;
 public class DeviceManageServiceImpl implements DeviceManageService {
 
     @Autowired
-    private DeviceInfoMapper deviceInfoMapper;
+    private DeviceInfoService deviceInfoService;
 
     @Autowired
     private UserDeviceRelMapper userDeviceRelMapper;
@@ -41,6 +44,9 @@ public class DeviceManageServiceImpl implements DeviceManageService {
     @Autowired
     private DeviceMqttService deviceMqttService;
 
+    @Autowired
+    private GrowthStatsService growthStatsService;
+
     /**
      * 设备状态：未激活
      */
@@ -55,7 +61,7 @@ public class DeviceManageServiceImpl implements DeviceManageService {
     public DeviceCheckResponse checkDeviceValid(String deviceUid) {
         log.info("校验设备合法性: deviceUid={}", deviceUid);
 
-        DeviceInfo device = deviceInfoMapper.selectByDeviceUid(deviceUid);
+        DeviceInfo device = deviceInfoService.getByDeviceUid(deviceUid);
 
         if (device == null) {
             log.warn("设备不存在: deviceUid={}", deviceUid);
@@ -79,7 +85,7 @@ public class DeviceManageServiceImpl implements DeviceManageService {
         log.info("用户 {} 请求绑定设备: deviceUid={}", userId, deviceUid);
 
         // 1. 校验设备是否存在
-        DeviceInfo device = deviceInfoMapper.selectByDeviceUid(deviceUid);
+        DeviceInfo device = deviceInfoService.getByDeviceUid(deviceUid);
         if (device == null) {
             log.warn("设备不存在: deviceUid={}", deviceUid);
             return DeviceBindResponse.builder()
@@ -125,6 +131,9 @@ public class DeviceManageServiceImpl implements DeviceManageService {
 
         log.info("创建设备绑定关系: userId={}, deviceUid={}, isOwner=1", userId, deviceUid);
 
+        // 提交后预取成长数据，首次打开首页即可读取数据库缓存
+        refreshGrowthStatsAfterCommit(deviceUid);
+
         // 5. 更新设备状态为已激活
         if (device.getStatus() == DEVICE_STATUS_INACTIVE) {
             device.setStatus(DEVICE_STATUS_ACTIVE);
@@ -132,7 +141,7 @@ public class DeviceManageServiceImpl implements DeviceManageService {
             if (request.getMacAddress() != null && !request.getMacAddress().isEmpty()) {
                 device.setMac(request.getMacAddress());
             }
-            deviceInfoMapper.update(device);
+            deviceInfoService.update(device);
             log.info("设备激活成功: deviceUid={}", deviceUid);
         }
 
@@ -145,6 +154,22 @@ public class DeviceManageServiceImpl implements DeviceManageService {
                 .build();
     }
 
+    /**
+     * 事务提交后异步刷新设备成长数据（提交前其他连接看不到新绑定关系）
+     */
+    private void refreshGrowthStatsAfterCommit(String deviceUid) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            growthStatsService.refreshAsync(deviceUid);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                growthStatsService.refreshAsync(deviceUid);
+            }
+        });
+    }
+
     @Override
     public MyDeviceDTO getDeviceDetail(Long userId, String deviceUid) {
         log.info("获取设备详情: userId={}, deviceUid={}", userId, deviceUid);
@@ -293,7 +318,7 @@ public class DeviceManageServiceImpl implements DeviceManageService {
         }
 
         // 2. 获取设备的 secret_key
-        DeviceInfo device = deviceInfoMapper.selectByDeviceUid(deviceUid);
+        DeviceInfo device = deviceInfoService.getByDeviceUid(deviceUid);
         if (device == null || device.getSecretKey() == null) {
             log.warn("设备不存在或密钥为空: deviceUid={}", deviceUid);
             return FirmwareCheckResponse.builder()
@@ -318,7 +343,7 @@ public class DeviceManageServiceImpl implements DeviceManageService {
         }
 
         // 2. 获取设备信息（作为兜底数据）
-        DeviceInfo device = deviceInfoMapper.selectByDeviceUid(deviceUid);
+        DeviceInfo device = deviceInfoService.getByDeviceUid(deviceUid);
         if (device == null) {
             log.warn("设备不存在: deviceUid={}", deviceUid);
             return null;
@@ -0,0 +1,118 @@
+package com.aiqutepets.service.impl;
+
+import com.aiqutepets.config.OtaConfig;
+import com.aiqutepets.service.FirmwareCatalogService;
+import com.aiqutepets.service.ThirdPartyOtaService;
+import com.aiqutepets.util.CacheInvalidationBus;
+import com.aiqutepets.vo.OtaFirmwareInfoVO;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 固件目录服务实现类
+ *
+ * <p>
+ * 本地 Caffeine 异步缓存，key 为 "型号|当前版本"：未命中时只有第一个请求查询上游，同 key 的并发请求等待同一个结果。
+ * 上游失败时的兜底结果（"无更新"）不缓存。发布新固件后调用 {@link #invalidate(String)}，
+ * 经 Redis 频道 {@value #INVALIDATE_CHANNEL} 通知所有节点清除。
+ * </p>
+ */
+@Slf4j
+@Service
+public class FirmwareCatalogServiceImpl implements FirmwareCatalogService {
+
+    /**
+     * 跨节点缓存失效通知频道，消息体为设备型号（{@value #INVALIDATE_ALL} 表示全部失效）
+     */
+    private static final String INVALIDATE_CHANNEL = "ota:firmware:invalidate";
+
+    private static final String INVALIDATE_ALL = "*";
+
+    private static final char KEY_SEPARATOR = '|';
+
+    @Autowired
+    private ThirdPartyOtaService thirdPartyOtaService;
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Autowired
+    private OtaConfig otaConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private AsyncCache<String, OtaFirmwareInfoVO> catalog;
+
+    @PostConstruct
+    public void init() {
+        catalog = Caffeine.newBuilder()
+                .maximumSize(otaConfig.getFirmwareCacheMaxSize())
+                .expireAfterWrite(otaConfig.getFirmwareCacheTtlSeconds(), TimeUnit.SECONDS)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, catalog, "firmware_catalog");
+        cacheInvalidationBus.subscribe(INVALIDATE_CHANNEL, this::evictLocal);
+    }
+
+    @Override
+    public CompletableFuture<OtaFirmwareInfoVO> getLatestFirmwareAsync(String deviceUid, String secretKey,
+            String productModel, String currentVersion) {
+        if (productModel == null || productModel.isEmpty()) {
+            return thirdPartyOtaService.getLatestFirmwareInfoAsync(deviceUid, secretKey, currentVersion, null);
+        }
+
+        String key = productModel + KEY_SEPARATOR + (currentVersion != null ? currentVersion : "");
+        CompletableFuture<OtaFirmwareInfoVO> cached = catalog.get(key, (k, executor) -> {
+            log.debug("固件目录未命中，查询上游: productModel={}, currentVersion={}", productModel, currentVersion);
+            return thirdPartyOtaService.getLatestFirmwareInfoAsync(deviceUid, secretKey, currentVersion,
+                    productModel);
+        });
+        return cached.thenApply(info -> {
+            if (!isCacheable(info)) {
+                catalog.asMap().remove(key, cached);
+            }
+            return copyOf(info);
+        });
+    }
+
+    @Override
+    public void invalidate(String productModel) {
+        String message = productModel == null || productModel.isEmpty() ? INVALIDATE_ALL : productModel;
+        log.info("清除固件目录缓存: productModel={}", message);
+        evictLocal(message);
+        cacheInvalidationBus.publish(INVALIDATE_CHANNEL, message);
+    }
+
+    private void evictLocal(String productModel) {
+        if (INVALIDATE_ALL.equals(productModel)) {
+            catalog.synchronous().invalidateAll();
+            return;
+        }
+        String prefix = productModel + KEY_SEPARATOR;
+        catalog.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    /**
+     * 仅缓存上游明确返回成功的结果；兜底对象没有原始报文
+     */
+    private static boolean isCacheable(OtaFirmwareInfoVO info) {
+        return info != null && info.getResult() != null && info.getResult() == 1 && info.getRawResponse() != null;
+    }
+
+    private static OtaFirmwareInfoVO copyOf(OtaFirmwareInfoVO source) {
+        OtaFirmwareInfoVO copy = new OtaFirmwareInfoVO();
+        BeanUtils.copyProperties(source, copy);
+        return copy;
+    }
+}
@@ -0,0 +1,236 @@
+package com.aiqutepets.service.impl;
+
+import com.aiqutepets.config.HomeConfig;
+import com.aiqutepets.entity.DeviceInfo;
+import com.aiqutepets.entity.UserDeviceRel;
+import com.aiqutepets.mapper.UserDeviceRelMapper;
+import com.aiqutepets.service.DeviceInfoService;
+import com.aiqutepets.service.GrowthStatsService;
+import com.aiqutepets.service.ThirdPartyOtaService;
+import com.aiqutepets.util.DistributedLock;
+import com.aiqutepets.util.RatePacer;
+import com.aiqutepets.vo.AiGrowthStatsVO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 设备成长数据缓存服务实现类
+ *
+ * <p>
+ * 上游 /stats/growth 的五维数据变化缓慢，不必每次打开首页都请求。本服务把结果写入 user_device_rel：
+ * growth_stats_json（GrowthStatsData 的 JSON）、growth_stats_time，以及据此计算的 intimacy_level / intimacy_score，
+ * 首页直接读取数据库中的数据：
+ * </p>
+ * <ul>
+ * <li>定时任务每隔 home.growth-refresh-interval-millis 扫描近期活跃（home.growth-refresh-active-days 天内打开过首页，
+ * 以 last_home_view 判定）的当前设备，
+ * 刷新缺失或早于 home.growth-stats-max-age-seconds 的成长数据；按 user_device_rel.id 游标分批，
+ * 同一批内同一设备只请求一次，以 home.growth-refresh-permits-per-second 匀速请求上游</li>
+ * <li>{@link #refreshAsync(String)} 供绑定设备、首页发现数据缺失或过期时按需刷新；
+ * 同一设备的并发请求由上游客户端合并为一次</li>
+ * <li>上游失败（status=error）时不写入，保留原有缓存</li>
+ * </ul>
+ *
+ * <p>
+ * current_badge 不在此处写入：徽章首次解锁需要在首页返回 newlyUnlocked 弹窗，仍由首页根据等级与进度判定并写入。
+ * 多节点部署时定时任务通过 Redis 锁 {@value #LOCK_KEY} 保证同一时刻只有一个节点执行；Redis 不可用时跳过本次调度。
+ * </p>
+ *
+ * <p>
+ * 指标：home.growth.refresh{result=success|fallback|failed}。
+ * </p>
+ */
+@Slf4j
+@Service
+public class GrowthStatsServiceImpl implements GrowthStatsService {
+
+    private static final String LOCK_KEY = "home:growth:refresh:lock";
+
+    private static final String STATUS_SUCCESS = "success";
+
+    private static final String RESULT_SUCCESS = "success";
+    private static final String RESULT_FALLBACK = "fallback";
+    private static final String RESULT_FAILED = "failed";
+
+    private static final Duration LOCK_TTL = Duration.ofMinutes(10);
+
+    @Autowired
+    private UserDeviceRelMapper userDeviceRelMapper;
+
+    @Autowired
+    private DeviceInfoService deviceInfoService;
+
+    @Autowired
+    private ThirdPartyOtaService thirdPartyOtaService;
+
+    @Autowired
+    private DistributedLock distributedLock;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private HomeConfig homeConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ThreadPoolTaskExecutor upstreamWriteBackExecutor;
+
+    private volatile boolean stopping;
+
+    @Override
+    public AiGrowthStatsVO getCachedStats(UserDeviceRel rel) {
+        String json = rel.getGrowthStatsJson();
+        if (json == null || json.isEmpty() || rel.getGrowthStatsTime() == null) {
+            return null;
+        }
+        try {
+            AiGrowthStatsVO stats = new AiGrowthStatsVO();
+            stats.setStatus(STATUS_SUCCESS);
+            stats.setData(objectMapper.readValue(json, AiGrowthStatsVO.GrowthStatsData.class));
+            return stats;
+        } catch (Exception e) {
+            log.warn("解析缓存的成长数据失败: deviceUid={}, error={}", rel.getDeviceUid(), e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public CompletableFuture<AiGrowthStatsVO> refreshAsync(String deviceUid) {
+        DeviceInfo deviceInfo = deviceInfoService.getByDeviceUid(deviceUid);
+        if (deviceInfo == null) {
+            log.warn("刷新成长数据时设备不存在: deviceUid={}", deviceUid);
+            AiGrowthStatsVO notFound = new AiGrowthStatsVO();
+            notFound.setStatus("error");
+            return CompletableFuture.completedFuture(notFound);
+        }
+
+        // 写库在回写线程池中执行，不占用上游响应解析线程
+        return thirdPartyOtaService.getDeviceGrowthStatsAsync(deviceUid, deviceInfo.getSecretKey())
+                .thenApplyAsync(stats -> {
+                    saveStats(deviceUid, stats);
+                    return stats;
+                }, upstreamWriteBackExecutor);
+    }
+
+    /**
+     * 定时刷新过期的成长数据
+     */
+    @Scheduled(fixedDelayString = "${home.growth-refresh-interval-millis:600000}",
+            initialDelayString = "${home.growth-refresh-interval-millis:600000}")
+    public void scheduledRefresh() {
+        if (!Boolean.TRUE.equals(homeConfig.getGrowthRefreshEnabled())) {
+            return;
+        }
+        try {
+            refreshStaleStats();
+        } catch (RuntimeException e) {
+            log.error("成长数据定时刷新失败", e);
+        }
+    }
+
+    @Override
+    public int refreshStaleStats() {
+        try (DistributedLock.Lease lease = distributedLock.tryAcquire(LOCK_KEY, LOCK_TTL)) {
+            return lease == null ? 0 : runLocked(lease);
+        }
+    }
+
+    private int runLocked(DistributedLock.Lease lease) {
+        LocalDate activeSince = LocalDate.now().minusDays(homeConfig.getGrowthRefreshActiveDays());
+        LocalDateTime staleBefore = LocalDateTime.now().minusSeconds(homeConfig.getGrowthStatsMaxAgeSeconds());
+        int chunkSize = Math.max(1, homeConfig.getGrowthRefreshChunkSize());
+        RatePacer pacer = new RatePacer(homeConfig.getGrowthRefreshPermitsPerSecond());
+        long cursor = 0L;
+        int handled = 0;
+
+        while (!stopping) {
+            // ============ 步骤 A: 读取下一批 ============
+            List<UserDeviceRel> chunk = userDeviceRelMapper.selectGrowthRefreshCandidates(activeSince, staleBefore,
+                    cursor, chunkSize);
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            // ============ 步骤 B: 限速发出请求，同一批内同一设备只请求一次 ============
+            Set<String> requested = new HashSet<>();
+            List<CompletableFuture<AiGrowthStatsVO>> pending = new ArrayList<>();
+            for (UserDeviceRel rel : chunk) {
+                if (stopping) {
+                    break;
+                }
+                if (!requested.add(rel.getDeviceUid())) {
+                    cursor = rel.getId();
+                    continue;
+                }
+
+                if (!pacer.acquire()) {
+                    stopping = true;
+                    break;
+                }
+
+                pending.add(refreshAsync(rel.getDeviceUid()));
+                cursor = rel.getId();
+            }
+
+            // ============ 步骤 C: 本批写完后再读下一批 ============
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+            handled += pending.size();
+            log.debug("成长数据刷新进度: cursor={}, requested={}", cursor, pending.size());
+            if (!lease.renew()) {
+                log.warn("成长数据定时刷新锁已丢失，停止本次执行: cursor={}", cursor);
+                break;
+            }
+        }
+
+        if (handled > 0) {
+            log.info("成长数据定时刷新完成: requested={}", handled);
+        }
+        return handled;
+    }
+
+    /**
+     * 写入设备成长数据（上游失败的兜底结果不写入）
+     */
+    private void saveStats(String deviceUid, AiGrowthStatsVO stats) {
+        if (stats == null || !STATUS_SUCCESS.equals(stats.getStatus()) || stats.getData() == null) {
+            meterRegistry.counter("home.growth.refresh", "result", RESULT_FALLBACK).increment();
+            return;
+        }
+        try {
+            AiGrowthStatsVO.GrowthStatsData data = stats.getData();
+            int updated = userDeviceRelMapper.updateGrowthStatsByDeviceUid(deviceUid, data.getDeviceLevel(),
+                    data.intimacyPercentage(), objectMapper.writeValueAsString(data), LocalDateTime.now());
+            meterRegistry.counter("home.growth.refresh", "result", RESULT_SUCCESS).increment();
+            log.debug("更新设备成长数据缓存: deviceUid={}, updated={}", deviceUid, updated);
+        } catch (Exception e) {
+            meterRegistry.counter("home.growth.refresh", "result", RESULT_FAILED).increment();
+            log.error("写入设备成长数据缓存失败: deviceUid={}", deviceUid, e);
+        }
+    }
+
+    /**
+     * 应用关闭时停止定时刷新（当前批写完后退出）
+     */
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+    }
+}
@@ -0,0 +1,494 @@
+package com.aiqutepets.service.impl;
+
+import com.aiqutepets.config.HomeConfig;
+import com.aiqutepets.dto.HomeIndexDTO;
+import com.aiqutepets.entity.DeviceInfo;
+import com.aiqutepets.entity.UserDeviceRel;
+import com.aiqutepets.mapper.UserDeviceRelMapper;
+import com.aiqutepets.service.DeviceMqttService;
+import com.aiqutepets.service.GrowthStatsService;
+import com.aiqutepets.service.HomeService;
+import com.aiqutepets.service.ThirdPartyOtaService;
+import com.aiqutepets.util.DistributedLock;
+import com.aiqutepets.vo.AiGrowthStatsVO;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 首页聚合服务实现类
+ *
+ * <p>
+ * 成长数据（由 {@link GrowthStatsService} 缓存在 user_device_rel.growth_stats_json）与今日心情变化缓慢，
+ * 按设备在 Redis 中缓存聚合结果快照
+ * {@value #SNAPSHOT_KEY_PREFIX}{uid}（HASH：快照 JSON、刷新时间、心情日期），采用 stale-while-revalidate：
+ * </p>
+ * <ul>
+ * <li>刷新后 home.snapshot-fresh-seconds 内：直接返回快照</li>
+ * <li>此后到 home.snapshot-stale-seconds（键过期）之前：直接返回快照，同时在后台刷新一次；
+ * 多个请求/节点通过 {@value #REFRESH_LOCK_KEY_PREFIX}{uid} 保证同一设备同一时刻只有一个刷新</li>
+ * <li>无快照：同步请求上游聚合，并写入快照</li>
+ * </ul>
+ *
+ * <p>
+ * 快照只包含设备维度的数据；昵称、头像、陪伴天数、徽章取自当前用户的绑定关系，在线状态与电量每次从 Redis 实时读取。
+ * 跨天后快照中的心情已过期：数据库中已有今日心情时用其替换并后台刷新，否则按无快照处理。
+ * 上游成长数据获取失败时不写快照，避免用降级数据覆盖。
+ * </p>
+ *
+ * <p>
+ * 徽章按用户保存在各自的 user_device_rel.current_badge，每次请求（快照命中、后台刷新中或无快照）都用返回的等级与进度
+ * 对当前用户判定：满足解锁条件且该用户尚无徽章时写入，写入成功的那次请求返回 newlyUnlocked=true 弹窗。
+ * 后台刷新不判定徽章，不会替用户"消费"掉首次解锁。
+ * </p>
+ *
+ * <p>
+ * 指标：home.snapshot{result=fresh|stale|miss}。
+ * </p>
+ */
+@Slf4j
+@Service
+public class HomeServiceImpl implements HomeService {
+
+    private static final String SNAPSHOT_KEY_PREFIX = "home:snapshot:";
+    private static final String REFRESH_LOCK_KEY_PREFIX = "home:snapshot:refreshing:";
+
+    private static final String FIELD_SNAPSHOT = "snapshot";
+    private static final String FIELD_REFRESHED_AT = "refreshedAt";
+    private static final String FIELD_MOOD_DATE = "moodDate";
+
+    private static final String RESULT_FRESH = "fresh";
+    private static final String RESULT_STALE = "stale";
+    private static final String RESULT_MISS = "miss";
+
+    /**
+     * 目标徽章名称
+     */
+    private static final String TARGET_BADGE = "萌发的芽鞘";
+
+    @Autowired
+    private UserDeviceRelMapper userDeviceRelMapper;
+
+    @Autowired
+    private ThirdPartyOtaService thirdPartyOtaService;
+
+    @Autowired
+    private DeviceMqttService deviceMqttService;
+
+    @Autowired
+    private GrowthStatsService growthStatsService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private DistributedLock distributedLock;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private HomeConfig homeConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ThreadPoolTaskExecutor upstreamWriteBackExecutor;
+
+    @Override
+    public HomeIndexDTO getHomeIndex(UserDeviceRel currentDevice, DeviceInfo deviceInfo) {
+        String deviceUid = currentDevice.getDeviceUid();
+        recordHomeView(currentDevice);
+
+        // ============ 步骤 A: 读取设备快照 ============
+        HomeIndexDTO deviceData = readSnapshot(currentDevice, deviceInfo);
+        CompletableFuture<HomeIndexDTO> aggregateFuture = null;
+        if (deviceData == null) {
+            // 无快照：同步聚合，上游请求发出后在当前线程读取实时状态
+            meterRegistry.counter("home.snapshot", "result", RESULT_MISS).increment();
+            aggregateFuture = aggregateAsync(currentDevice, deviceInfo);
+        }
+
+        // ============ 步骤 B: 从 Redis 获取实时状态 ============
+        Boolean isOnline = false;
+        Integer battery = 0;
+
+        try {
+            String statusJson = deviceMqttService.getDeviceRealtimeStatus(deviceUid);
+            if (statusJson != null) {
+                JsonNode statusNode = objectMapper.readTree(statusJson);
+                isOnline = true; // Redis 有数据表示在线
+                if (statusNode.has("bat")) {
+                    battery = statusNode.get("bat").asInt();
+                }
+            }
+        } catch (Exception e) {
+            log.warn("获取设备实时状态失败: deviceUid={}", deviceUid, e);
+        }
+
+        if (aggregateFuture != null) {
+            deviceData = aggregateFuture.join();
+        }
+
+        // ============ 步骤 C: 徽章解锁判定（按当前用户） ============
+        String currentBadge = currentDevice.getCurrentBadge();
+        boolean newlyUnlocked = false;
+        if ((currentBadge == null || currentBadge.isEmpty())
+                && isBadgeUnlockable(deviceData.getIntimacyLevel(), deviceData.getIntimacyScore())) {
+            newlyUnlocked = unlockBadge(currentDevice);
+            currentBadge = TARGET_BADGE;
+        }
+
+        // ============ 步骤 D: 计算陪伴天数 ============
+        Long accompanyDays = 1L; // 默认第1天
+        if (currentDevice.getCreateTime() != null) {
+            LocalDate bindDate = currentDevice.getCreateTime().toLocalDate();
+            long daysDiff = ChronoUnit.DAYS.between(bindDate, LocalDate.now());
+            accompanyDays = daysDiff + 1; // 绑定当天算第1天
+        }
+
+        // ============ 步骤 E: 组装返回 DTO ============
+        String nickname = currentDevice.getDeviceNickname();
+        if (nickname == null || nickname.isEmpty()) {
+            nickname = deviceInfo.getProductModel(); // 使用产品型号作为默认昵称
+        }
+
+        return HomeIndexDTO.builder()
+                .deviceUid(deviceUid)
+                .nickname(nickname)
+                .avatar(currentDevice.getDeviceAvatar())
+                .productModel(deviceInfo.getProductModel())
+                .intimacyLevel(deviceData.getIntimacyLevel())
+                .intimacyScore(deviceData.getIntimacyScore())
+                .currentBadge(currentBadge)
+                .newlyUnlocked(newlyUnlocked)
+                .stats(deviceData.getStats())
+                .isOnline(isOnline)
+                .battery(battery)
+                .accompanyDays(accompanyDays)
+                .dailyMood(deviceData.getDailyMood())
+                .build();
+    }
+
+    /**
+     * 记录首页访问时间，供心情预生成、成长数据定时刷新判定近期活跃；每个绑定关系每天最多写一次
+     */
+    private void recordHomeView(UserDeviceRel currentDevice) {
+        LocalDate today = LocalDate.now();
+        LocalDateTime lastHomeView = currentDevice.getLastHomeView();
+        if (lastHomeView != null && !lastHomeView.toLocalDate().isBefore(today)) {
+            return;
+        }
+        try {
+            userDeviceRelMapper.updateLastHomeView(currentDevice.getId(), LocalDateTime.now(), today);
+        } catch (RuntimeException e) {
+            log.warn("记录首页访问时间失败: deviceUid={}, error={}", currentDevice.getDeviceUid(), e.getMessage());
+        }
+    }
+
+    /**
+     * 读取设备快照；过了新鲜期时触发后台刷新
+     *
+     * @return 设备维度数据，无可用快照时返回 null
+     */
+    private HomeIndexDTO readSnapshot(UserDeviceRel currentDevice, DeviceInfo deviceInfo) {
+        String deviceUid = currentDevice.getDeviceUid();
+        Map<Object, Object> state;
+        HomeIndexDTO snapshot;
+        Long refreshedAt;
+        try {
+            state = stringRedisTemplate.opsForHash().entries(SNAPSHOT_KEY_PREFIX + deviceUid);
+            Object json = state.get(FIELD_SNAPSHOT);
+            if (json == null) {
+                return null;
+            }
+            snapshot = objectMapper.readValue(json.toString(), HomeIndexDTO.class);
+            // 刷新时间缺失按过期处理；格式异常说明快照已损坏，与反序列化失败一样按无快照处理
+            Object rawRefreshedAt = state.get(FIELD_REFRESHED_AT);
+            refreshedAt = rawRefreshedAt == null ? null : Long.valueOf(rawRefreshedAt.toString());
+        } catch (Exception e) {
+            log.warn("读取首页快照失败，同步聚合: deviceUid={}, error={}", deviceUid, e.getMessage());
+            return null;
+        }
+
+        boolean fresh = refreshedAt != null && System.currentTimeMillis() - refreshedAt
+                < TimeUnit.SECONDS.toMillis(homeConfig.getSnapshotFreshSeconds());
+
+        // 跨天：快照中的心情已过期，数据库已有今日心情时替换，否则按无快照处理
+        LocalDate today = LocalDate.now();
+        Object moodDate = state.get(FIELD_MOOD_DATE);
+        if (moodDate == null || !today.toString().equals(moodDate.toString())) {
+            if (!isTodayMoodCached(currentDevice, today)) {
+                return null;
+            }
+            snapshot.setDailyMood(currentDevice.getLastMoodContent());
+            fresh = false;
+        }
+
+        if (fresh) {
+            meterRegistry.counter("home.snapshot", "result", RESULT_FRESH).increment();
+        } else {
+            meterRegistry.counter("home.snapshot", "result", RESULT_STALE).increment();
+            refreshInBackground(currentDevice, deviceInfo);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 后台刷新快照（同一设备同一时刻只有一个刷新）
+     */
+    private void refreshInBackground(UserDeviceRel currentDevice, DeviceInfo deviceInfo) {
+        String deviceUid = currentDevice.getDeviceUid();
+        DistributedLock.Lease lease = distributedLock.tryAcquire(REFRESH_LOCK_KEY_PREFIX + deviceUid,
+                Duration.ofSeconds(homeConfig.getSnapshotRefreshLockSeconds()));
+        if (lease == null) {
+            return;
+        }
+
+        log.debug("后台刷新首页快照: deviceUid={}", deviceUid);
+        aggregateAsync(currentDevice, deviceInfo).whenComplete((result, e) -> {
+            if (e != null) {
+                log.error("后台刷新首页快照失败: deviceUid={}", deviceUid, e);
+            }
+            lease.close();
+        });
+    }
+
+    /**
+     * 并发获取成长数据与今日心情，合并后更新数据库缓存并写入快照
+     *
+     * <p>
+     * 需要请求上游时两者共用一个截止时间，耗时取较慢者；任一部分失败或超时使用 user_device_rel 中的缓存值。
+     * 合并及写库在回写线程池中执行，不占用超时调度线程与上游响应解析线程。
+     * </p>
+     *
+     * @return 设备维度数据（等级、进度、五维数据、今日心情）
+     */
+    private CompletableFuture<HomeIndexDTO> aggregateAsync(UserDeviceRel currentDevice, DeviceInfo deviceInfo) {
+        String deviceUid = currentDevice.getDeviceUid();
+        String secretKey = deviceInfo.getSecretKey();
+        long upstreamTimeout = homeConfig.getUpstreamTimeout();
+
+        // 成长数据优先读取 growth_stats_json，过期时后台刷新；尚未缓存时请求上游并写入
+        AiGrowthStatsVO cachedStats = growthStatsService.getCachedStats(currentDevice);
+        CompletableFuture<AiGrowthStatsVO> growthFuture;
+        if (cachedStats != null) {
+            growthFuture = CompletableFuture.completedFuture(cachedStats);
+            if (isGrowthStatsExpired(currentDevice)) {
+                growthStatsService.refreshAsync(deviceUid);
+            }
+        } else {
+            growthFuture = growthStatsService.refreshAsync(deviceUid)
+                    .thenApply(growthStats -> syncRefreshedGrowth(currentDevice, growthStats))
+                    .completeOnTimeout(null, upstreamTimeout, TimeUnit.MILLISECONDS);
+        }
+
+        // 今日心情 (Cache-Aside 策略)：命中数据库缓存时不请求上游
+        LocalDate today = LocalDate.now();
+        boolean moodCached = isTodayMoodCached(currentDevice, today);
+        CompletableFuture<String> moodFuture = moodCached
+                ? CompletableFuture.completedFuture(currentDevice.getLastMoodContent())
+                : thirdPartyOtaService.getDeviceTodayMoodAsync(deviceUid, secretKey)
+                        .completeOnTimeout(null, upstreamTimeout, TimeUnit.MILLISECONDS);
+
+        return growthFuture.thenCombineAsync(moodFuture,
+                (growthStats, mood) -> merge(currentDevice, growthStats, moodCached, mood, today),
+                upstreamWriteBackExecutor);
+    }
+
+    private HomeIndexDTO merge(UserDeviceRel currentDevice, AiGrowthStatsVO growthStats, boolean moodCached,
+            String mood, LocalDate today) {
+        String deviceUid = currentDevice.getDeviceUid();
+        Integer cachedLevel = currentDevice.getIntimacyLevel();
+        Integer cachedScore = currentDevice.getIntimacyScore();
+        boolean moodRefreshed = false;
+
+        // 先用数据库缓存作为默认值
+        Integer intimacyLevel = currentDevice.getIntimacyLevel() != null ? currentDevice.getIntimacyLevel() : 1;
+        Integer intimacyScore = currentDevice.getIntimacyScore() != null ? currentDevice.getIntimacyScore() : 0;
+        boolean growthValid = false;
+        Map<String, Integer> stats = new HashMap<>();
+
+        // ============ 步骤 1: 处理成长数据 ============
+        try {
+            if (growthStats != null && "success".equals(growthStats.getStatus()) && growthStats.getData() != null) {
+                AiGrowthStatsVO.GrowthStatsData data = growthStats.getData();
+                growthValid = true;
+
+                // 获取等级
+                Integer aiLevel = data.getDeviceLevel();
+                if (aiLevel != null) {
+                    intimacyLevel = aiLevel;
+                }
+
+                // 计算亲密度百分比（与后台刷新写入 intimacy_score 的口径一致）
+                Integer percentage = data.intimacyPercentage();
+                if (percentage != null) {
+                    intimacyScore = percentage;
+                }
+
+                AiGrowthStatsVO.LevelValues currentValues = data.getCurrentLevelValues();
+                if (currentValues != null && data.getNextLevelRequirements() != null) {
+                    // 填充五维数据
+                    stats.put("intimacy", currentValues.getIntimacyValue());
+                    stats.put("companion", currentValues.getCompanionValue());
+                    stats.put("emotion", currentValues.getEmotionValue());
+                    stats.put("affection", currentValues.getAffectionValue());
+                    stats.put("energy", currentValues.getEnergyValue());
+                }
+
+                // 更新数据库缓存（徽章由请求线程按当前用户判定，见 getHomeIndex）
+                currentDevice.setIntimacyLevel(intimacyLevel);
+                currentDevice.setIntimacyScore(intimacyScore);
+
+            } else if (growthStats == null) {
+                log.warn("AI 成长数据查询超时，使用数据库缓存: deviceUid={}", deviceUid);
+            } else {
+                log.warn("AI 接口返回数据无效，使用数据库缓存: deviceUid={}", deviceUid);
+            }
+
+        } catch (Exception e) {
+            growthValid = false;
+            log.error("调用 AI 接口失败，降级使用缓存数据: deviceUid={}", deviceUid, e);
+        }
+
+        // ============ 步骤 2: 处理今日心情 ============
+        String dailyMood = mood;
+        boolean moodToday = true;
+        if (moodCached) {
+            log.info("今日心情命中缓存: deviceUid={}", deviceUid);
+        } else if (dailyMood == null) {
+            // 超时：沿用上次缓存的文案，不写入今日日期，下次访问重新获取
+            String cachedMoodContent = currentDevice.getLastMoodContent();
+            dailyMood = cachedMoodContent != null && !cachedMoodContent.isEmpty()
+                    ? cachedMoodContent
+                    : ThirdPartyOtaService.DEFAULT_MOOD_CONTENT;
+            moodToday = false;
+            log.warn("今日心情查询超时，使用缓存文案: deviceUid={}", deviceUid);
+        } else {
+            // 更新数据库缓存
+            currentDevice.setLastMoodDate(today);
+            currentDevice.setLastMoodContent(dailyMood);
+            moodRefreshed = true;
+            log.info("今日心情已刷新: deviceUid={}, mood={}", deviceUid, dailyMood);
+        }
+
+        // ============ 步骤 3: 仅在缓存字段变化时更新数据库 ============
+        // 只写变化的列，并以读取时的旧值为条件，避免较旧的结果覆盖其他请求/后台刷新已写入的新值
+        boolean levelChanged = !Objects.equals(cachedLevel, currentDevice.getIntimacyLevel());
+        boolean scoreChanged = !Objects.equals(cachedScore, currentDevice.getIntimacyScore());
+        if (levelChanged || scoreChanged) {
+            int updated = userDeviceRelMapper.updateGrowthCache(currentDevice.getId(),
+                    levelChanged ? intimacyLevel : null,
+                    scoreChanged ? intimacyScore : null,
+                    cachedLevel, cachedScore);
+            log.info("更新设备成长数据缓存: deviceUid={}, level={}, score={}, updated={}",
+                    deviceUid, intimacyLevel, intimacyScore, updated);
+        }
+        if (moodRefreshed) {
+            int updated = userDeviceRelMapper.updateMoodCache(currentDevice.getId(), today, dailyMood);
+            log.info("更新设备今日心情缓存: deviceUid={}, updated={}", deviceUid, updated);
+        }
+
+        HomeIndexDTO deviceData = HomeIndexDTO.builder()
+                .intimacyLevel(intimacyLevel)
+                .intimacyScore(intimacyScore)
+                .stats(stats)
+                .dailyMood(dailyMood)
+                .build();
+
+        // ============ 步骤 4: 写入快照 ============
+        if (growthValid) {
+            saveSnapshot(deviceUid, deviceData, moodToday ? today : null);
+        }
+        return deviceData;
+    }
+
+    /**
+     * 徽章解锁条件: (level==1 && percentage>=100) || level>1
+     */
+    private static boolean isBadgeUnlockable(Integer intimacyLevel, Integer intimacyScore) {
+        if (intimacyLevel == null) {
+            return false;
+        }
+        return intimacyLevel > 1 || (intimacyLevel == 1 && intimacyScore != null && intimacyScore >= 100);
+    }
+
+    /**
+     * 为当前用户写入徽章（仅当该绑定关系尚无徽章时）
+     *
+     * @return 是否由本次请求首次解锁
+     */
+    private boolean unlockBadge(UserDeviceRel currentDevice) {
+        try {
+            if (userDeviceRelMapper.unlockBadge(currentDevice.getId(), TARGET_BADGE) == 0) {
+                return false;
+            }
+        } catch (RuntimeException e) {
+            log.error("写入徽章失败，下次访问重新判定: deviceUid={}, relId={}", currentDevice.getDeviceUid(),
+                    currentDevice.getId(), e);
+            return false;
+        }
+        currentDevice.setCurrentBadge(TARGET_BADGE);
+        log.info("徽章解锁: deviceUid={}, relId={}, badge={}", currentDevice.getDeviceUid(), currentDevice.getId(),
+                TARGET_BADGE);
+        return true;
+    }
+
+    private void saveSnapshot(String deviceUid, HomeIndexDTO deviceData, LocalDate moodDate) {
+        String snapshotKey = SNAPSHOT_KEY_PREFIX + deviceUid;
+        try {
+            Map<String, String> state = new HashMap<>();
+            state.put(FIELD_SNAPSHOT, objectMapper.writeValueAsString(deviceData));
+            state.put(FIELD_REFRESHED_AT, String.valueOf(System.currentTimeMillis()));
+            state.put(FIELD_MOOD_DATE, moodDate != null ? moodDate.toString() : "");
+            stringRedisTemplate.opsForHash().putAll(snapshotKey, state);
+            stringRedisTemplate.expire(snapshotKey, homeConfig.getSnapshotStaleSeconds(), TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("写入首页快照失败: deviceUid={}, error={}", deviceUid, e.getMessage());
+        }
+    }
+
+    private boolean isGrowthStatsExpired(UserDeviceRel currentDevice) {
+        return currentDevice.getGrowthStatsTime()
+                .isBefore(LocalDateTime.now().minusSeconds(homeConfig.getGrowthStatsMaxAgeSeconds()));
+    }
+
+    /**
+     * 按需刷新已把等级、进度写入数据库，同步到当前绑定关系，合并时只需判定徽章
+     */
+    private static AiGrowthStatsVO syncRefreshedGrowth(UserDeviceRel currentDevice, AiGrowthStatsVO growthStats) {
+        if (growthStats != null && "success".equals(growthStats.getStatus()) && growthStats.getData() != null) {
+            AiGrowthStatsVO.GrowthStatsData data = growthStats.getData();
+            if (data.getDeviceLevel() != null) {
+                currentDevice.setIntimacyLevel(data.getDeviceLevel());
+            }
+            if (data.intimacyPercentage() != null) {
+                currentDevice.setIntimacyScore(data.intimacyPercentage());
+            }
+        }
+        return growthStats;
+    }
+
+    private static boolean isTodayMoodCached(UserDeviceRel currentDevice, LocalDate today) {
+        String cachedMoodContent = currentDevice.getLastMoodContent();
+        return today.equals(currentDevice.getLastMoodDate())
+                && cachedMoodContent != null && !cachedMoodContent.isEmpty();
+    }
+}
@@ -0,0 +1,243 @@
+package com.aiqutepets.service.impl;
+
+import com.aiqutepets.config.HomeConfig;
+import com.aiqutepets.entity.DeviceInfo;
+import com.aiqutepets.entity.UserDeviceRel;
+import com.aiqutepets.mapper.UserDeviceRelMapper;
+import com.aiqutepets.service.DeviceInfoService;
+import com.aiqutepets.service.MoodPregenService;
+import com.aiqutepets.service.ThirdPartyOtaService;
+import com.aiqutepets.util.DistributedLock;
+import com.aiqutepets.util.RatePacer;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 今日心情预生成服务实现类
+ *
+ * <p>
+ * user_device_rel 的心情缓存（last_mood_date）每天零点对所有设备同时失效，早高峰的首页访问会集中同步请求上游心情接口。
+ * 本任务在零点后按 home.mood-pregen-cron 定时执行，为近期活跃（home.mood-pregen-active-days 天内打开过首页，
+ * 以首页写入的 last_home_view 判定，不受本任务写入的心情日期影响）的当前设备预取今日心情：
+ * </p>
+ * <ul>
+ * <li>按 user_device_rel.id 游标分批读取（每批 home.mood-pregen-chunk-size 条），同一批内同一设备只请求一次，
+ * 结果写入该设备所有绑定关系</li>
+ * <li>以 home.mood-pregen-permits-per-second 匀速发出异步请求，为首页实时请求保留上游配额；
+ * 上游失败返回兜底文案时不写入，留给首页访问时重新获取</li>
+ * <li>一批全部写完后才把游标记入 Redis {@value #PROGRESS_KEY_PREFIX}{yyyyMMdd}，
+ * 节点重启或到达 home.mood-pregen-end-hour 后停止，下次调度从断点继续；当天完成后不再执行</li>
+ * </ul>
+ *
+ * <p>
+ * 多节点部署时通过 Redis 锁 {@value #LOCK_KEY} 保证同一时刻只有一个节点执行；Redis 不可用时跳过本次调度。
+ * 重复处理是安全的：查询只选今天尚无心情的行，写入也只覆盖日期更早的心情。
+ * </p>
+ *
+ * <p>
+ * 指标：home.mood.pregen{result=success|fallback|failed}。
+ * </p>
+ */
+@Slf4j
+@Service
+public class MoodPregenServiceImpl implements MoodPregenService {
+
+    private static final String LOCK_KEY = "home:mood:pregen:lock";
+    private static final String PROGRESS_KEY_PREFIX = "home:mood:pregen:";
+
+    private static final String FIELD_CURSOR = "cursor";
+    private static final String FIELD_PROCESSED = "processed";
+    private static final String FIELD_DONE = "done";
+
+    private static final String RESULT_SUCCESS = "success";
+    private static final String RESULT_FALLBACK = "fallback";
+    private static final String RESULT_FAILED = "failed";
+
+    private static final Duration LOCK_TTL = Duration.ofMinutes(10);
+
+    private static final long PROGRESS_TTL_DAYS = 2;
+
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    @Autowired
+    private UserDeviceRelMapper userDeviceRelMapper;
+
+    @Autowired
+    private DeviceInfoService deviceInfoService;
+
+    @Autowired
+    private ThirdPartyOtaService thirdPartyOtaService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private DistributedLock distributedLock;
+
+    @Autowired
+    private HomeConfig homeConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ThreadPoolTaskExecutor upstreamWriteBackExecutor;
+
+    private volatile boolean stopping;
+
+    /**
+     * 定时预生成今日心情
+     */
+    @Scheduled(cron = "${home.mood-pregen-cron:0 5/10 0-5 * * ?}")
+    public void scheduledPregeneration() {
+        if (!Boolean.TRUE.equals(homeConfig.getMoodPregenEnabled())) {
+            return;
+        }
+        try {
+            pregenerateTodayMood();
+        } catch (RuntimeException e) {
+            log.error("今日心情预生成失败", e);
+        }
+    }
+
+    @Override
+    public int pregenerateTodayMood() {
+        try (DistributedLock.Lease lease = distributedLock.tryAcquire(LOCK_KEY, LOCK_TTL)) {
+            return lease == null ? 0 : runLocked(lease);
+        }
+    }
+
+    private int runLocked(DistributedLock.Lease lease) {
+        LocalDate today = LocalDate.now();
+        String progressKey = PROGRESS_KEY_PREFIX + today.format(DAY_FORMATTER);
+        Map<Object, Object> progress = stringRedisTemplate.opsForHash().entries(progressKey);
+        if (progress.containsKey(FIELD_DONE)) {
+            return 0;
+        }
+
+        long cursor = parseLong(progress.get(FIELD_CURSOR));
+        long processed = parseLong(progress.get(FIELD_PROCESSED));
+        LocalDate activeSince = today.minusDays(homeConfig.getMoodPregenActiveDays());
+        int chunkSize = Math.max(1, homeConfig.getMoodPregenChunkSize());
+        RatePacer pacer = new RatePacer(homeConfig.getMoodPregenPermitsPerSecond());
+        int handled = 0;
+        log.info("开始预生成今日心情: date={}, cursor={}, processed={}", today, cursor, processed);
+
+        while (true) {
+            if (stopping || LocalTime.now().getHour() >= homeConfig.getMoodPregenEndHour()) {
+                log.info("今日心情预生成暂停，下次从断点继续: cursor={}, processed={}", cursor, processed);
+                return handled;
+            }
+
+            // ============ 步骤 A: 读取下一批 ============
+            List<UserDeviceRel> chunk = userDeviceRelMapper.selectMoodPregenCandidates(activeSince, today, cursor,
+                    chunkSize);
+            if (chunk.isEmpty()) {
+                Map<String, String> done = new HashMap<>();
+                done.put(FIELD_DONE, "1");
+                stringRedisTemplate.opsForHash().putAll(progressKey, done);
+                stringRedisTemplate.expire(progressKey, PROGRESS_TTL_DAYS, TimeUnit.DAYS);
+                log.info("今日心情预生成完成: date={}, processed={}", today, processed);
+                return handled;
+            }
+
+            // ============ 步骤 B: 限速发出请求，同一批内同一设备只请求一次 ============
+            Set<String> requested = new HashSet<>();
+            List<CompletableFuture<Void>> pending = new ArrayList<>();
+            AtomicInteger saved = new AtomicInteger();
+            long lastId = cursor;
+            for (UserDeviceRel rel : chunk) {
+                if (stopping) {
+                    break;
+                }
+                String deviceUid = rel.getDeviceUid();
+                DeviceInfo deviceInfo = requested.add(deviceUid) ? deviceInfoService.getByDeviceUid(deviceUid) : null;
+                if (deviceInfo == null) {
+                    lastId = rel.getId();
+                    continue;
+                }
+
+                if (!pacer.acquire()) {
+                    stopping = true;
+                    break;
+                }
+
+                pending.add(thirdPartyOtaService.getDeviceTodayMoodAsync(deviceUid, deviceInfo.getSecretKey())
+                        .thenAcceptAsync(mood -> {
+                            if (saveMood(deviceUid, mood, today)) {
+                                saved.incrementAndGet();
+                            }
+                        }, upstreamWriteBackExecutor));
+                lastId = rel.getId();
+            }
+
+            // ============ 步骤 C: 本批写完后推进断点 ============
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+            cursor = lastId;
+            processed += saved.get();
+            handled += pending.size();
+
+            Map<String, String> checkpoint = new HashMap<>();
+            checkpoint.put(FIELD_CURSOR, String.valueOf(cursor));
+            checkpoint.put(FIELD_PROCESSED, String.valueOf(processed));
+            stringRedisTemplate.opsForHash().putAll(progressKey, checkpoint);
+            stringRedisTemplate.expire(progressKey, PROGRESS_TTL_DAYS, TimeUnit.DAYS);
+            log.debug("今日心情预生成进度: cursor={}, requested={}, saved={}", cursor, pending.size(), saved.get());
+            if (!lease.renew()) {
+                log.warn("今日心情预生成锁已丢失，停止本次执行: cursor={}, processed={}", cursor, processed);
+                return handled;
+            }
+        }
+    }
+
+    /**
+     * 写入设备今日心情（上游失败的兜底文案不写入）
+     */
+    private boolean saveMood(String deviceUid, String mood, LocalDate today) {
+        if (mood == null || ThirdPartyOtaService.DEFAULT_MOOD_CONTENT.equals(mood)) {
+            meterRegistry.counter("home.mood.pregen", "result", RESULT_FALLBACK).increment();
+            return false;
+        }
+        try {
+            userDeviceRelMapper.updateMoodCacheByDeviceUid(deviceUid, today, mood);
+            meterRegistry.counter("home.mood.pregen", "result", RESULT_SUCCESS).increment();
+            return true;
+        } catch (RuntimeException e) {
+            meterRegistry.counter("home.mood.pregen", "result", RESULT_FAILED).increment();
+            log.error("写入预生成心情失败: deviceUid={}", deviceUid, e);
+            return false;
+        }
+    }
+
+    private static long parseLong(Object value) {
+        return value == null ? 0L : Long.parseLong(value.toString());
+    }
+
+    /**
+     * 应用关闭时停止预生成（当前批写完后退出，断点保留）
+     */
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+    }
+}
@@ -0,0 +1,250 @@
+package com.aiqutepets.service.impl;
+
+import com.aiqutepets.config.OtaConfig;
+import com.aiqutepets.dto.OtaHistoryItemDTO;
+import com.aiqutepets.dto.OtaHistoryPageDTO;
+import com.aiqutepets.entity.DeviceOtaLog;
+import com.aiqutepets.mapper.DeviceOtaLogMapper;
+import com.aiqutepets.service.OtaLogService;
+import com.aiqutepets.util.OtaRawResponseStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * OTA 操作日志服务实现类
+ *
+ * <p>
+ * device_ota_log 按 create_time 以 RANGE COLUMNS 按月分区（分区名 pyyyyMM，末尾为 pmax），
+ * 维护任务每天执行一次：
+ * </p>
+ * <ul>
+ * <li>拆分 pmax，保证当月之后至少有 ota.log-partition-ahead-months 个月的分区</li>
+ * <li>删除早于保留期（ota.log-retention-months，含当月）的月分区，删除分区是元数据操作，不产生逐行删除的 I/O</li>
+ * <li>表未分区（旧库未迁移）时退化为按 create_time 分批 DELETE</li>
+ * <li>分批删除 ota_raw_response 中 last_seen 早于保留期的原始报文，避免日志删除后报文孤立堆积</li>
+ * </ul>
+ *
+ * <p>
+ * 多节点部署时通过 Redis 键 {@value #MAINTENANCE_KEY_PREFIX}{yyyyMMdd} 保证每天只有一个节点执行；
+ * Redis 不可用时照常执行（重复执行的 DDL 会失败并记录日志，不影响数据）。
+ * </p>
+ *
+ * <p>
+ * 历史查询使用 (create_time, id) 游标的 keyset 分页，配合 (device_uid, create_time) /
+ * (device_uid, action_type, create_time) 索引，每页只扫描本页行数，与历史数据量无关。
+ * </p>
+ */
+@Slf4j
+@Service
+public class OtaLogServiceImpl implements OtaLogService {
+
+    private static final String MAINTENANCE_KEY_PREFIX = "ota:log:maintenance:";
+
+    private static final String MAX_PARTITION = "pmax";
+
+    private static final Pattern MONTH_PARTITION = Pattern.compile("p(\\d{6})");
+
+    private static final DateTimeFormatter PARTITION_MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final DateTimeFormatter PARTITION_BOUND_FORMATTER = DateTimeFormatter
+            .ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final DateTimeFormatter CURSOR_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    @Autowired
+    private DeviceOtaLogMapper deviceOtaLogMapper;
+
+    @Autowired
+    private OtaRawResponseStore otaRawResponseStore;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private OtaConfig otaConfig;
+
+    @Override
+    public OtaHistoryPageDTO getHistory(String deviceUid, Integer actionType, String cursor, Integer size) {
+        int pageSize = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, otaConfig.getHistoryMaxPageSize());
+
+        LocalDateTime beforeTime = null;
+        Long beforeId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            int separator = cursor.indexOf('_');
+            try {
+                beforeTime = LocalDateTime.parse(cursor.substring(0, Math.max(0, separator)), CURSOR_TIME_FORMATTER);
+                beforeId = Long.parseLong(cursor.substring(separator + 1));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("cursor 格式错误");
+            }
+        }
+
+        // 多取一条判断是否还有下一页
+        List<DeviceOtaLog> rows = deviceOtaLogMapper.selectHistory(deviceUid, actionType, beforeTime, beforeId,
+                pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        List<OtaHistoryItemDTO> items = rows.stream()
+                .map(row -> OtaHistoryItemDTO.builder()
+                        .id(row.getId())
+                        .actionType(row.getActionType())
+                        .targetVersion(row.getTargetVersion())
+                        .statusCode(row.getStatusCode())
+                        .createTime(row.getCreateTime())
+                        .build())
+                .collect(Collectors.toList());
+
+        String nextCursor = null;
+        if (hasMore) {
+            DeviceOtaLog last = rows.get(rows.size() - 1);
+            nextCursor = last.getCreateTime().format(CURSOR_TIME_FORMATTER) + "_" + last.getId();
+        }
+        return OtaHistoryPageDTO.builder()
+                .list(items)
+                .hasMore(hasMore)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * 定时维护分区
+     */
+    @Scheduled(cron = "${ota.log-maintenance-cron:0 30 3 * * ?}")
+    public void scheduledMaintenance() {
+        if (!claimToday()) {
+            return;
+        }
+        try {
+            maintainPartitions();
+        } catch (RuntimeException e) {
+            log.error("OTA日志分区维护失败", e);
+        }
+    }
+
+    @Override
+    public void maintainPartitions() {
+        YearMonth currentMonth = YearMonth.now();
+        YearMonth oldestKept = currentMonth.minusMonths(Math.max(1, otaConfig.getLogRetentionMonths()) - 1);
+        LocalDateTime keptSince = oldestKept.atDay(1).atStartOfDay();
+
+        List<String> partitionNames = deviceOtaLogMapper.selectPartitionNames();
+        if (partitionNames.isEmpty()) {
+            purgeUnpartitioned(keptSince);
+        } else {
+            maintainMonthPartitions(partitionNames, currentMonth, oldestKept);
+        }
+
+        // ============ 步骤 C: 删除不再被引用的原始报文 ============
+        long purged = otaRawResponseStore.purgeBefore(keptSince, Math.max(1, otaConfig.getLogPurgeBatchSize()));
+        if (purged > 0) {
+            log.info("OTA原始报文删除 {} 条（日志保留期起点 {}）", purged, keptSince);
+        }
+    }
+
+    /**
+     * 追加未来月分区并删除过期月分区
+     */
+    private void maintainMonthPartitions(List<String> partitionNames, YearMonth currentMonth, YearMonth oldestKept) {
+        // ============ 步骤 A: 追加未来月分区 ============
+        YearMonth latest = null;
+        List<String> expired = new ArrayList<>();
+        for (String name : partitionNames) {
+            YearMonth month = parsePartitionMonth(name);
+            if (month == null) {
+                continue;
+            }
+            if (latest == null || month.isAfter(latest)) {
+                latest = month;
+            }
+            if (month.isBefore(oldestKept)) {
+                expired.add(name);
+            }
+        }
+
+        YearMonth aheadUntil = currentMonth.plusMonths(otaConfig.getLogPartitionAheadMonths());
+        Map<String, String> toAdd = new LinkedHashMap<>();
+        for (YearMonth month = latest != null ? latest.plusMonths(1) : currentMonth;
+                !month.isAfter(aheadUntil); month = month.plusMonths(1)) {
+            toAdd.put("p" + month.format(PARTITION_MONTH_FORMATTER),
+                    month.plusMonths(1).atDay(1).atStartOfDay().format(PARTITION_BOUND_FORMATTER));
+        }
+        if (!toAdd.isEmpty()) {
+            if (partitionNames.contains(MAX_PARTITION)) {
+                deviceOtaLogMapper.addPartitions(toAdd);
+                log.info("OTA日志新增分区: {}", toAdd.keySet());
+            } else {
+                log.warn("OTA日志表缺少 {} 分区，无法追加分区: {}", MAX_PARTITION, toAdd.keySet());
+            }
+        }
+
+        // ============ 步骤 B: 删除过期分区 ============
+        if (!expired.isEmpty()) {
+            deviceOtaLogMapper.dropPartitions(expired);
+            log.info("OTA日志删除过期分区: {}，保留 {} 起的数据", expired, oldestKept);
+        }
+    }
+
+    /**
+     * 表未分区时分批删除过期日志
+     */
+    private void purgeUnpartitioned(LocalDateTime before) {
+        int batchSize = Math.max(1, otaConfig.getLogPurgeBatchSize());
+        long total = 0;
+        int deleted;
+        do {
+            deleted = deviceOtaLogMapper.deleteBefore(before, batchSize);
+            total += deleted;
+        } while (deleted >= batchSize);
+        log.info("OTA日志表未分区，按时间删除 {} 之前的日志 {} 条", before, total);
+    }
+
+    /**
+     * 抢占当天的维护任务
+     */
+    private boolean claimToday() {
+        try {
+            Boolean claimed = stringRedisTemplate.opsForValue().setIfAbsent(
+                    MAINTENANCE_KEY_PREFIX + LocalDate.now().format(DAY_FORMATTER), "1", 1, TimeUnit.DAYS);
+            return Boolean.TRUE.equals(claimed);
+        } catch (RuntimeException e) {
+            log.warn("OTA日志分区维护抢占 Redis 键失败，本节点照常执行: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    private static YearMonth parsePartitionMonth(String name) {
+        Matcher matcher = MONTH_PARTITION.matcher(name);
+        if (!matcher.matches()) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(matcher.group(1), PARTITION_MONTH_FORMATTER);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.aiqutepets.service.impl;
+
+import com.aiqutepets.config.OtaConfig;
+import com.aiqutepets.enums.OtaStatusEnum;
+import com.aiqutepets.service.OtaProgressStreamService;
+import com.aiqutepets.service.OtaTrackerService;
+import com.aiqutepets.vo.OtaStatusVO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OTA 升级进度推送服务实现类
+ *
+ * <p>
+ * 进度数据来自 {@link OtaTrackerService}（服务端集中轮询上游后写入 Redis），推送本身不会产生上游调用。
+ * 同一设备的多个连接共用一次 Redis 读取：定时任务对每个被订阅的设备读取一次跟踪状态，
+ * 有变化时推送给该设备的全部连接；长时间无变化时发送心跳注释，及时发现已断开的连接。
+ * </p>
+ */
+@Slf4j
+@Service
+public class OtaProgressStreamServiceImpl implements OtaProgressStreamService {
+
+    private static final String EVENT_PROGRESS = "progress";
+
+    /**
+     * 无变化时发送心跳的间隔（毫秒）
+     */
+    private static final long HEARTBEAT_INTERVAL_MILLIS = 15_000;
+
+    private final Map<String, DeviceStream> streams = new ConcurrentHashMap<>();
+
+    @Autowired
+    private OtaTrackerService otaTrackerService;
+
+    @Autowired
+    private OtaConfig otaConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("ota.progress.streams", streams,
+                map -> map.values().stream().mapToInt(stream -> stream.emitters.size()).sum())
+                .description("当前打开的 OTA 进度推送连接数")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public SseEmitter open(String deviceUid, OtaStatusVO currentStatus) {
+        SseEmitter emitter = new SseEmitter(TimeUnit.SECONDS.toMillis(otaConfig.getProgressStreamTimeoutSeconds()));
+        if (!send(emitter, currentStatus)) {
+            return emitter;
+        }
+        if (isFinished(currentStatus.getStatus()) || !otaTrackerService.isTracked(deviceUid)) {
+            // 已结束或未在升级中，没有后续进度可推送
+            emitter.complete();
+            return emitter;
+        }
+
+        DeviceStream stream = streams.compute(deviceUid, (uid, existing) -> {
+            DeviceStream target = existing != null ? existing : new DeviceStream(currentStatus);
+            target.emitters.add(emitter);
+            return target;
+        });
+        Runnable remove = () -> removeEmitter(deviceUid, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        log.info("打开OTA进度推送: deviceUid={}, connections={}", deviceUid, stream.emitters.size());
+        return emitter;
+    }
+
+    /**
+     * 定时检查被订阅设备的跟踪状态，变化时推送
+     */
+    @Scheduled(fixedDelayString = "${ota.progress-stream-interval-millis:1000}")
+    public void dispatch() {
+        long now = System.currentTimeMillis();
+        streams.forEach((deviceUid, stream) -> {
+            OtaStatusVO status = otaTrackerService.getTrackedStatus(deviceUid);
+            boolean tracked = otaTrackerService.isTracked(deviceUid);
+
+            if (status != null && isChanged(stream.lastSent, status)) {
+                stream.lastSent = status;
+                stream.lastSentAt = now;
+                broadcast(stream, status);
+            } else if (now - stream.lastSentAt >= HEARTBEAT_INTERVAL_MILLIS) {
+                stream.lastSentAt = now;
+                heartbeat(stream);
+            }
+
+            if (!tracked || (status != null && isFinished(status.getStatus()))) {
+                log.info("OTA升级结束，关闭进度推送: deviceUid={}, status={}", deviceUid,
+                        status != null ? status.getStatus() : null);
+                streams.remove(deviceUid, stream);
+                stream.emitters.forEach(SseEmitter::complete);
+            }
+        });
+    }
+
+    private void broadcast(DeviceStream stream, OtaStatusVO status) {
+        for (SseEmitter emitter : stream.emitters) {
+            if (!send(emitter, status)) {
+                stream.emitters.remove(emitter);
+            }
+        }
+    }
+
+    private void heartbeat(DeviceStream stream) {
+        for (SseEmitter emitter : stream.emitters) {
+            try {
+                emitter.send(SseEmitter.event().comment("ping"));
+            } catch (Exception e) {
+                stream.emitters.remove(emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    /**
+     * 推送一次状态（不含原始报文）；连接已断开时返回 false
+     */
+    private boolean send(SseEmitter emitter, OtaStatusVO status) {
+        OtaStatusVO payload = new OtaStatusVO();
+        BeanUtils.copyProperties(status, payload);
+        payload.setRawResponse(null);
+        try {
+            emitter.send(SseEmitter.event().name(EVENT_PROGRESS).data(payload, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (Exception e) {
+            log.debug("OTA进度推送失败，连接可能已断开: deviceUid={}, error={}", status.getDeviceUid(), e.getMessage());
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void removeEmitter(String deviceUid, SseEmitter emitter) {
+        streams.computeIfPresent(deviceUid, (uid, stream) -> {
+            stream.emitters.remove(emitter);
+            return stream.emitters.isEmpty() ? null : stream;
+        });
+    }
+
+    private static boolean isChanged(OtaStatusVO previous, OtaStatusVO current) {
+        return previous == null
+                || !Objects.equals(previous.getStatus(), current.getStatus())
+                || !Objects.equals(previous.getProgress(), current.getProgress());
+    }
+
+    /**
+     * 升级成功(5) 或升级失败(6，含超时保护强制置为失败)
+     */
+    private static boolean isFinished(Integer code) {
+        return code != null && (code == OtaStatusEnum.SUCCESS.getCode() || code == OtaStatusEnum.FAIL.getCode());
+    }
+
+    /**
+     * 单个设备的推送连接
+     */
+    private static final class DeviceStream {
+
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        private volatile OtaStatusVO lastSent;
+        private volatile long lastSentAt = System.currentTimeMillis();
+
+        DeviceStream(OtaStatusVO initial) {
+            this.lastSent = initial;
+        }
+    }
+}
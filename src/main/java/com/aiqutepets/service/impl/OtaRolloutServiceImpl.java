@@ -0,0 +1,456 @@
+package com.aiqutepets.service.impl;
+
+import com.aiqutepets.common.UpstreamUnavailableException;
+import com.aiqutepets.config.OtaConfig;
+import com.aiqutepets.dto.OtaRolloutCreateRequest;
+import com.aiqutepets.entity.DeviceInfo;
+import com.aiqutepets.entity.DeviceOtaLog;
+import com.aiqutepets.entity.OtaRollout;
+import com.aiqutepets.entity.OtaRolloutDevice;
+import com.aiqutepets.enums.OtaStatusEnum;
+import com.aiqutepets.mapper.DeviceInfoMapper;
+import com.aiqutepets.mapper.OtaRolloutDeviceMapper;
+import com.aiqutepets.mapper.OtaRolloutMapper;
+import com.aiqutepets.service.DeviceInfoService;
+import com.aiqutepets.service.OtaRolloutService;
+import com.aiqutepets.service.OtaTrackerService;
+import com.aiqutepets.service.ThirdPartyOtaService;
+import com.aiqutepets.util.DistributedLock;
+import com.aiqutepets.util.OtaLogWriter;
+import com.aiqutepets.vo.OtaStatusVO;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OTA 分批灰度升级服务实现类
+ *
+ * <p>
+ * 调度任务每隔 ota.rollout-tick-millis 处理一次所有进行中的任务：
+ * </p>
+ * <ol>
+ * <li>回收升级中的设备：优先读取 {@link OtaTrackerService} 中的最新状态，未跟踪时直接查询上游；
+ * 升级成功时同步 device_info.firmware_version，失败、宽限期后仍未开始或超时计为失败</li>
+ * <li>（最近一次恢复之后）已结束设备数达到 ota.rollout-min-finished 且失败率达到阈值时自动暂停任务；
+ * 恢复任务时记录当前成功/失败数作为新的统计起点，否则恢复后的第一轮会因历史失败立即再次暂停</li>
+ * <li>下发下一批：数量取 每轮设备数、剩余并发名额（并发上限 - 升级中设备数）、本轮速率配额 三者最小值，
+ * 按 device_info.id 游标递增选取设备，重启后从游标处继续</li>
+ * <li>没有候选设备且没有升级中设备时任务完成</li>
+ * </ol>
+ *
+ * <p>
+ * 每回收或下发一台设备就把游标与计数写回任务表，调度中途异常不会丢失已处理设备的进度；
+ * 下发前检查本任务是否已有该设备的明细，游标未写回时重复选中的设备不会再次下发。
+ * </p>
+ *
+ * <p>
+ * 多节点部署时通过 Redis 锁 {@value #LOCK_KEY} 保证同一时刻只有一个节点调度；Redis 不可用时跳过本轮，
+ * 避免多个节点重复下发。每处理一台设备前续期锁，续期失败（锁已过期被其他节点取得）时立即停止本轮。上游限流/熔断拒绝（{@link UpstreamUnavailableException}）时本轮停止下发，游标不前移，下一轮重试。
+ * </p>
+ */
+@Slf4j
+@Service
+public class OtaRolloutServiceImpl implements OtaRolloutService {
+
+    private static final String LOCK_KEY = "ota:rollout:lock";
+
+    /**
+     * 系统操作人ID（device_ota_log.user_id 非空）
+     */
+    private static final long SYSTEM_USER_ID = 0L;
+
+    @Autowired
+    private OtaRolloutMapper otaRolloutMapper;
+
+    @Autowired
+    private OtaRolloutDeviceMapper otaRolloutDeviceMapper;
+
+    @Autowired
+    private DeviceInfoMapper deviceInfoMapper;
+
+    @Autowired
+    private DeviceInfoService deviceInfoService;
+
+    @Autowired
+    private OtaLogWriter otaLogWriter;
+
+    @Autowired
+    private ThirdPartyOtaService thirdPartyOtaService;
+
+    @Autowired
+    private OtaTrackerService otaTrackerService;
+
+    @Autowired
+    private DistributedLock distributedLock;
+
+    @Autowired
+    private OtaConfig otaConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    public OtaRollout create(OtaRolloutCreateRequest request) {
+        if (request.getProductModel() == null || request.getProductModel().isEmpty()) {
+            throw new RuntimeException("productModel 不能为空");
+        }
+        if (request.getTargetVersion() == null || request.getTargetVersion().isEmpty()) {
+            throw new RuntimeException("targetVersion 不能为空");
+        }
+
+        OtaRollout rollout = new OtaRollout();
+        rollout.setProductModel(request.getProductModel());
+        rollout.setFromVersion(request.getFromVersion());
+        rollout.setTargetVersion(request.getTargetVersion());
+        rollout.setStatus(OtaRollout.STATUS_RUNNING);
+        rollout.setWaveSize(positiveOrDefault(request.getWaveSize(), otaConfig.getRolloutDefaultWaveSize()));
+        rollout.setMaxConcurrent(
+                positiveOrDefault(request.getMaxConcurrent(), otaConfig.getRolloutDefaultMaxConcurrent()));
+        rollout.setRatePerMinute(
+                positiveOrDefault(request.getRatePerMinute(), otaConfig.getRolloutDefaultRatePerMinute()));
+        Integer threshold = request.getFailureThreshold() != null ? request.getFailureThreshold()
+                : otaConfig.getRolloutDefaultFailureThreshold();
+        if (threshold < 1 || threshold > 100) {
+            throw new RuntimeException("failureThreshold 必须在 1-100 之间");
+        }
+        rollout.setFailureThreshold(threshold);
+
+        otaRolloutMapper.insert(rollout);
+        log.info("创建OTA灰度升级任务: id={}, productModel={}, fromVersion={}, targetVersion={}, waveSize={}, "
+                + "maxConcurrent={}, ratePerMinute={}, failureThreshold={}%",
+                rollout.getId(), rollout.getProductModel(), rollout.getFromVersion(), rollout.getTargetVersion(),
+                rollout.getWaveSize(), rollout.getMaxConcurrent(), rollout.getRatePerMinute(), threshold);
+        return otaRolloutMapper.selectById(rollout.getId());
+    }
+
+    @Override
+    public List<OtaRollout> listAll() {
+        return otaRolloutMapper.selectAll();
+    }
+
+    @Override
+    public OtaRollout getById(Long id) {
+        return otaRolloutMapper.selectById(id);
+    }
+
+    @Override
+    public void pause(Long id, String reason) {
+        changeStatus(id, OtaRollout.STATUS_RUNNING, OtaRollout.STATUS_PAUSED,
+                reason != null ? reason : "运维手动暂停");
+    }
+
+    @Override
+    public void resume(Long id) {
+        requireRollout(id);
+        if (otaRolloutMapper.updateStatusWithBaseline(id, OtaRollout.STATUS_PAUSED, OtaRollout.STATUS_RUNNING) == 0) {
+            throw new RuntimeException("任务状态已变化，请刷新后重试");
+        }
+        log.info("OTA灰度升级任务已恢复，失败率从当前计数重新统计: id={}", id);
+    }
+
+    @Override
+    public void cancel(Long id, String reason) {
+        OtaRollout rollout = requireRollout(id);
+        int status = rollout.getStatus();
+        if (status != OtaRollout.STATUS_RUNNING && status != OtaRollout.STATUS_PAUSED) {
+            throw new RuntimeException("任务已结束，无法取消");
+        }
+        changeStatus(id, status, OtaRollout.STATUS_CANCELLED, reason != null ? reason : "运维手动取消");
+    }
+
+    private void changeStatus(Long id, int expectedStatus, int status, String reason) {
+        requireRollout(id);
+        if (otaRolloutMapper.updateStatus(id, expectedStatus, status, reason) == 0) {
+            throw new RuntimeException("任务状态已变化，请刷新后重试");
+        }
+        log.info("OTA灰度升级任务状态变更: id={}, {} -> {}, reason={}", id, expectedStatus, status, reason);
+    }
+
+    private OtaRollout requireRollout(Long id) {
+        OtaRollout rollout = otaRolloutMapper.selectById(id);
+        if (rollout == null) {
+            throw new RuntimeException("灰度升级任务不存在");
+        }
+        return rollout;
+    }
+
+    /**
+     * 调度所有进行中的灰度升级任务
+     */
+    @Scheduled(fixedDelayString = "${ota.rollout-tick-millis:10000}")
+    public void tick() {
+        // 锁有效期取调度间隔的 6 倍并逐台设备续期，节点宕机时由其他节点接手
+        try (DistributedLock.Lease lease = distributedLock.tryAcquire(LOCK_KEY,
+                Duration.ofMillis(otaConfig.getRolloutTickMillis() * 6))) {
+            if (lease == null) {
+                return;
+            }
+            // 持有锁后再读取任务，保证游标与计数是上一个调度节点写回后的最新值
+            List<OtaRollout> running;
+            try {
+                running = otaRolloutMapper.selectByStatus(OtaRollout.STATUS_RUNNING);
+            } catch (RuntimeException e) {
+                log.warn("查询进行中的OTA灰度升级任务失败: {}", e.getMessage());
+                return;
+            }
+            for (OtaRollout rollout : running) {
+                try {
+                    if (!process(rollout, lease)) {
+                        break;
+                    }
+                } catch (RuntimeException e) {
+                    log.error("OTA灰度升级任务调度异常: id={}", rollout.getId(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 处理单个任务
+     *
+     * @return false 表示上游暂不可用或调度锁已丢失，本轮不再处理其他任务
+     */
+    private boolean process(OtaRollout rollout, DistributedLock.Lease lease) {
+        // ============ 步骤 A: 回收升级中的设备 ============
+        List<OtaRolloutDevice> upgrading = otaRolloutDeviceMapper.selectUpgradingByRolloutId(rollout.getId());
+        int inFlight = 0;
+        for (OtaRolloutDevice device : upgrading) {
+            if (!lease.renew()) {
+                return false;
+            }
+            Integer result = reconcile(rollout, device);
+            if (result == null) {
+                inFlight++;
+                continue;
+            }
+            if (result == OtaRolloutDevice.STATUS_SUCCESS) {
+                rollout.setSuccessCount(rollout.getSuccessCount() + 1);
+            } else {
+                rollout.setFailedCount(rollout.getFailedCount() + 1);
+            }
+            otaRolloutMapper.updateProgress(rollout);
+        }
+
+        // ============ 步骤 B: 失败率检查 ============
+        if (shouldAutoPause(rollout)) {
+            String reason = String.format("失败率过高自动暂停: 失败 %d / 已结束 %d（累计失败 %d / 已结束 %d），阈值 %d%%",
+                    failedSinceResume(rollout), finishedSinceResume(rollout), rollout.getFailedCount(),
+                    rollout.getSuccessCount() + rollout.getFailedCount(), rollout.getFailureThreshold());
+            otaRolloutMapper.updateStatus(rollout.getId(), OtaRollout.STATUS_RUNNING, OtaRollout.STATUS_PAUSED,
+                    reason);
+            log.warn("OTA灰度升级任务自动暂停: id={}, {}", rollout.getId(), reason);
+            meterRegistry.counter("ota.rollout.auto_paused").increment();
+            return true;
+        }
+
+        // ============ 步骤 C: 下发下一批 ============
+        int batch = Math.min(rollout.getWaveSize(), rollout.getMaxConcurrent() - inFlight);
+        batch = Math.min(batch, ratePermitsPerTick(rollout));
+        boolean upstreamAvailable = true;
+        boolean exhausted = false;
+        if (batch > 0) {
+            List<DeviceInfo> candidates = deviceInfoMapper.selectRolloutCandidates(rollout.getProductModel(),
+                    rollout.getFromVersion(), rollout.getTargetVersion(), rollout.getCursorDeviceId(), batch);
+            exhausted = candidates.isEmpty();
+            for (DeviceInfo device : candidates) {
+                if (!lease.renew()) {
+                    return false;
+                }
+                Boolean triggered = trigger(rollout, device);
+                if (triggered == null) {
+                    upstreamAvailable = false;
+                    break;
+                }
+                rollout.setCursorDeviceId(device.getId());
+                otaRolloutMapper.updateProgress(rollout);
+                if (triggered) {
+                    inFlight++;
+                }
+            }
+        }
+
+        // ============ 步骤 D: 判断是否完成 ============
+        if (exhausted && inFlight == 0) {
+            otaRolloutMapper.updateStatus(rollout.getId(), OtaRollout.STATUS_RUNNING, OtaRollout.STATUS_COMPLETED,
+                    null);
+            log.info("OTA灰度升级任务完成: id={}, triggered={}, success={}, failed={}", rollout.getId(),
+                    rollout.getTriggeredCount(), rollout.getSuccessCount(), rollout.getFailedCount());
+        }
+        return upstreamAvailable;
+    }
+
+    /**
+     * 检查升级中设备的最新状态
+     *
+     * @return 结束时返回明细的新状态（成功/失败），仍在升级中返回 null
+     */
+    private Integer reconcile(OtaRollout rollout, OtaRolloutDevice device) {
+        String deviceUid = device.getDeviceUid();
+        OtaStatusVO status = otaTrackerService.getTrackedStatus(deviceUid);
+        if (status == null) {
+            DeviceInfo deviceInfo = deviceInfoService.getByDeviceUid(deviceUid);
+            if (deviceInfo == null) {
+                return finish(device, OtaRolloutDevice.STATUS_FAILED, "设备不存在");
+            }
+            status = thirdPartyOtaService.getOtaStatus(deviceUid, deviceInfo.getSecretKey());
+        }
+
+        if (status != null && status.getResult() != null && status.getResult() == 1) {
+            int code = status.getStatus() != null ? status.getStatus() : OtaStatusEnum.NONE.getCode();
+            if (code == OtaStatusEnum.SUCCESS.getCode()
+                    || (code == OtaStatusEnum.NONE.getCode()
+                            && rollout.getTargetVersion().equals(status.getCurrentVersion()))) {
+                DeviceInfo deviceInfo = deviceInfoService.getByDeviceUid(deviceUid);
+                if (deviceInfo != null) {
+                    DeviceInfo update = new DeviceInfo();
+                    update.setId(deviceInfo.getId());
+                    update.setDeviceUid(deviceUid);
+                    update.setFirmwareVersion(rollout.getTargetVersion());
+                    deviceInfoService.update(update);
+                }
+                return finish(device, OtaRolloutDevice.STATUS_SUCCESS, null);
+            }
+            if (code == OtaStatusEnum.FAIL.getCode() || code == OtaStatusEnum.DOWNLOAD_FAIL.getCode()) {
+                return finish(device, OtaRolloutDevice.STATUS_FAILED, OtaStatusEnum.getDescription(code));
+            }
+            if (code == OtaStatusEnum.NONE.getCode() && elapsedSeconds(device) > otaConfig
+                    .getTrackerStartGraceSeconds()) {
+                return finish(device, OtaRolloutDevice.STATUS_FAILED, "设备未开始升级");
+            }
+        }
+
+        if (elapsedSeconds(device) > TimeUnit.MINUTES.toSeconds(otaConfig.getRolloutDeviceTimeoutMinutes())) {
+            return finish(device, OtaRolloutDevice.STATUS_FAILED, "升级超时");
+        }
+        return null;
+    }
+
+    private Integer finish(OtaRolloutDevice device, int status, String failReason) {
+        otaRolloutDeviceMapper.updateResult(device.getId(), status, failReason);
+        if (status == OtaRolloutDevice.STATUS_FAILED) {
+            log.warn("灰度升级设备失败: rolloutId={}, deviceUid={}, reason={}", device.getRolloutId(),
+                    device.getDeviceUid(), failReason);
+        }
+        meterRegistry.counter("ota.rollout.devices",
+                "result", status == OtaRolloutDevice.STATUS_SUCCESS ? "success" : "failed").increment();
+        return status;
+    }
+
+    /**
+     * 向单台设备下发升级指令
+     *
+     * @return true 下发成功；false 下发失败（已计入失败）或跳过；null 上游暂不可用（未处理，下一轮重试）
+     */
+    private Boolean trigger(OtaRollout rollout, DeviceInfo device) {
+        String deviceUid = device.getDeviceUid();
+        if (otaRolloutDeviceMapper.selectByRolloutIdAndDeviceUid(rollout.getId(), deviceUid) != null) {
+            log.info("设备已在本任务中下发过，跳过: rolloutId={}, deviceUid={}", rollout.getId(), deviceUid);
+            return false;
+        }
+        if (otaTrackerService.isTracked(deviceUid)) {
+            log.info("设备已在升级中，灰度任务跳过: rolloutId={}, deviceUid={}", rollout.getId(), deviceUid);
+            return false;
+        }
+
+        boolean success;
+        String errorMessage = null;
+        try {
+            success = thirdPartyOtaService.triggerFirmwareUpgrade(deviceUid, device.getSecretKey());
+        } catch (UpstreamUnavailableException e) {
+            log.warn("上游暂不可用，灰度任务本轮停止下发: rolloutId={}, error={}", rollout.getId(), e.getMessage());
+            return null;
+        } catch (RuntimeException e) {
+            success = false;
+            errorMessage = e.getMessage();
+        }
+
+        OtaRolloutDevice rolloutDevice = new OtaRolloutDevice();
+        rolloutDevice.setRolloutId(rollout.getId());
+        rolloutDevice.setDeviceUid(deviceUid);
+        rolloutDevice.setTriggerTime(LocalDateTime.now());
+        if (success) {
+            rolloutDevice.setStatus(OtaRolloutDevice.STATUS_UPGRADING);
+        } else {
+            rolloutDevice.setStatus(OtaRolloutDevice.STATUS_FAILED);
+            rolloutDevice.setFailReason(truncate(errorMessage != null ? errorMessage : "升级指令下发失败"));
+            rolloutDevice.setFinishTime(rolloutDevice.getTriggerTime());
+        }
+        otaRolloutDeviceMapper.insert(rolloutDevice);
+
+        try {
+            DeviceOtaLog otaLog = DeviceOtaLog.builder()
+                    .deviceUid(deviceUid)
+                    .userId(SYSTEM_USER_ID)
+                    .targetVersion(rollout.getTargetVersion())
+                    .actionType(DeviceOtaLog.ACTION_UPGRADE)
+                    .statusCode(success ? 1 : 0)
+                    .apiResponse(success ? "灰度任务 " + rollout.getId() + " 升级指令下发成功" : errorMessage)
+                    .build();
+            otaLogWriter.submit(otaLog);
+        } catch (Exception e) {
+            log.error("记录OTA日志失败", e);
+        }
+
+        rollout.setTriggeredCount(rollout.getTriggeredCount() + 1);
+        meterRegistry.counter("ota.rollout.triggered", "result", success ? "success" : "failed").increment();
+        if (success) {
+            otaTrackerService.track(deviceUid);
+            return true;
+        }
+        log.warn("灰度升级指令下发失败: rolloutId={}, deviceUid={}, error={}", rollout.getId(), deviceUid,
+                errorMessage);
+        rollout.setFailedCount(rollout.getFailedCount() + 1);
+        return false;
+    }
+
+    /**
+     * 按最近一次恢复之后结束的设备计算失败率
+     */
+    private boolean shouldAutoPause(OtaRollout rollout) {
+        int finished = finishedSinceResume(rollout);
+        return finished >= otaConfig.getRolloutMinFinished()
+                && failedSinceResume(rollout) * 100 >= rollout.getFailureThreshold() * finished;
+    }
+
+    private static int failedSinceResume(OtaRollout rollout) {
+        return rollout.getFailedCount() - valueOrZero(rollout.getBaselineFailedCount());
+    }
+
+    private static int finishedSinceResume(OtaRollout rollout) {
+        return rollout.getSuccessCount() - valueOrZero(rollout.getBaselineSuccessCount())
+                + failedSinceResume(rollout);
+    }
+
+    private static int valueOrZero(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    /**
+     * 本轮按速率可下发的指令数
+     */
+    private int ratePermitsPerTick(OtaRollout rollout) {
+        return (int) Math.max(1, Math.ceil(rollout.getRatePerMinute() * otaConfig.getRolloutTickMillis() / 60000.0));
+    }
+
+    private static long elapsedSeconds(OtaRolloutDevice device) {
+        if (device.getTriggerTime() == null) {
+            return 0;
+        }
+        return Duration.between(device.getTriggerTime(), LocalDateTime.now()).getSeconds();
+    }
+
+    private static int positiveOrDefault(Integer value, Integer defaultValue) {
+        return value != null && value > 0 ? value : defaultValue;
+    }
+
+    private static String truncate(String value) {
+        return value != null && value.length() > 255 ? value.substring(0, 255) : value;
+    }
+}
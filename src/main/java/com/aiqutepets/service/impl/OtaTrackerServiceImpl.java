@@ -0,0 +1,360 @@
+package com.aiqutepets.service.impl;
+
+import com.aiqutepets.config.OtaConfig;
+import com.aiqutepets.entity.DeviceInfo;
+import com.aiqutepets.enums.OtaStatusEnum;
+import com.aiqutepets.service.DeviceInfoService;
+import com.aiqutepets.service.OtaTrackerService;
+import com.aiqutepets.service.ThirdPartyOtaService;
+import com.aiqutepets.vo.OtaStatusVO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OTA 升级进度跟踪服务实现类
+ *
+ * <p>
+ * Redis 中维护两类数据：
+ * </p>
+ * <ul>
+ * <li>{@value #DUE_KEY}（ZSET）：正在跟踪的设备，score 为下次查询时间（毫秒）</li>
+ * <li>{@value #STATE_KEY_PREFIX}{uid}（HASH）：最新状态 JSON、开始跟踪时间、最近查询时间、当前查询间隔</li>
+ * </ul>
+ *
+ * <p>
+ * 各节点定时用 Lua 脚本原子地取出到期设备并顺延一个租约时间，同一设备同一时刻只会被一个节点查询；
+ * 节点宕机时租约到期后由其他节点接手。查询间隔自适应：进度有变化时回到最小间隔，无变化时逐次翻倍直到最大间隔。
+ * 设备进入终态（成功/失败/下载失败，或宽限期后仍无升级状态）后停止跟踪，最终状态保留一段时间供 /check 读取。
+ * </p>
+ */
+@Slf4j
+@Service
+public class OtaTrackerServiceImpl implements OtaTrackerService {
+
+    private static final String DUE_KEY = "ota:tracker:due";
+    private static final String STATE_KEY_PREFIX = "ota:tracker:state:";
+
+    private static final String FIELD_STATUS = "status";
+    private static final String FIELD_SINCE = "since";
+    private static final String FIELD_POLLED_AT = "polledAt";
+    private static final String FIELD_INTERVAL = "interval";
+
+    /**
+     * 状态超过多少个最大查询间隔未刷新视为过期（跟踪节点可能已全部停止）
+     */
+    private static final int STALE_INTERVALS = 3;
+
+    /**
+     * KEYS: 跟踪集合
+     * ARGV: 当前毫秒, 最多取出数量, 租约到期毫秒
+     * 返回: 本次取出的设备UID列表
+     */
+    private static final String CLAIM_SCRIPT = String.join("\n",
+            "local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2])",
+            "for _, uid in ipairs(due) do",
+            "  redis.call('ZADD', KEYS[1], 'XX', ARGV[3], uid)",
+            "end",
+            "return due");
+
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> CLAIM = new DefaultRedisScript<>(CLAIM_SCRIPT, List.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OtaConfig otaConfig;
+
+    @Autowired
+    private DeviceInfoService deviceInfoService;
+
+    @Autowired
+    private ThirdPartyOtaService thirdPartyOtaService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ThreadPoolTaskExecutor upstreamWriteBackExecutor;
+
+    /**
+     * 上次调度时 Redis 是否可用（仅用于避免 Redis 故障期间每次调度都打印告警）
+     */
+    private volatile boolean redisAvailable = true;
+
+    @Override
+    public void track(String deviceUid) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            String stateKey = STATE_KEY_PREFIX + deviceUid;
+            Map<String, String> state = new HashMap<>();
+            state.put(FIELD_SINCE, String.valueOf(now));
+            state.put(FIELD_INTERVAL, String.valueOf(otaConfig.getTrackerMinInterval()));
+            // 清除上一次升级残留的最终状态
+            stringRedisTemplate.delete(stateKey);
+            stringRedisTemplate.opsForHash().putAll(stateKey, state);
+            stringRedisTemplate.expire(stateKey, otaConfig.getTrackerMaxTrackMinutes(), TimeUnit.MINUTES);
+            stringRedisTemplate.opsForZSet().add(DUE_KEY, deviceUid, now);
+            log.info("开始跟踪OTA升级进度: deviceUid={}", deviceUid);
+        } catch (Exception e) {
+            log.warn("加入OTA跟踪失败，/check 将直接查询上游: deviceUid={}, error={}", deviceUid, e.getMessage());
+        }
+    }
+
+    @Override
+    public OtaStatusVO getTrackedStatus(String deviceUid) {
+        if (!isEnabled()) {
+            return null;
+        }
+        try {
+            Map<Object, Object> state = stringRedisTemplate.opsForHash().entries(STATE_KEY_PREFIX + deviceUid);
+            OtaStatusVO status = readStatus(state);
+            if (status == null) {
+                return null;
+            }
+            long polledAt = parseLong(state.get(FIELD_POLLED_AT), 0);
+            long staleAfter = (long) STALE_INTERVALS * otaConfig.getTrackerMaxInterval();
+            if (isActive(status.getStatus()) && System.currentTimeMillis() - polledAt > staleAfter) {
+                log.debug("OTA跟踪状态已过期: deviceUid={}, polledAt={}", deviceUid, polledAt);
+                return null;
+            }
+            return status;
+        } catch (Exception e) {
+            log.warn("读取OTA跟踪状态失败: deviceUid={}, error={}", deviceUid, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public boolean isTracked(String deviceUid) {
+        if (!isEnabled()) {
+            return false;
+        }
+        try {
+            return stringRedisTemplate.opsForZSet().score(DUE_KEY, deviceUid) != null;
+        } catch (Exception e) {
+            log.warn("查询OTA跟踪状态失败: deviceUid={}, error={}", deviceUid, e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void onStatusQueried(String deviceUid, OtaStatusVO status) {
+        if (!isEnabled() || !isSuccess(status) || !isActive(status.getStatus())) {
+            return;
+        }
+        try {
+            if (stringRedisTemplate.opsForZSet().score(DUE_KEY, deviceUid) != null) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            int interval = otaConfig.getTrackerMinInterval();
+            saveState(deviceUid, status, now, now, interval, activeStateTtlSeconds());
+            stringRedisTemplate.opsForZSet().add(DUE_KEY, deviceUid, now + interval);
+            log.info("设备处于升级过程中，开始跟踪OTA进度: deviceUid={}, status={}", deviceUid, status.getStatus());
+        } catch (Exception e) {
+            log.warn("加入OTA跟踪失败: deviceUid={}, error={}", deviceUid, e.getMessage());
+        }
+    }
+
+    /**
+     * 定时取出到期设备并异步查询上游状态
+     */
+    @Scheduled(fixedDelayString = "${ota.tracker-tick-millis:1000}")
+    public void poll() {
+        if (!isEnabled()) {
+            return;
+        }
+        List<String> due;
+        try {
+            due = claimDueDevices();
+            if (!redisAvailable) {
+                redisAvailable = true;
+                log.info("Redis 已恢复，OTA跟踪器继续运行");
+            }
+        } catch (Exception e) {
+            if (redisAvailable) {
+                redisAvailable = false;
+                log.warn("OTA跟踪器访问 Redis 失败，暂停轮询: {}", e.getMessage());
+            }
+            return;
+        }
+
+        for (String deviceUid : due) {
+            pollDevice(deviceUid);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> claimDueDevices() {
+        long now = System.currentTimeMillis();
+        long lease = 2L * otaConfig.getTrackerMaxInterval();
+        List<String> due = stringRedisTemplate.execute(CLAIM, Collections.singletonList(DUE_KEY),
+                String.valueOf(now),
+                String.valueOf(otaConfig.getTrackerBatchSize()),
+                String.valueOf(now + lease));
+        return due != null ? due : Collections.emptyList();
+    }
+
+    private void pollDevice(String deviceUid) {
+        DeviceInfo deviceInfo;
+        try {
+            deviceInfo = deviceInfoService.getByDeviceUid(deviceUid);
+        } catch (Exception e) {
+            log.error("OTA跟踪获取设备信息失败: deviceUid={}", deviceUid, e);
+            return;
+        }
+        if (deviceInfo == null) {
+            log.warn("OTA跟踪的设备不存在，停止跟踪: deviceUid={}", deviceUid);
+            untrack(deviceUid);
+            return;
+        }
+
+        meterRegistry.counter("ota.tracker.polls").increment();
+        thirdPartyOtaService.getOtaStatusAsync(deviceUid, deviceInfo.getSecretKey())
+                // 结果处理需要多次访问 Redis，在回写线程池中执行
+                .thenAcceptAsync(status -> onPolled(deviceUid, status), upstreamWriteBackExecutor)
+                .exceptionally(e -> {
+                    log.error("OTA跟踪处理查询结果失败: deviceUid={}", deviceUid, e);
+                    return null;
+                });
+    }
+
+    /**
+     * 处理一次轮询结果，决定下次查询时间或结束跟踪
+     */
+    private void onPolled(String deviceUid, OtaStatusVO status) {
+        String stateKey = STATE_KEY_PREFIX + deviceUid;
+        Map<Object, Object> state = stringRedisTemplate.opsForHash().entries(stateKey);
+        long now = System.currentTimeMillis();
+        long since = parseLong(state.get(FIELD_SINCE), now);
+        int interval = (int) parseLong(state.get(FIELD_INTERVAL), otaConfig.getTrackerMinInterval());
+
+        if (now - since > TimeUnit.MINUTES.toMillis(otaConfig.getTrackerMaxTrackMinutes())) {
+            log.warn("OTA跟踪超过最长时间，停止跟踪: deviceUid={}", deviceUid);
+            untrack(deviceUid);
+            return;
+        }
+
+        if (!isSuccess(status)) {
+            // 查询失败：保留上次状态，退避后重试
+            int next = backoff(interval);
+            stringRedisTemplate.opsForHash().put(stateKey, FIELD_INTERVAL, String.valueOf(next));
+            stringRedisTemplate.opsForZSet().add(DUE_KEY, deviceUid, now + next);
+            return;
+        }
+
+        Integer code = status.getStatus();
+        boolean inGracePeriod = code != null && code == OtaStatusEnum.NONE.getCode()
+                && now - since < TimeUnit.SECONDS.toMillis(otaConfig.getTrackerStartGraceSeconds());
+        if (isActive(code) || inGracePeriod) {
+            int next = isChanged(readStatus(state), status) ? otaConfig.getTrackerMinInterval() : backoff(interval);
+            saveState(deviceUid, status, since, now, next, activeStateTtlSeconds());
+            stringRedisTemplate.opsForZSet().add(DUE_KEY, deviceUid, now + next);
+            return;
+        }
+
+        saveState(deviceUid, status, since, now, interval, otaConfig.getTrackerStateRetentionSeconds());
+        stringRedisTemplate.opsForZSet().remove(DUE_KEY, deviceUid);
+        log.info("OTA升级结束，停止跟踪: deviceUid={}, status={}", deviceUid, code);
+    }
+
+    private void untrack(String deviceUid) {
+        stringRedisTemplate.opsForZSet().remove(DUE_KEY, deviceUid);
+        stringRedisTemplate.delete(STATE_KEY_PREFIX + deviceUid);
+    }
+
+    private void saveState(String deviceUid, OtaStatusVO status, long since, long polledAt, int interval,
+            long ttlSeconds) {
+        String stateKey = STATE_KEY_PREFIX + deviceUid;
+        Map<String, String> state = new HashMap<>();
+        try {
+            state.put(FIELD_STATUS, objectMapper.writeValueAsString(status));
+        } catch (Exception e) {
+            throw new RuntimeException("序列化OTA状态失败", e);
+        }
+        state.put(FIELD_SINCE, String.valueOf(since));
+        state.put(FIELD_POLLED_AT, String.valueOf(polledAt));
+        state.put(FIELD_INTERVAL, String.valueOf(interval));
+        stringRedisTemplate.opsForHash().putAll(stateKey, state);
+        stringRedisTemplate.expire(stateKey, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    private OtaStatusVO readStatus(Map<Object, Object> state) {
+        Object json = state.get(FIELD_STATUS);
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json.toString(), OtaStatusVO.class);
+        } catch (Exception e) {
+            log.warn("解析OTA跟踪状态失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private int backoff(int interval) {
+        return Math.min(otaConfig.getTrackerMaxInterval(), Math.max(otaConfig.getTrackerMinInterval(), interval * 2));
+    }
+
+    private long activeStateTtlSeconds() {
+        return TimeUnit.MINUTES.toSeconds(otaConfig.getTrackerMaxTrackMinutes());
+    }
+
+    private boolean isEnabled() {
+        return Boolean.TRUE.equals(otaConfig.getTrackerEnabled());
+    }
+
+    private static boolean isChanged(OtaStatusVO previous, OtaStatusVO current) {
+        return previous == null
+                || !Objects.equals(previous.getStatus(), current.getStatus())
+                || !Objects.equals(previous.getProgress(), current.getProgress());
+    }
+
+    /**
+     * 上游查询成功（result=1）；失败时服务返回的是兜底状态，不能据此判断升级进度
+     */
+    private static boolean isSuccess(OtaStatusVO status) {
+        return status != null && status.getResult() != null && status.getResult() == 1;
+    }
+
+    /**
+     * 下载中、下载完成（等待升级）、升级中
+     */
+    private static boolean isActive(Integer code) {
+        return code != null && (code == OtaStatusEnum.DOWNLOADING.getCode()
+                || code == OtaStatusEnum.DOWNLOAD_COMPLETE.getCode()
+                || code == OtaStatusEnum.UPGRADING.getCode());
+    }
+
+    private static long parseLong(Object value, long defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
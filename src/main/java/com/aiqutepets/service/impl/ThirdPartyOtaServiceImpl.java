@@ -10,21 +10,28 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import com.aiqutepets.entity.DeviceInfo;
-import com.aiqutepets.entity.DeviceOtaLog;
-import com.aiqutepets.mapper.DeviceInfoMapper;
-import com.aiqutepets.mapper.DeviceOtaLogMapper;
+import com.aiqutepets.enums.UpstreamEndpoint;
+import com.aiqutepets.service.DeviceInfoService;
+import com.aiqutepets.util.JsonAliasDecoder;
+import com.aiqutepets.util.OtaUpgradeStartTracker;
+import com.aiqutepets.util.ThirdPartyAsyncClient;
+import com.aiqutepets.util.ThirdPartySigner;
+import com.aiqutepets.util.UpstreamCallCoalescer;
+import com.aiqutepets.util.UpstreamGuard;
+import com.aiqutepets.util.UpstreamHedger;
 
 /**
  * 第三方 OTA 固件升级服务实现类
@@ -43,10 +50,28 @@ public class ThirdPartyOtaServiceImpl implements ThirdPartyOtaService {
     private ObjectMapper objectMapper;
 
     @Autowired
-    private DeviceInfoMapper deviceInfoMapper;
+    private DeviceInfoService deviceInfoService;
 
     @Autowired
-    private DeviceOtaLogMapper deviceOtaLogMapper;
+    private ThirdPartySigner signer;
+
+    @Autowired
+    private ThirdPartyAsyncClient asyncClient;
+
+    @Autowired
+    private UpstreamCallCoalescer coalescer;
+
+    @Autowired
+    private UpstreamGuard upstreamGuard;
+
+    @Autowired
+    private UpstreamHedger hedger;
+
+    @Autowired
+    private OtaUpgradeStartTracker upgradeStartTracker;
+
+    @Autowired
+    private ThreadPoolTaskExecutor upstreamWriteBackExecutor;
 
     /**
      * 更新状态常量
@@ -64,6 +89,38 @@ public class ThirdPartyOtaServiceImpl implements ThirdPartyOtaService {
      */
     private static final long UPGRADE_TIMEOUT_MINUTES = 60;
 
+    /**
+     * OTA 升级状态响应解码器（兼容驼峰/下划线等字段命名，别名按优先级排列；包可见供测试与基准使用）
+     */
+    static final JsonAliasDecoder<com.aiqutepets.vo.OtaStatusVO> OTA_STATUS_DECODER = JsonAliasDecoder
+            .builder(() -> com.aiqutepets.vo.OtaStatusVO.builder()
+                    .result(0).status(STATUS_IDLE).currentVersion("").targetVersion("").progress(0)
+                    .updateDescription("").build())
+            .integer(com.aiqutepets.vo.OtaStatusVO::setResult, "result")
+            .integer(com.aiqutepets.vo.OtaStatusVO::setStatus, "status")
+            .text(com.aiqutepets.vo.OtaStatusVO::setCurrentVersion, "currentVersion", "current_version")
+            .text(com.aiqutepets.vo.OtaStatusVO::setTargetVersion, "targetVersion", "target_version",
+                    "latestVersion")
+            .integer(com.aiqutepets.vo.OtaStatusVO::setProgress, "progress")
+            .text(com.aiqutepets.vo.OtaStatusVO::setUpdateDescription, "updateDescription", "update_description")
+            .build();
+
+    /**
+     * 最新固件信息响应解码器（兼容驼峰/下划线等字段命名，别名按优先级排列；包可见供测试与基准使用）
+     */
+    static final JsonAliasDecoder<com.aiqutepets.vo.OtaFirmwareInfoVO> FIRMWARE_INFO_DECODER = JsonAliasDecoder
+            .builder(() -> com.aiqutepets.vo.OtaFirmwareInfoVO.builder()
+                    .result(0).isUpdate(0).version("").description("").publishDate("").fileSize(0L).isForce(0)
+                    .build())
+            .integer(com.aiqutepets.vo.OtaFirmwareInfoVO::setResult, "result")
+            .integer(com.aiqutepets.vo.OtaFirmwareInfoVO::setIsUpdate, "isUpdate", "is_update")
+            .text(com.aiqutepets.vo.OtaFirmwareInfoVO::setVersion, "version", "latestVersion")
+            .text(com.aiqutepets.vo.OtaFirmwareInfoVO::setDescription, "description", "updateDescription", "desc")
+            .text(com.aiqutepets.vo.OtaFirmwareInfoVO::setPublishDate, "publishDate", "publish_date")
+            .longInteger(com.aiqutepets.vo.OtaFirmwareInfoVO::setFileSize, "fileSize", "file_size")
+            .integer(com.aiqutepets.vo.OtaFirmwareInfoVO::setIsForce, "isForce", "is_force")
+            .build();
+
     @Override
     public FirmwareCheckResponse checkFirmwareUpdate(String deviceUid, String secretKey) {
         log.info("检查设备固件更新状态: deviceUid={}", deviceUid);
@@ -84,7 +141,8 @@ public class ThirdPartyOtaServiceImpl implements ThirdPartyOtaService {
             log.debug("请求第三方 OTA 接口: {}", url);
 
             // 4. 发送请求
-            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+            ResponseEntity<String> response = upstreamGuard.call(UpstreamEndpoint.OTA_CHECK, deviceUid,
+                    () -> restTemplate.getForEntity(url, String.class));
 
             // 5. 解析响应
             return parseResponse(response.getBody());
@@ -108,44 +166,7 @@ public class ThirdPartyOtaServiceImpl implements ThirdPartyOtaService {
      * @return 签名字符串
      */
     private String generateSignature(Map<String, String> params, String secretKey) {
-        // TreeMap 已经按 key 排序
-        StringBuilder sb = new StringBuilder();
-        for (Map.Entry<String, String> entry : params.entrySet()) {
-            if (sb.length() > 0) {
-                sb.append("&");
-            }
-            sb.append(entry.getKey()).append("=").append(entry.getValue());
-        }
-        sb.append(secretKey);
-
-        String signStr = sb.toString();
-        log.debug("签名原文: {}", signStr);
-
-        return md5(signStr);
-    }
-
-    /**
-     * MD5 加密
-     *
-     * @param input 输入字符串
-     * @return MD5 哈希值（32位小写）
-     */
-    private String md5(String input) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] digest = md.digest(input.getBytes());
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : digest) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("MD5 算法不可用", e);
-        }
+        return signer.sign(params, secretKey, ThirdPartySigner.Dialect.RAW_KEY_SUFFIX);
     }
 
     /**
@@ -248,33 +269,30 @@ public class ThirdPartyOtaServiceImpl implements ThirdPartyOtaService {
 
     @Override
     public AiGrowthStatsVO getDeviceGrowthStats(String deviceUid, String secretKey) {
+        if (hedger.isEnabled(UpstreamEndpoint.GROWTH)) {
+            // 对冲依赖异步传输：同步调用改走异步版本并等待结果
+            return ThirdPartyAsyncClient.await(getDeviceGrowthStatsAsync(deviceUid, secretKey));
+        }
+        return coalescer.execute(UpstreamEndpoint.GROWTH, deviceUid,
+                () -> fetchDeviceGrowthStats(deviceUid, secretKey));
+    }
+
+    /**
+     * 实际请求成长统计接口（失败返回兜底对象）
+     */
+    private AiGrowthStatsVO fetchDeviceGrowthStats(String deviceUid, String secretKey) {
         log.info("获取设备成长统计: deviceUid={}", deviceUid);
 
         try {
-            // 1. 构造请求参数
-            long timestamp = System.currentTimeMillis();
-            Map<String, String> params = new TreeMap<>();
-            params.put("timestamp", String.valueOf(timestamp));
-
-            // 2. 生成签名
-            String signature = generateSignature(params, secretKey);
-            params.put("signature", signature);
-
-            // 3. 构造请求 URL (替换路径变量)
-            String baseUrl = thirdPartyConfig.getBaseUrl();
-            String growthPath = "/api/devices/" + deviceUid + "/stats/growth";
-
-            UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(baseUrl + growthPath);
-            for (Map.Entry<String, String> entry : params.entrySet()) {
-                builder.queryParam(entry.getKey(), entry.getValue());
-            }
-            String url = builder.toUriString();
+            // 1. 构造签名请求 URL
+            String url = buildGrowthStatsUrl(deviceUid, secretKey);
             log.debug("请求成长统计接口: {}", url);
 
-            // 4. 发送请求
-            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+            // 2. 发送请求
+            ResponseEntity<String> response = upstreamGuard.call(UpstreamEndpoint.GROWTH, deviceUid,
+                    () -> restTemplate.getForEntity(url, String.class));
 
-            // 5. 解析响应
+            // 3. 解析响应
             AiGrowthStatsVO result = objectMapper.readValue(response.getBody(), AiGrowthStatsVO.class);
             log.debug("成长统计响应: {}", result);
 
@@ -282,13 +300,45 @@ public class ThirdPartyOtaServiceImpl implements ThirdPartyOtaService {
 
         } catch (Exception e) {
             log.error("获取设备成长统计失败: deviceUid={}", deviceUid, e);
-            // 返回空对象，避免 NPE
-            AiGrowthStatsVO errorResponse = new AiGrowthStatsVO();
-            errorResponse.setStatus("error");
-            return errorResponse;
+            return growthStatsFallback();
         }
     }
 
+    @Override
+    public CompletableFuture<AiGrowthStatsVO> getDeviceGrowthStatsAsync(String deviceUid, String secretKey) {
+        log.info("异步获取设备成长统计: deviceUid={}", deviceUid);
+
+        return coalescer.executeAsync(UpstreamEndpoint.GROWTH, deviceUid,
+                () -> upstreamGuard.callAsync(UpstreamEndpoint.GROWTH, deviceUid,
+                        () -> asyncClient.getRoot(UpstreamEndpoint.GROWTH, deviceUid,
+                                buildGrowthStatsUrl(deviceUid, secretKey), AiGrowthStatsVO.class))
+                        .exceptionally(e -> {
+                            log.error("异步获取设备成长统计失败: deviceUid={}", deviceUid, e);
+                            return growthStatsFallback();
+                        }));
+    }
+
+    /**
+     * 构造成长统计接口的签名 URL
+     */
+    private String buildGrowthStatsUrl(String deviceUid, String secretKey) {
+        Map<String, String> params = new TreeMap<>();
+        params.put("timestamp", String.valueOf(System.currentTimeMillis()));
+        params.put("signature", generateSignature(params, secretKey));
+
+        String growthPath = "/api/devices/" + deviceUid + "/stats/growth";
+        return buildUrl(thirdPartyConfig.getBaseUrl() + growthPath, params);
+    }
+
+    /**
+     * 成长统计兜底：返回 status=error 的空对象，避免 NPE
+     */
+    private AiGrowthStatsVO growthStatsFallback() {
+        AiGrowthStatsVO errorResponse = new AiGrowthStatsVO();
+        errorResponse.setStatus("error");
+        return errorResponse;
+    }
+
     @Override
     public int calculateIntimacyPercentage(AiGrowthStatsVO stats) {
         if (stats == null || stats.getData() == null) {
@@ -321,54 +371,33 @@ public class ThirdPartyOtaServiceImpl implements ThirdPartyOtaService {
         return Math.min(100, Math.max(0, percentage));
     }
 
-    /**
-     * 默认心情兜底文案
-     */
-    private static final String DEFAULT_MOOD_CONTENT = "今天也是充满活力的一天，期待和你说话哦！";
-
     @Override
     public String getDeviceTodayMood(String deviceUid, String secretKey) {
+        return coalescer.execute(UpstreamEndpoint.MOOD, deviceUid,
+                () -> fetchDeviceTodayMood(deviceUid, secretKey));
+    }
+
+    /**
+     * 实际请求今日心情接口（失败返回兜底文案）
+     */
+    private String fetchDeviceTodayMood(String deviceUid, String secretKey) {
         log.info("获取设备今日心情: deviceUid={}", deviceUid);
 
         try {
-            // 1. 构造请求参数
-            long timestamp = System.currentTimeMillis();
-            Map<String, String> params = new TreeMap<>();
-            params.put("timestamp", String.valueOf(timestamp));
-
-            // 2. 生成签名
-            String signature = generateSignature(params, secretKey);
-            params.put("signature", signature);
-
-            // 3. 构造请求 URL
-            String baseUrl = thirdPartyConfig.getBaseUrl();
-            String moodPath = "/api/devices/" + deviceUid + "/mood/today";
-
-            UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(baseUrl + moodPath);
-            for (Map.Entry<String, String> entry : params.entrySet()) {
-                builder.queryParam(entry.getKey(), entry.getValue());
-            }
-            String url = builder.toUriString();
+            // 1. 构造签名请求 URL
+            String url = buildMoodUrl(deviceUid, secretKey);
             log.debug("请求今日心情接口: {}", url);
 
-            // 4. 发送请求
-            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+            // 2. 发送请求
+            ResponseEntity<String> response = upstreamGuard.call(UpstreamEndpoint.MOOD, deviceUid,
+                    () -> restTemplate.getForEntity(url, String.class));
 
-            // 5. 解析响应
+            // 3. 解析响应
             AiMoodVO result = objectMapper.readValue(response.getBody(), AiMoodVO.class);
             log.debug("今日心情响应: {}", result);
 
-            // 6. 提取 mood_content
-            if (result != null && "success".equals(result.getStatus()) && result.getData() != null) {
-                String moodContent = result.getData().getMoodContent();
-                if (moodContent != null && !moodContent.isEmpty()) {
-                    return moodContent;
-                }
-            }
-
-            // 响应无效，返回兜底文案
-            log.warn("AI 心情接口返回数据无效，使用兜底文案: deviceUid={}", deviceUid);
-            return DEFAULT_MOOD_CONTENT;
+            // 4. 提取 mood_content
+            return extractMoodContent(deviceUid, result);
 
         } catch (Exception e) {
             log.error("获取设备今日心情失败，使用兜底文案: deviceUid={}", deviceUid, e);
@@ -377,52 +406,135 @@ public class ThirdPartyOtaServiceImpl implements ThirdPartyOtaService {
     }
 
     @Override
-    public com.aiqutepets.vo.OtaStatusVO getOtaStatus(String deviceUid, String secretKey) {
-        log.info("查询设备OTA升级状态: deviceUid={}", deviceUid);
-
-        try {
-            // 1. 构造请求参数
-            long timestamp = System.currentTimeMillis();
-            Map<String, String> params = new TreeMap<>();
-            params.put("uid", deviceUid);
-            params.put("timestamp", String.valueOf(timestamp));
+    public CompletableFuture<String> getDeviceTodayMoodAsync(String deviceUid, String secretKey) {
+        log.info("异步获取设备今日心情: deviceUid={}", deviceUid);
+
+        return coalescer.executeAsync(UpstreamEndpoint.MOOD, deviceUid,
+                () -> upstreamGuard.callAsync(UpstreamEndpoint.MOOD, deviceUid,
+                        () -> asyncClient.getRoot(UpstreamEndpoint.MOOD, deviceUid,
+                                buildMoodUrl(deviceUid, secretKey), AiMoodVO.class))
+                        .thenApply(result -> extractMoodContent(deviceUid, result))
+                        .exceptionally(e -> {
+                            log.error("异步获取设备今日心情失败，使用兜底文案: deviceUid={}", deviceUid, e);
+                            return DEFAULT_MOOD_CONTENT;
+                        }));
+    }
 
-            // 2. 生成签名
-            String signature = generateSignature(params, secretKey);
-            params.put("signature", signature);
+    /**
+     * 构造今日心情接口的签名 URL
+     */
+    private String buildMoodUrl(String deviceUid, String secretKey) {
+        Map<String, String> params = new TreeMap<>();
+        params.put("timestamp", String.valueOf(System.currentTimeMillis()));
+        params.put("signature", generateSignature(params, secretKey));
 
-            // 3. 构造请求 URL
-            String baseUrl = thirdPartyConfig.getBaseUrl();
-            String otaPath = thirdPartyConfig.getOtaGetUpdateStatusUrl();
+        String moodPath = "/api/devices/" + deviceUid + "/mood/today";
+        return buildUrl(thirdPartyConfig.getBaseUrl() + moodPath, params);
+    }
 
-            UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(baseUrl + otaPath);
-            for (Map.Entry<String, String> entry : params.entrySet()) {
-                builder.queryParam(entry.getKey(), entry.getValue());
+    /**
+     * 提取心情文案，响应无效时返回兜底文案
+     */
+    private String extractMoodContent(String deviceUid, AiMoodVO result) {
+        if (result != null && "success".equals(result.getStatus()) && result.getData() != null) {
+            String moodContent = result.getData().getMoodContent();
+            if (moodContent != null && !moodContent.isEmpty()) {
+                return moodContent;
             }
-            String url = builder.toUriString();
+        }
+
+        log.warn("AI 心情接口返回数据无效，使用兜底文案: deviceUid={}", deviceUid);
+        return DEFAULT_MOOD_CONTENT;
+    }
+
+    @Override
+    public com.aiqutepets.vo.OtaStatusVO getOtaStatus(String deviceUid, String secretKey) {
+        if (hedger.isEnabled(UpstreamEndpoint.OTA_STATUS)) {
+            return ThirdPartyAsyncClient.await(getOtaStatusAsync(deviceUid, secretKey));
+        }
+        return coalescer.execute(UpstreamEndpoint.OTA_STATUS, deviceUid,
+                () -> fetchOtaStatus(deviceUid, secretKey));
+    }
+
+    /**
+     * 实际请求 OTA 升级状态接口（失败返回兜底状态）
+     */
+    private com.aiqutepets.vo.OtaStatusVO fetchOtaStatus(String deviceUid, String secretKey) {
+        log.info("查询设备OTA升级状态: deviceUid={}", deviceUid);
+
+        try {
+            // 1. 构造签名请求 URL
+            String url = buildOtaStatusUrl(deviceUid, secretKey);
             log.debug("请求OTA升级状态接口: {}", url);
 
-            // 4. 发送请求
-            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+            // 2. 发送请求
+            ResponseEntity<String> response = upstreamGuard.call(UpstreamEndpoint.OTA_STATUS, deviceUid,
+                    () -> restTemplate.getForEntity(url, String.class));
             String responseBody = response.getBody();
             log.debug("OTA升级状态接口响应: {}", responseBody);
 
-            // 5. 解析响应
+            // 3. 解析响应
             com.aiqutepets.vo.OtaStatusVO statusVO = parseOtaStatusResponse(deviceUid, responseBody);
 
-            // 6. 升级超时检测 (Timeout Guard)
+            // 4. 升级超时检测 (Timeout Guard)
             return checkUpgradeTimeout(statusVO, deviceUid);
 
         } catch (Exception e) {
             log.error("查询设备OTA升级状态失败: deviceUid={}", deviceUid, e);
-            return com.aiqutepets.vo.OtaStatusVO.builder()
-                    .deviceUid(deviceUid)
-                    .result(0)
-                    .status(STATUS_IDLE)
-                    .statusText("查询失败: " + e.getMessage())
-                    .hasNewVersion(false)
-                    .build();
+            return otaStatusFallback(deviceUid, e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<com.aiqutepets.vo.OtaStatusVO> getOtaStatusAsync(String deviceUid, String secretKey) {
+        log.info("异步查询设备OTA升级状态: deviceUid={}", deviceUid);
+
+        return coalescer.executeAsync(UpstreamEndpoint.OTA_STATUS, deviceUid,
+                () -> upstreamGuard.callAsync(UpstreamEndpoint.OTA_STATUS, deviceUid,
+                        () -> asyncClient.getString(UpstreamEndpoint.OTA_STATUS, deviceUid,
+                                buildOtaStatusUrl(deviceUid, secretKey)))
+                        .thenApply(responseBody -> {
+                            log.debug("OTA升级状态接口响应: {}", responseBody);
+                            return parseOtaStatusResponse(deviceUid, responseBody);
+                        })
+                        // 超时检测可能读写 Redis、查询数据库，不在响应解析线程池中执行
+                        .thenApplyAsync(statusVO -> checkUpgradeTimeout(statusVO, deviceUid),
+                                upstreamWriteBackExecutor)
+                        .exceptionally(e -> {
+                            log.error("异步查询设备OTA升级状态失败: deviceUid={}", deviceUid, e);
+                            return otaStatusFallback(deviceUid, e);
+                        }));
+    }
+
+    /**
+     * 构造 OTA 升级状态接口的签名 URL
+     */
+    private String buildOtaStatusUrl(String deviceUid, String secretKey) {
+        Map<String, String> params = new TreeMap<>();
+        params.put("uid", deviceUid);
+        params.put("timestamp", String.valueOf(System.currentTimeMillis()));
+        params.put("signature", generateSignature(params, secretKey));
+
+        return buildUrl(thirdPartyConfig.getBaseUrl() + thirdPartyConfig.getOtaGetUpdateStatusUrl(), params);
+    }
+
+    /**
+     * OTA 状态查询失败兜底
+     */
+    private com.aiqutepets.vo.OtaStatusVO otaStatusFallback(String deviceUid, Throwable e) {
+        Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+        return com.aiqutepets.vo.OtaStatusVO.queryFailed(deviceUid, "查询失败: " + cause.getMessage());
+    }
+
+    /**
+     * 拼接 query 参数，生成编码后的完整 URL
+     */
+    private String buildUrl(String baseUrl, Map<String, String> params) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(baseUrl);
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            builder.queryParam(entry.getKey(), entry.getValue());
         }
+        return builder.toUriString();
     }
 
     /**
@@ -444,16 +556,15 @@ public class ThirdPartyOtaServiceImpl implements ThirdPartyOtaService {
             return statusVO;
         }
 
-        // 查询最后一次升级操作时间
-        DeviceOtaLog latestLog = deviceOtaLogMapper.selectLatestByDeviceUidAndAction(
-                deviceUid, DeviceOtaLog.ACTION_UPGRADE);
+        // 查询最后一次升级操作时间（内存/Redis，未命中时才查库）
+        LocalDateTime upgradeStartTime = upgradeStartTracker.getStartTime(deviceUid);
 
-        if (latestLog == null || latestLog.getCreateTime() == null) {
+        if (upgradeStartTime == null) {
             return statusVO;
         }
 
         // 计算时间差
-        Duration duration = Duration.between(latestLog.getCreateTime(), LocalDateTime.now());
+        Duration duration = Duration.between(upgradeStartTime, LocalDateTime.now());
         long minutesPassed = duration.toMinutes();
 
         // 超过 60 分钟，强制返回失败状态
@@ -484,18 +595,13 @@ public class ThirdPartyOtaServiceImpl implements ThirdPartyOtaService {
      */
     private com.aiqutepets.vo.OtaStatusVO parseOtaStatusResponse(String deviceUid, String responseBody) {
         try {
-            JsonNode root = objectMapper.readTree(responseBody);
+            com.aiqutepets.vo.OtaStatusVO statusVO = OTA_STATUS_DECODER.decode(objectMapper.getFactory(),
+                    responseBody);
 
-            int result = root.path("result").asInt(0);
-            int status = root.path("status").asInt(STATUS_IDLE);
-            String currentVersion = root.path("currentVersion").asText(
-                    root.path("current_version").asText(""));
-            String targetVersion = root.path("targetVersion").asText(
-                    root.path("target_version").asText(
-                            root.path("latestVersion").asText("")));
-            int progress = root.path("progress").asInt(0);
-            String updateDescription = root.path("updateDescription").asText(
-                    root.path("update_description").asText(""));
+            int result = statusVO.getResult();
+            int status = statusVO.getStatus();
+            String targetVersion = statusVO.getTargetVersion();
+            int progress = statusVO.getProgress();
 
             // 判断是否有新版本
             // result=1 且 status 不为升级成功(5) 且有目标版本号
@@ -509,18 +615,11 @@ public class ThirdPartyOtaServiceImpl implements ThirdPartyOtaService {
                 statusDesc = statusDesc + " (" + progress + "%)";
             }
 
-            return com.aiqutepets.vo.OtaStatusVO.builder()
-                    .deviceUid(deviceUid)
-                    .result(result)
-                    .status(status)
-                    .statusText(statusDesc)
-                    .hasNewVersion(hasNewVersion)
-                    .currentVersion(currentVersion)
-                    .targetVersion(targetVersion)
-                    .progress(progress)
-                    .updateDescription(updateDescription)
-                    .rawResponse(responseBody)
-                    .build();
+            statusVO.setDeviceUid(deviceUid);
+            statusVO.setStatusText(statusDesc);
+            statusVO.setHasNewVersion(hasNewVersion);
+            statusVO.setRawResponse(responseBody);
+            return statusVO;
 
         } catch (Exception e) {
             log.error("解析OTA升级状态响应失败", e);
@@ -574,7 +673,8 @@ public class ThirdPartyOtaServiceImpl implements ThirdPartyOtaService {
             org.springframework.http.HttpEntity<String> entity = new org.springframework.http.HttpEntity<>(
                     formBody.toString(), headers);
 
-            ResponseEntity<String> response = restTemplate.postForEntity(url, entity, String.class);
+            ResponseEntity<String> response = upstreamGuard.call(UpstreamEndpoint.UPGRADE, deviceUid,
+                    () -> restTemplate.postForEntity(url, entity, String.class));
             String responseBody = response.getBody();
             log.debug("固件升级接口响应: {}", responseBody);
 
@@ -584,6 +684,7 @@ public class ThirdPartyOtaServiceImpl implements ThirdPartyOtaService {
 
             if (result == 1) {
                 log.info("固件升级指令发送成功: deviceUid={}", deviceUid);
+                upgradeStartTracker.recordStart(deviceUid);
                 return true;
             } else {
                 String message = root.path("message").asText(
@@ -604,49 +705,31 @@ public class ThirdPartyOtaServiceImpl implements ThirdPartyOtaService {
     @Override
     public com.aiqutepets.vo.OtaFirmwareInfoVO getLatestFirmwareInfo(String deviceUid, String secretKey,
             String currentVersion) {
+        return coalescer.execute(UpstreamEndpoint.FIRMWARE_INFO, deviceUid + '|' + currentVersion,
+                () -> fetchLatestFirmwareInfo(deviceUid, secretKey, currentVersion));
+    }
+
+    /**
+     * 实际请求最新固件信息接口（失败返回"无更新"）
+     */
+    private com.aiqutepets.vo.OtaFirmwareInfoVO fetchLatestFirmwareInfo(String deviceUid, String secretKey,
+            String currentVersion) {
         log.info("查询设备最新固件信息: deviceUid={}, currentVersion={}", deviceUid, currentVersion);
 
         try {
-            // 1. 构造请求参数
-            long timestamp = System.currentTimeMillis();
-            Map<String, String> params = new TreeMap<>();
-            params.put("uid", deviceUid);
-            params.put("timestamp", String.valueOf(timestamp));
-
-            // 如果传入了当前版本号，添加到参数中（用于服务端对比）
-            if (currentVersion != null && !currentVersion.isEmpty()) {
-                params.put("version", currentVersion);
-            }
-
-            // 1.5 获取设备型号并传递 deviceType 参数 (Compatibility)
-            DeviceInfo deviceInfo = deviceInfoMapper.selectByDeviceUid(deviceUid);
-            if (deviceInfo != null && deviceInfo.getProductModel() != null
-                    && !deviceInfo.getProductModel().isEmpty()) {
-                params.put("deviceType", deviceInfo.getProductModel());
-                log.debug("添加 deviceType 参数: {}", deviceInfo.getProductModel());
-            }
-
-            // 2. 生成签名
-            String signature = generateSignature(params, secretKey);
-            params.put("signature", signature);
-
-            // 3. 构造请求 URL
-            String baseUrl = thirdPartyConfig.getBaseUrl();
-            String firmwarePath = thirdPartyConfig.getOtaGetLatestFirmwareUrl();
-
-            UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(baseUrl + firmwarePath);
-            for (Map.Entry<String, String> entry : params.entrySet()) {
-                builder.queryParam(entry.getKey(), entry.getValue());
-            }
-            String url = builder.toUriString();
+            // 1. 获取设备型号 (deviceType) 并构造签名请求 URL
+            DeviceInfo deviceInfo = deviceInfoService.getByDeviceUid(deviceUid);
+            String productModel = deviceInfo != null ? deviceInfo.getProductModel() : null;
+            String url = buildFirmwareInfoUrl(deviceUid, secretKey, currentVersion, productModel);
             log.debug("请求最新固件信息接口: {}", url);
 
-            // 4. 发送请求
-            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+            // 2. 发送请求
+            ResponseEntity<String> response = upstreamGuard.call(UpstreamEndpoint.FIRMWARE_INFO, deviceUid,
+                    () -> restTemplate.getForEntity(url, String.class));
             String responseBody = response.getBody();
             log.debug("最新固件信息接口响应: {}", responseBody);
 
-            // 5. 解析响应
+            // 3. 解析响应
             return parseFirmwareInfoResponse(responseBody);
 
         } catch (Exception e) {
@@ -656,6 +739,50 @@ public class ThirdPartyOtaServiceImpl implements ThirdPartyOtaService {
         }
     }
 
+    @Override
+    public CompletableFuture<com.aiqutepets.vo.OtaFirmwareInfoVO> getLatestFirmwareInfoAsync(String deviceUid,
+            String secretKey, String currentVersion, String productModel) {
+        log.info("异步查询设备最新固件信息: deviceUid={}, currentVersion={}", deviceUid, currentVersion);
+
+        return coalescer.executeAsync(UpstreamEndpoint.FIRMWARE_INFO, deviceUid + '|' + currentVersion,
+                () -> upstreamGuard.callAsync(UpstreamEndpoint.FIRMWARE_INFO, deviceUid,
+                        () -> asyncClient.getString(UpstreamEndpoint.FIRMWARE_INFO, deviceUid,
+                                buildFirmwareInfoUrl(deviceUid, secretKey, currentVersion, productModel)))
+                        .thenApply(responseBody -> {
+                            log.debug("最新固件信息接口响应: {}", responseBody);
+                            return parseFirmwareInfoResponse(responseBody);
+                        })
+                        .exceptionally(e -> {
+                            log.error("异步查询设备最新固件信息失败: deviceUid={}", deviceUid, e);
+                            return com.aiqutepets.vo.OtaFirmwareInfoVO.noUpdate();
+                        }));
+    }
+
+    /**
+     * 构造最新固件信息接口的签名 URL
+     *
+     * @param currentVersion 当前版本号（可选，用于服务端对比）
+     * @param productModel   设备型号（可选，作为 deviceType 参数传递）
+     */
+    private String buildFirmwareInfoUrl(String deviceUid, String secretKey, String currentVersion,
+            String productModel) {
+        Map<String, String> params = new TreeMap<>();
+        params.put("uid", deviceUid);
+        params.put("timestamp", String.valueOf(System.currentTimeMillis()));
+
+        // 如果传入了当前版本号，添加到参数中（用于服务端对比）
+        if (currentVersion != null && !currentVersion.isEmpty()) {
+            params.put("version", currentVersion);
+        }
+        // 传递 deviceType 参数 (Compatibility)
+        if (productModel != null && !productModel.isEmpty()) {
+            params.put("deviceType", productModel);
+        }
+        params.put("signature", generateSignature(params, secretKey));
+
+        return buildUrl(thirdPartyConfig.getBaseUrl() + thirdPartyConfig.getOtaGetLatestFirmwareUrl(), params);
+    }
+
     /**
      * 解析最新固件信息响应
      *
@@ -664,9 +791,10 @@ public class ThirdPartyOtaServiceImpl implements ThirdPartyOtaService {
      */
     private com.aiqutepets.vo.OtaFirmwareInfoVO parseFirmwareInfoResponse(String responseBody) {
         try {
-            JsonNode root = objectMapper.readTree(responseBody);
+            com.aiqutepets.vo.OtaFirmwareInfoVO firmwareInfo = FIRMWARE_INFO_DECODER.decode(
+                    objectMapper.getFactory(), responseBody);
 
-            int result = root.path("result").asInt(0);
+            int result = firmwareInfo.getResult();
 
             // 如果 result 不为 1，返回"无更新"
             if (result != 1) {
@@ -678,31 +806,8 @@ public class ThirdPartyOtaServiceImpl implements ThirdPartyOtaService {
                         .build();
             }
 
-            // 解析各字段，兼容多种字段命名
-            int isUpdate = root.path("isUpdate").asInt(
-                    root.path("is_update").asInt(0));
-            String version = root.path("version").asText(
-                    root.path("latestVersion").asText(""));
-            String description = root.path("description").asText(
-                    root.path("updateDescription").asText(
-                            root.path("desc").asText("")));
-            String publishDate = root.path("publishDate").asText(
-                    root.path("publish_date").asText(""));
-            long fileSize = root.path("fileSize").asLong(
-                    root.path("file_size").asLong(0));
-            int isForce = root.path("isForce").asInt(
-                    root.path("is_force").asInt(0));
-
-            return com.aiqutepets.vo.OtaFirmwareInfoVO.builder()
-                    .result(result)
-                    .isUpdate(isUpdate)
-                    .version(version)
-                    .description(description)
-                    .publishDate(publishDate)
-                    .fileSize(fileSize)
-                    .isForce(isForce)
-                    .rawResponse(responseBody)
-                    .build();
+            firmwareInfo.setRawResponse(responseBody);
+            return firmwareInfo;
 
         } catch (Exception e) {
             log.error("解析固件信息响应失败", e);
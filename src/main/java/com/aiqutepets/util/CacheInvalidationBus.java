@@ -0,0 +1,96 @@
+package com.aiqutepets.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 本地缓存失效通知（Redis 发布/订阅）
+ *
+ * <p>
+ * 多节点部署时，某个节点修改数据后发布失效消息，所有节点（含自身）收到后清除各自的本地缓存。
+ * 订阅在应用启动完成后进行；Redis 暂不可用时不阻止启动，定时重试直到订阅成功，期间各缓存依赖过期时间兜底。
+ * </p>
+ */
+@Slf4j
+@Component
+public class CacheInvalidationBus {
+
+    /**
+     * 订阅失败后的重试间隔（秒）
+     */
+    private static final long SUBSCRIBE_RETRY_SECONDS = 30;
+
+    private final Map<String, MessageListener> listeners = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * 注册失效消息处理函数（每个频道一个）
+     *
+     * @param channel 频道
+     * @param handler 处理函数，参数为消息体
+     */
+    public void subscribe(String channel, Consumer<String> handler) {
+        MessageListener listener = (message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            log.debug("收到缓存失效通知: channel={}, message={}", channel, body);
+            handler.accept(body);
+        };
+        listeners.put(channel, listener);
+        if (ready) {
+            subscribe(channel, listener);
+        }
+    }
+
+    /**
+     * 发布失效消息；失败时仅记录日志，其他节点依赖过期时间兜底
+     *
+     * @param channel 频道
+     * @param message 消息体
+     */
+    public void publish(String channel, String message) {
+        try {
+            stringRedisTemplate.convertAndSend(channel, message);
+        } catch (Exception e) {
+            log.warn("发布缓存失效通知失败: channel={}, message={}, error={}", channel, message, e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        ready = true;
+        listeners.forEach(this::subscribe);
+    }
+
+    private void subscribe(String channel, MessageListener listener) {
+        try {
+            redisMessageListenerContainer.addMessageListener(listener, new ChannelTopic(channel));
+            log.info("已订阅缓存失效通知: channel={}", channel);
+        } catch (Exception e) {
+            log.warn("订阅缓存失效通知失败，{}秒后重试: channel={}, error={}", SUBSCRIBE_RETRY_SECONDS, channel,
+                    e.getMessage());
+            CompletableFuture.delayedExecutor(SUBSCRIBE_RETRY_SECONDS, TimeUnit.SECONDS)
+                    .execute(() -> subscribe(channel, listener));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.aiqutepets.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 Redis 的互斥锁
+ *
+ * <p>
+ * SET NX PX 加锁，值为本次持有者的随机标识；续期与释放用 Lua 脚本比较标识后再 PEXPIRE / DEL，
+ * 锁过期被其他节点取得后，原持有者既不会续上、也不会删掉别人的锁。
+ * Redis 不可用时视为未取得锁（调用方跳过本次），续期失败视为锁已丢失。
+ * </p>
+ */
+@Slf4j
+@Component
+public class DistributedLock {
+
+    /**
+     * KEYS: 锁
+     * ARGV: 持有者标识
+     * 返回: 1 表示已释放
+     */
+    private static final String UNLOCK_SCRIPT = String.join("\n",
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then",
+            "  return redis.call('DEL', KEYS[1])",
+            "end",
+            "return 0");
+
+    /**
+     * KEYS: 锁
+     * ARGV: 持有者标识, 有效期毫秒
+     * 返回: 1 表示已续期
+     */
+    private static final String RENEW_SCRIPT = String.join("\n",
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then",
+            "  return redis.call('PEXPIRE', KEYS[1], ARGV[2])",
+            "end",
+            "return 0");
+
+    private static final DefaultRedisScript<Long> UNLOCK = new DefaultRedisScript<>(UNLOCK_SCRIPT, Long.class);
+
+    private static final DefaultRedisScript<Long> RENEW = new DefaultRedisScript<>(RENEW_SCRIPT, Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 尝试加锁
+     *
+     * @param key 锁键
+     * @param ttl 有效期（持有期间可通过 {@link Lease#renew()} 续期）
+     * @return 持有凭证；锁已被占用或 Redis 不可用时返回 null
+     */
+    public Lease tryAcquire(String key, Duration ttl) {
+        String token = UUID.randomUUID().toString();
+        try {
+            Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(key, token, ttl.toMillis(),
+                    TimeUnit.MILLISECONDS);
+            return Boolean.TRUE.equals(locked) ? new Lease(key, token, ttl) : null;
+        } catch (RuntimeException e) {
+            log.warn("获取 Redis 锁失败，视为未取得: key={}, error={}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 锁的持有凭证，可跨线程释放；close 即释放
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final String key;
+        private final String token;
+        private final Duration ttl;
+
+        private Lease(String key, String token, Duration ttl) {
+            this.key = key;
+            this.token = token;
+            this.ttl = ttl;
+        }
+
+        /**
+         * 把有效期重置为加锁时的 ttl
+         *
+         * @return 仍持有锁时返回 true；锁已过期被他人取得或 Redis 不可用时返回 false
+         */
+        public boolean renew() {
+            try {
+                Long renewed = stringRedisTemplate.execute(RENEW, Collections.singletonList(key), token,
+                        String.valueOf(ttl.toMillis()));
+                if (renewed != null && renewed == 1L) {
+                    return true;
+                }
+                log.warn("Redis 锁已丢失: key={}", key);
+            } catch (RuntimeException e) {
+                log.warn("续期 Redis 锁失败: key={}, error={}", key, e.getMessage());
+            }
+            return false;
+        }
+
+        /**
+         * 释放锁（只删除自己持有的锁）
+         */
+        @Override
+        public void close() {
+            try {
+                stringRedisTemplate.execute(UNLOCK, Collections.singletonList(key), token);
+            } catch (RuntimeException e) {
+                log.warn("释放 Redis 锁失败: key={}, error={}", key, e.getMessage());
+            }
+        }
+    }
+}
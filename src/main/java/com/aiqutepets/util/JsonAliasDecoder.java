@@ -0,0 +1,254 @@
+package com.aiqutepets.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.NumberInput;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 字段别名解码器（单次遍历 Jackson token 流）
+ *
+ * <p>
+ * 第三方接口同一字段存在驼峰/下划线等多种命名，原先的做法是先构建 JsonNode 树，再对每个字段按
+ * path(a).asText(path(b).asText(...)) 链式探测，所有别名每次都会被求值。本类把"字段 ← 别名列表"的映射
+ * 声明一次（通常作为静态常量），解码时顺序读取顶层字段，按字段名查表直接写入目标对象：
+ * </p>
+ * <ul>
+ * <li>同一目标字段出现多个别名时，取别名列表中靠前者，与原链式探测的优先级一致</li>
+ * <li>值为 null、或无法转换为目标类型（如非数字文本）时视为该别名不存在，继续使用后面的别名</li>
+ * <li>数值字段兼容数字、数字文本与布尔值；文本字段兼容数字与布尔值（取其文本形式）</li>
+ * <li>未声明的字段及嵌套对象/数组直接跳过，不构建任何中间对象</li>
+ * </ul>
+ *
+ * <p>
+ * 未出现的字段保留 factory 创建目标对象时设置的默认值。实例不可变，可在多线程间共享。
+ * </p>
+ *
+ * @param <T> 目标类型
+ */
+public final class JsonAliasDecoder<T> {
+
+    private final Supplier<T> factory;
+
+    private final Map<String, Binding<T>> bindings;
+
+    private final int fieldCount;
+
+    private JsonAliasDecoder(Supplier<T> factory, Map<String, Binding<T>> bindings, int fieldCount) {
+        this.factory = factory;
+        this.bindings = bindings;
+        this.fieldCount = fieldCount;
+    }
+
+    /**
+     * 开始声明解码器
+     *
+     * @param factory 创建目标对象（并设置默认值）
+     */
+    public static <T> Builder<T> builder(Supplier<T> factory) {
+        return new Builder<>(factory);
+    }
+
+    /**
+     * 解码 JSON 文本
+     *
+     * @param jsonFactory Jackson 工厂
+     * @param json        JSON 文本
+     * @return 目标对象；文本为空或顶层不是对象时返回仅含默认值的对象
+     * @throws IOException JSON 格式错误
+     */
+    public T decode(JsonFactory jsonFactory, String json) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            return decode(parser);
+        }
+    }
+
+    /**
+     * 从 parser 当前位置解码一个顶层对象
+     *
+     * @param parser Jackson parser
+     * @return 目标对象
+     * @throws IOException JSON 格式错误
+     */
+    public T decode(JsonParser parser) throws IOException {
+        T target = factory.get();
+        JsonToken token = parser.currentToken() != null ? parser.currentToken() : parser.nextToken();
+        if (token != JsonToken.START_OBJECT) {
+            if (token != null) {
+                parser.skipChildren();
+            }
+            return target;
+        }
+
+        int[] boundPriority = new int[fieldCount];
+        Arrays.fill(boundPriority, Integer.MAX_VALUE);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            Binding<T> binding = bindings.get(parser.getCurrentName());
+            JsonToken valueToken = parser.nextToken();
+            if (binding == null || binding.priority > boundPriority[binding.field]) {
+                parser.skipChildren();
+                continue;
+            }
+            Object value = binding.type.read(parser, valueToken);
+            if (value != null) {
+                binding.setter.accept(target, value);
+                boundPriority[binding.field] = binding.priority;
+            }
+        }
+        return target;
+    }
+
+    /**
+     * 字段值类型及从当前 token 读取值的规则；无法转换时返回 null
+     */
+    private enum ValueType {
+
+        TEXT {
+            @Override
+            Object read(JsonParser parser, JsonToken token) throws IOException {
+                if (token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+                    return parser.getText();
+                }
+                parser.skipChildren();
+                return null;
+            }
+        },
+
+        INT {
+            @Override
+            Object read(JsonParser parser, JsonToken token) throws IOException {
+                Long value = readLong(parser, token);
+                return value != null ? (Object) value.intValue() : null;
+            }
+        },
+
+        LONG {
+            @Override
+            Object read(JsonParser parser, JsonToken token) throws IOException {
+                return readLong(parser, token);
+            }
+        };
+
+        abstract Object read(JsonParser parser, JsonToken token) throws IOException;
+
+        private static Long parseDecimal(String text) {
+            try {
+                double value = NumberInput.parseDouble(text);
+                return Double.isFinite(value) ? (long) value : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private static Long readLong(JsonParser parser, JsonToken token) throws IOException {
+            switch (token) {
+                case VALUE_NUMBER_INT:
+                case VALUE_NUMBER_FLOAT:
+                    return parser.getValueAsLong();
+                case VALUE_TRUE:
+                    return 1L;
+                case VALUE_FALSE:
+                    return 0L;
+                case VALUE_STRING:
+                    String text = parser.getText().trim();
+                    if (text.isEmpty()) {
+                        return null;
+                    }
+                    try {
+                        return Long.parseLong(text);
+                    } catch (NumberFormatException e) {
+                        return parseDecimal(text);
+                    }
+                default:
+                    parser.skipChildren();
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * 单个别名的绑定：目标字段序号、别名优先级（越小越优先）、值类型与写入方法
+     */
+    private static final class Binding<T> {
+
+        private final int field;
+        private final int priority;
+        private final ValueType type;
+        private final BiConsumer<T, Object> setter;
+
+        Binding(int field, int priority, ValueType type, BiConsumer<T, Object> setter) {
+            this.field = field;
+            this.priority = priority;
+            this.type = type;
+            this.setter = setter;
+        }
+    }
+
+    /**
+     * 解码器声明
+     */
+    public static final class Builder<T> {
+
+        private final Supplier<T> factory;
+        private final Map<String, Binding<T>> bindings = new HashMap<>();
+        private int fieldCount;
+
+        private Builder(Supplier<T> factory) {
+            this.factory = factory;
+        }
+
+        /**
+         * 文本字段
+         *
+         * @param setter  写入方法
+         * @param aliases 别名，按优先级从高到低
+         */
+        public Builder<T> text(BiConsumer<T, String> setter, String... aliases) {
+            return bind(ValueType.TEXT, (target, value) -> setter.accept(target, (String) value), aliases);
+        }
+
+        /**
+         * 整数字段
+         *
+         * @param setter  写入方法
+         * @param aliases 别名，按优先级从高到低
+         */
+        public Builder<T> integer(BiConsumer<T, Integer> setter, String... aliases) {
+            return bind(ValueType.INT, (target, value) -> setter.accept(target, (Integer) value), aliases);
+        }
+
+        /**
+         * 长整数字段
+         *
+         * @param setter  写入方法
+         * @param aliases 别名，按优先级从高到低
+         */
+        public Builder<T> longInteger(BiConsumer<T, Long> setter, String... aliases) {
+            return bind(ValueType.LONG, (target, value) -> setter.accept(target, (Long) value), aliases);
+        }
+
+        private Builder<T> bind(ValueType type, BiConsumer<T, Object> setter, String... aliases) {
+            if (aliases.length == 0) {
+                throw new IllegalArgumentException("至少需要一个字段名");
+            }
+            int field = fieldCount++;
+            for (int i = 0; i < aliases.length; i++) {
+                if (bindings.putIfAbsent(aliases[i], new Binding<>(field, i, type, setter)) != null) {
+                    throw new IllegalArgumentException("字段名重复声明: " + aliases[i]);
+                }
+            }
+            return this;
+        }
+
+        public JsonAliasDecoder<T> build() {
+            return new JsonAliasDecoder<>(factory, new HashMap<>(bindings), fieldCount);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.aiqutepets.util;
+
+import com.aiqutepets.config.OtaConfig;
+import com.aiqutepets.enums.OtaStatusEnum;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OTA 检查日志去重过滤器（只记录状态变化）
+ *
+ * <p>
+ * 客户端轮询 /check 时大部分结果与上一次相同（"仍然空闲"、"仍然 37%"）。开启 ota.log-transition-only 后，
+ * 只有以下情况才写入 device_ota_log：查询结果码、升级状态或目标版本发生变化，
+ * 或下载/升级进度跨过 ota.log-progress-bucket 划分的区间。
+ * </p>
+ *
+ * <p>
+ * 每台设备上一次记录的状态签名保存在 Redis {@value #LAST_KEY_PREFIX}{uid}（多节点共享，原子地比较并替换），
+ * 有效期 ota.log-transition-ttl-hours，因此状态不变的设备至少每个有效期记录一次。Redis 不可用时照常记录。
+ * 签名在判定时即写入，若该条日志随后被 {@link OtaLogWriter} 丢弃，调用方通过 {@link #forget(String)} 清除签名，
+ * 下一次检查照常记录，状态变化不会因丢弃而漏记。
+ * </p>
+ */
+@Slf4j
+@Component
+public class OtaCheckLogFilter {
+
+    private static final String LAST_KEY_PREFIX = "ota:log:last:";
+
+    /**
+     * KEYS: 上次签名
+     * ARGV: 本次签名, 有效期秒数
+     * 返回: 1 表示签名有变化（需要记录）
+     */
+    private static final String SWAP_SCRIPT = String.join("\n",
+            "local last = redis.call('GET', KEYS[1])",
+            "if last == ARGV[1] then return 0 end",
+            "redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2])",
+            "return 1");
+
+    private static final DefaultRedisScript<Long> SWAP = new DefaultRedisScript<>(SWAP_SCRIPT, Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private OtaConfig otaConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 本次检查结果是否需要记录
+     *
+     * @param deviceUid     设备UID
+     * @param result        上游查询结果码
+     * @param status        升级状态
+     * @param progress      进度（0-100）
+     * @param targetVersion 目标版本
+     * @return 是否需要写入日志
+     */
+    public boolean shouldLog(String deviceUid, Integer result, int status, Integer progress, String targetVersion) {
+        if (!Boolean.TRUE.equals(otaConfig.getLogTransitionOnly()) || deviceUid == null) {
+            return true;
+        }
+        String signature = result + "|" + status + "|" + Objects.toString(targetVersion, "") + "|"
+                + progressBucket(status, progress);
+        try {
+            Long changed = stringRedisTemplate.execute(SWAP, Collections.singletonList(LAST_KEY_PREFIX + deviceUid),
+                    signature, String.valueOf(TimeUnit.HOURS.toSeconds(otaConfig.getLogTransitionTtlHours())));
+            if (changed != null && changed == 0) {
+                meterRegistry.counter("ota.log.skipped").increment();
+                return false;
+            }
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("读取OTA日志状态签名失败，照常记录: deviceUid={}, error={}", deviceUid, e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * 清除设备上次记录的状态签名（对应的日志未写入时调用），下一次检查必然记录
+     *
+     * @param deviceUid 设备UID
+     */
+    public void forget(String deviceUid) {
+        if (deviceUid == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.delete(LAST_KEY_PREFIX + deviceUid);
+        } catch (RuntimeException e) {
+            log.warn("清除OTA日志状态签名失败: deviceUid={}, error={}", deviceUid, e.getMessage());
+        }
+    }
+
+    /**
+     * 下载/升级中按区间划分进度，其他状态不区分进度
+     */
+    private int progressBucket(int status, Integer progress) {
+        if (status != OtaStatusEnum.DOWNLOADING.getCode() && status != OtaStatusEnum.UPGRADING.getCode()) {
+            return 0;
+        }
+        int bucket = Math.max(1, otaConfig.getLogProgressBucket());
+        return (progress != null ? progress : 0) / bucket;
+    }
+}
@@ -0,0 +1,289 @@
+package com.aiqutepets.util;
+
+import com.aiqutepets.config.OtaConfig;
+import com.aiqutepets.entity.DeviceOtaLog;
+import com.aiqutepets.mapper.DeviceOtaLogMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * OTA 操作日志异步批量写入器（write-behind）
+ *
+ * <p>
+ * 请求线程调用 {@link #submit(DeviceOtaLog)} 只把日志放入有界队列，由后台线程攒批后以多行 INSERT 写入
+ * device_ota_log：攒满 ota.log-batch-size 条或距第一条入队超过 ota.log-flush-interval-millis 时写一次。
+ * 日志的 create_time 在入队时确定，不受写入延迟影响。
+ * </p>
+ *
+ * <p>
+ * 超过 ota.log-raw-inline-max-length 的 api_response（第三方原始报文）在写入线程中计算哈希、压缩并去重存入
+ * ota_raw_response（见 {@link OtaRawResponseStore}），日志行只保存 response_hash。
+ * </p>
+ *
+ * <p>
+ * 背压：队列已满时请求线程最多等待 ota.log-offer-timeout-millis，仍放不进去则丢弃该条日志，
+ * 保证数据库变慢时不拖慢 /check、/upgrade 接口。批量写入失败时该批日志同样丢弃（审计日志不影响业务）。
+ * 应用关闭时先停止接收新日志（与正在进行的提交互斥，关闭开始后不会再有日志进入队列），
+ * 再在 ota.log-shutdown-timeout-seconds 内（等待写入线程与写完剩余日志共用这一个期限）写完队列中的剩余日志。
+ * 提交时可附带丢弃回调，无论因何种原因丢弃都会调用一次（在请求线程或写入线程中）。
+ * </p>
+ *
+ * <p>
+ * 指标：ota.log.queue.size、ota.log.written、ota.log.dropped{reason=queue_full|write_failed|shutdown}。
+ * </p>
+ */
+@Slf4j
+@Component
+public class OtaLogWriter {
+
+    private static final String REASON_QUEUE_FULL = "queue_full";
+    private static final String REASON_WRITE_FAILED = "write_failed";
+    private static final String REASON_SHUTDOWN = "shutdown";
+
+    @Autowired
+    private DeviceOtaLogMapper deviceOtaLogMapper;
+
+    @Autowired
+    private OtaRawResponseStore otaRawResponseStore;
+
+    @Autowired
+    private OtaConfig otaConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BlockingQueue<Pending> queue;
+
+    private Thread writerThread;
+
+    private Counter writtenCounter;
+
+    private volatile boolean running;
+
+    /**
+     * 提交持有读锁，关闭时持有写锁修改 running：关闭开始后不会再有日志进入队列
+     */
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(Math.max(1, otaConfig.getLogQueueCapacity()));
+        writtenCounter = meterRegistry.counter("ota.log.written");
+        Gauge.builder("ota.log.queue.size", queue, BlockingQueue::size)
+                .description("等待写入的OTA日志条数")
+                .register(meterRegistry);
+
+        running = true;
+        writerThread = new Thread(this::runLoop, "ota-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * 提交一条 OTA 日志（异步写入，不抛异常）
+     *
+     * @param otaLog 日志实体
+     * @return 是否已放入队列；队列已满或应用正在关闭时返回 false
+     */
+    public boolean submit(DeviceOtaLog otaLog) {
+        return submit(otaLog, null);
+    }
+
+    /**
+     * 提交一条 OTA 日志（异步写入，不抛异常）
+     *
+     * @param otaLog    日志实体
+     * @param onDropped 日志被丢弃（队列已满、应用关闭或写入失败）时的回调，可为 null
+     * @return 是否已放入队列；队列已满或应用正在关闭时返回 false（此时回调已执行）
+     */
+    public boolean submit(DeviceOtaLog otaLog, Runnable onDropped) {
+        if (otaLog.getCreateTime() == null) {
+            otaLog.setCreateTime(LocalDateTime.now());
+        }
+        Pending pending = new Pending(otaLog, onDropped);
+        boolean open = false;
+        boolean accepted = false;
+        acceptLock.readLock().lock();
+        try {
+            open = running;
+            if (open) {
+                accepted = queue.offer(pending, otaConfig.getLogOfferTimeoutMillis(), TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+        if (accepted) {
+            return true;
+        }
+        if (!open) {
+            dropped(REASON_SHUTDOWN, Collections.singletonList(pending));
+            return false;
+        }
+        dropped(REASON_QUEUE_FULL, Collections.singletonList(pending));
+        log.warn("OTA日志队列已满，丢弃日志: deviceUid={}, actionType={}", otaLog.getDeviceUid(),
+                otaLog.getActionType());
+        return false;
+    }
+
+    private void runLoop() {
+        int batchSize = Math.max(1, otaConfig.getLogBatchSize());
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Pending first = queue.poll(otaConfig.getLogFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime()
+                        + TimeUnit.MILLISECONDS.toNanos(otaConfig.getLogFlushIntervalMillis());
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                if (!batch.isEmpty()) {
+                    write(batch);
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        List<DeviceOtaLog> logs = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            logs.add(pending.otaLog);
+        }
+        try {
+            externalizeRawResponses(logs);
+            deviceOtaLogMapper.insertBatch(logs);
+            writtenCounter.increment(logs.size());
+        } catch (Exception e) {
+            dropped(REASON_WRITE_FAILED, batch);
+            log.error("批量写入OTA日志失败，丢弃 {} 条", batch.size(), e);
+        }
+    }
+
+    /**
+     * 较长的原始报文移入 ota_raw_response，日志行改为引用哈希
+     */
+    private void externalizeRawResponses(List<DeviceOtaLog> batch) {
+        Map<String, String> rawByHash = new HashMap<>();
+        for (DeviceOtaLog otaLog : batch) {
+            String raw = otaLog.getApiResponse();
+            if (raw == null || raw.length() <= otaConfig.getLogRawInlineMaxLength()) {
+                continue;
+            }
+            String hash = otaRawResponseStore.hash(raw);
+            rawByHash.putIfAbsent(hash, raw);
+            otaLog.setResponseHash(hash);
+            otaLog.setApiResponse(null);
+        }
+        if (!rawByHash.isEmpty()) {
+            otaRawResponseStore.saveAll(rawByHash);
+        }
+    }
+
+    private void dropped(String reason, List<Pending> pendings) {
+        meterRegistry.counter("ota.log.dropped", "reason", reason).increment(pendings.size());
+        for (Pending pending : pendings) {
+            if (pending.onDropped == null) {
+                continue;
+            }
+            try {
+                pending.onDropped.run();
+            } catch (RuntimeException e) {
+                log.warn("OTA日志丢弃回调执行失败: deviceUid={}, error={}", pending.otaLog.getDeviceUid(),
+                        e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 应用关闭时写完队列中的剩余日志
+     */
+    @PreDestroy
+    public void shutdown() {
+        long deadline = System.currentTimeMillis()
+                + TimeUnit.SECONDS.toMillis(otaConfig.getLogShutdownTimeoutSeconds());
+
+        // 等待进行中的提交放入队列后再停止接收
+        acceptLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+
+        // 不中断写入线程，避免打断进行中的 JDBC 写入；写入线程最多一个刷新间隔后退出
+        try {
+            writerThread.join(Math.max(1, deadline - System.currentTimeMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        int batchSize = Math.max(1, otaConfig.getLogBatchSize());
+        List<Pending> batch = new ArrayList<>(batchSize);
+        int flushed = 0;
+        while (queue.drainTo(batch, batchSize) > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                queue.drainTo(batch);
+                dropped(REASON_SHUTDOWN, batch);
+                log.warn("关闭时写入OTA日志超时，丢弃 {} 条", batch.size());
+                break;
+            }
+            write(batch);
+            flushed += batch.size();
+            batch.clear();
+        }
+        if (flushed > 0) {
+            log.info("关闭前已写入剩余OTA日志 {} 条", flushed);
+        }
+    }
+
+    /**
+     * 队列中的日志及其丢弃回调
+     */
+    private static final class Pending {
+
+        private final DeviceOtaLog otaLog;
+        private final Runnable onDropped;
+
+        Pending(DeviceOtaLog otaLog, Runnable onDropped) {
+            this.otaLog = otaLog;
+            this.onDropped = onDropped;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.aiqutepets.util;
+
+import com.aiqutepets.entity.OtaRawResponse;
+import com.aiqutepets.mapper.OtaRawResponseMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * OTA 第三方原始报文存储
+ *
+ * <p>
+ * 原始报文按 SHA-256 去重、gzip 压缩后存入 ota_raw_response，device_ota_log 只保存哈希（response_hash）。
+ * 同一设备反复查询得到的相同报文只存一份。本节点已写入过的哈希在内存中记 {@link #KNOWN_HASH_TTL}，期间重复报文不再访问数据库；
+ * 过期后再次出现时重新写入，刷新 last_seen。
+ * </p>
+ *
+ * <p>
+ * device_ota_log 过期分区删除后，{@link #purgeBefore} 删除 last_seen 早于日志保留期的报文。
+ * 截止时间额外提前 {@link #KNOWN_HASH_TTL}：内存中的哈希最多这么久没有刷新 last_seen，
+ * 保留期内的日志仍可能引用它。
+ * </p>
+ */
+@Component
+public class OtaRawResponseStore {
+
+    private static final long KNOWN_HASH_MAX_SIZE = 50_000;
+
+    private static final Duration KNOWN_HASH_TTL = Duration.ofDays(1);
+
+    private final Cache<String, Boolean> knownHashes = Caffeine.newBuilder()
+            .maximumSize(KNOWN_HASH_MAX_SIZE)
+            .expireAfterWrite(KNOWN_HASH_TTL)
+            .build();
+
+    @Autowired
+    private OtaRawResponseMapper otaRawResponseMapper;
+
+    /**
+     * 计算报文哈希
+     *
+     * @param raw 原始报文
+     * @return SHA-256 十六进制字符串
+     */
+    public String hash(String raw) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(raw.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    /**
+     * 保存一批报文（本节点近期已保存过的跳过，其余已存在的刷新 last_seen）
+     *
+     * @param rawByHash 哈希 → 原始报文
+     */
+    public void saveAll(Map<String, String> rawByHash) {
+        List<OtaRawResponse> pending = new ArrayList<>();
+        for (Map.Entry<String, String> entry : rawByHash.entrySet()) {
+            if (knownHashes.getIfPresent(entry.getKey()) != null) {
+                continue;
+            }
+            byte[] raw = entry.getValue().getBytes(StandardCharsets.UTF_8);
+            OtaRawResponse response = new OtaRawResponse();
+            response.setHash(entry.getKey());
+            response.setContent(gzip(raw));
+            response.setRawSize(raw.length);
+            pending.add(response);
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        otaRawResponseMapper.upsertBatch(pending);
+        for (OtaRawResponse response : pending) {
+            knownHashes.put(response.getHash(), Boolean.TRUE);
+        }
+    }
+
+    /**
+     * 根据哈希读取原始报文
+     *
+     * @param hash 报文哈希
+     * @return 解压后的报文，不存在返回 null
+     */
+    public String load(String hash) {
+        OtaRawResponse response = otaRawResponseMapper.selectByHash(hash);
+        if (response == null || response.getContent() == null) {
+            return null;
+        }
+        return new String(gunzip(response.getContent()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 分批删除不再被保留期内日志引用的报文
+     *
+     * @param logsBefore 日志保留期起点（早于此时间的日志已删除）
+     * @param batchSize  单批条数
+     * @return 删除条数
+     */
+    public long purgeBefore(LocalDateTime logsBefore, int batchSize) {
+        LocalDateTime before = logsBefore.minus(KNOWN_HASH_TTL);
+        long total = 0;
+        int deleted;
+        do {
+            deleted = otaRawResponseMapper.deleteLastSeenBefore(before, batchSize);
+            total += deleted;
+        } while (deleted >= batchSize);
+        return total;
+    }
+
+    private static byte[] gzip(byte[] raw) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(raw);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] compressed) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return gzip.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.aiqutepets.util;
+
+import com.aiqutepets.entity.DeviceOtaLog;
+import com.aiqutepets.mapper.DeviceOtaLogMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OTA 升级开始时间记录
+ *
+ * <p>
+ * 升级指令下发成功时记录开始时间（Redis ota:upgrade:start:{uid}，并在本节点内存中保留一份），
+ * 升级超时检测按 本地缓存 → Redis → device_ota_log 的顺序查找；只有两级缓存都未命中时才查库，
+ * 查库结果（包括"无记录"）以 SET NX 回填 Redis：查库期间其他节点记录的新开始时间不会被覆盖，此时以 Redis 中的值为准。
+ * </p>
+ *
+ * <p>
+ * 其他节点记录新的开始时间后经 Redis 频道 {@value #INVALIDATE_CHANNEL} 通知清除本地缓存，
+ * 避免沿用上一次升级的开始时间误判超时。
+ * </p>
+ */
+@Slf4j
+@Component
+public class OtaUpgradeStartTracker {
+
+    private static final String START_KEY_PREFIX = "ota:upgrade:start:";
+
+    private static final String INVALIDATE_CHANNEL = "ota:upgrade:start:invalidate";
+
+    /**
+     * Redis 中保留开始时间的天数（超时阈值为 60 分钟，远小于该值）
+     */
+    private static final long REDIS_RETENTION_DAYS = 1;
+
+    /**
+     * 本地缓存过期时间（分钟），作为漏收失效通知时的兜底
+     */
+    private static final long LOCAL_EXPIRE_MINUTES = 5;
+
+    private static final long LOCAL_MAX_SIZE = 10_000;
+
+    /**
+     * 本地缓存中表示"无升级记录"的值
+     */
+    private static final long NO_RECORD = 0L;
+
+    private final Cache<String, Long> localStartTimes = Caffeine.newBuilder()
+            .maximumSize(LOCAL_MAX_SIZE)
+            .expireAfterWrite(LOCAL_EXPIRE_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private DeviceOtaLogMapper deviceOtaLogMapper;
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @PostConstruct
+    public void init() {
+        cacheInvalidationBus.subscribe(INVALIDATE_CHANNEL, localStartTimes::invalidate);
+    }
+
+    /**
+     * 记录升级开始时间（升级指令下发成功后调用）
+     *
+     * @param deviceUid 设备UID
+     */
+    public void recordStart(String deviceUid) {
+        long now = System.currentTimeMillis();
+        localStartTimes.put(deviceUid, now);
+        try {
+            stringRedisTemplate.opsForValue().set(START_KEY_PREFIX + deviceUid, String.valueOf(now),
+                    REDIS_RETENTION_DAYS, TimeUnit.DAYS);
+        } catch (Exception e) {
+            log.warn("记录升级开始时间到 Redis 失败: deviceUid={}, error={}", deviceUid, e.getMessage());
+        }
+        cacheInvalidationBus.publish(INVALIDATE_CHANNEL, deviceUid);
+    }
+
+    /**
+     * 获取最近一次升级开始时间
+     *
+     * @param deviceUid 设备UID
+     * @return 开始时间，没有升级记录时返回 null
+     */
+    public LocalDateTime getStartTime(String deviceUid) {
+        Long startMillis = localStartTimes.get(deviceUid, this::loadStartMillis);
+        if (startMillis == null || startMillis == NO_RECORD) {
+            return null;
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(startMillis), ZoneId.systemDefault());
+    }
+
+    /**
+     * 本地缓存未命中：先查 Redis，再查库并回填 Redis（仅在键不存在时写入）
+     */
+    private Long loadStartMillis(String deviceUid) {
+        String key = START_KEY_PREFIX + deviceUid;
+        try {
+            String cached = stringRedisTemplate.opsForValue().get(key);
+            if (cached != null) {
+                return Long.parseLong(cached);
+            }
+        } catch (Exception e) {
+            log.warn("从 Redis 读取升级开始时间失败，回退查库: deviceUid={}, error={}", deviceUid, e.getMessage());
+        }
+
+        DeviceOtaLog latestLog = deviceOtaLogMapper.selectLatestByDeviceUidAndAction(
+                deviceUid, DeviceOtaLog.ACTION_UPGRADE);
+        long startMillis = latestLog == null || latestLog.getCreateTime() == null ? NO_RECORD
+                : latestLog.getCreateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        log.debug("从 device_ota_log 加载升级开始时间: deviceUid={}, startMillis={}", deviceUid, startMillis);
+
+        try {
+            Boolean filled = stringRedisTemplate.opsForValue().setIfAbsent(key, String.valueOf(startMillis),
+                    REDIS_RETENTION_DAYS, TimeUnit.DAYS);
+            if (!Boolean.TRUE.equals(filled)) {
+                // 查库期间 recordStart 已写入更新的开始时间
+                String recorded = stringRedisTemplate.opsForValue().get(key);
+                if (recorded != null) {
+                    return Long.parseLong(recorded);
+                }
+            }
+        } catch (Exception e) {
+            log.debug("回填升级开始时间到 Redis 失败: deviceUid={}", deviceUid);
+        }
+        return startMillis;
+    }
+}
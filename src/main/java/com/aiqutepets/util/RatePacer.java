@@ -0,0 +1,44 @@
+package com.aiqutepets.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单线程匀速节拍器
+ *
+ * <p>
+ * 后台批处理任务按固定速率向上游发请求时使用：每次 {@link #acquire()} 等到下一个节拍，
+ * 落后时不补发（下一个节拍从当前时刻重新计算），不会在恢复后集中突发。非线程安全，每次任务执行新建一个。
+ * </p>
+ */
+public final class RatePacer {
+
+    private final long intervalNanos;
+
+    private long nextPermitAt = System.nanoTime();
+
+    /**
+     * @param permitsPerSecond 每秒许可数（小于 1 时按 1 处理）
+     */
+    public RatePacer(int permitsPerSecond) {
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, permitsPerSecond);
+    }
+
+    /**
+     * 等待下一个许可
+     *
+     * @return 取得许可返回 true；等待期间线程被中断返回 false（中断标记已恢复）
+     */
+    public boolean acquire() {
+        long waitNanos = nextPermitAt - System.nanoTime();
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        nextPermitAt = Math.max(nextPermitAt, System.nanoTime()) + intervalNanos;
+        return true;
+    }
+}
@@ -0,0 +1,212 @@
+package com.aiqutepets.util;
+
+import com.aiqutepets.config.ThirdPartyConfig;
+import com.aiqutepets.enums.UpstreamEndpoint;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.UnknownHttpStatusCodeException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 第三方接口异步客户端
+ *
+ * <p>
+ * 发送已签名的 GET 请求并返回可组合的 {@link CompletableFuture}，调用方可并发扇出多个上游请求，
+ * 等待期间不占用请求线程。响应体同样走 {@link ThirdPartyResponseReader} 单次读取流水线。
+ * </p>
+ *
+ * <p>
+ * 签名与 URL 构建由调用方（{@link ThirdPartyClient} / OTA 服务）完成，这里只负责传输与解析。
+ * 指定 {@link UpstreamEndpoint} 的重载会经过 {@link UpstreamHedger}，启用时对幂等 GET 发出对冲请求。
+ * </p>
+ */
+@Slf4j
+@Component
+public class ThirdPartyAsyncClient {
+
+    /**
+     * 错误响应体在异常信息中保留的最大长度
+     */
+    private static final int MAX_ERROR_BODY_LENGTH = 512;
+
+    @Autowired
+    private HttpClient thirdPartyHttpClient;
+
+    @Autowired
+    private ThreadPoolTaskExecutor thirdPartyAsyncExecutor;
+
+    @Autowired
+    private ThirdPartyConfig thirdPartyConfig;
+
+    @Autowired
+    private ThirdPartyResponseReader responseReader;
+
+    @Autowired
+    private UpstreamHedger hedger;
+
+    /**
+     * 异步 GET，绑定为目标类型（兼容 data 包装）
+     *
+     * @param fullUrl      已签名的完整 URL
+     * @param responseType 目标类型
+     * @return 绑定结果的 Future
+     */
+    public <T> CompletableFuture<T> get(String fullUrl, Class<T> responseType) {
+        return send(fullUrl, (body, encrypted) -> responseReader.read(body, encrypted, responseType));
+    }
+
+    /**
+     * 异步 GET，将根节点整体绑定为目标类型
+     *
+     * @param fullUrl      已签名的完整 URL
+     * @param responseType 目标类型
+     * @return 绑定结果的 Future
+     */
+    public <T> CompletableFuture<T> getRoot(String fullUrl, Class<T> responseType) {
+        return send(fullUrl, (body, encrypted) -> responseReader.readRoot(body, encrypted, responseType));
+    }
+
+    /**
+     * 异步 GET，返回明文报文
+     *
+     * @param fullUrl 已签名的完整 URL
+     * @return 明文报文的 Future
+     */
+    public CompletableFuture<String> getString(String fullUrl) {
+        return send(fullUrl, responseReader::readString);
+    }
+
+    /**
+     * 异步 GET，绑定为目标类型（兼容 data 包装），按接口统计耗时并按需对冲
+     *
+     * @param endpoint     上游接口
+     * @param deviceUid    设备 UID（对冲请求的设备级限流）
+     * @param fullUrl      已签名的完整 URL
+     * @param responseType 目标类型
+     * @return 绑定结果的 Future
+     */
+    public <T> CompletableFuture<T> get(UpstreamEndpoint endpoint, String deviceUid, String fullUrl,
+            Class<T> responseType) {
+        return hedger.execute(endpoint, deviceUid, () -> get(fullUrl, responseType));
+    }
+
+    /**
+     * 异步 GET，将根节点整体绑定为目标类型，按接口统计耗时并按需对冲
+     *
+     * @param endpoint     上游接口
+     * @param deviceUid    设备 UID（对冲请求的设备级限流）
+     * @param fullUrl      已签名的完整 URL
+     * @param responseType 目标类型
+     * @return 绑定结果的 Future
+     */
+    public <T> CompletableFuture<T> getRoot(UpstreamEndpoint endpoint, String deviceUid, String fullUrl,
+            Class<T> responseType) {
+        return hedger.execute(endpoint, deviceUid, () -> getRoot(fullUrl, responseType));
+    }
+
+    /**
+     * 异步 GET，返回明文报文，按接口统计耗时并按需对冲
+     *
+     * @param endpoint  上游接口
+     * @param deviceUid 设备 UID（对冲请求的设备级限流）
+     * @param fullUrl   已签名的完整 URL
+     * @return 明文报文的 Future
+     */
+    public CompletableFuture<String> getString(UpstreamEndpoint endpoint, String deviceUid, String fullUrl) {
+        return hedger.execute(endpoint, deviceUid, () -> getString(fullUrl));
+    }
+
+    /**
+     * 同步等待 Future 结果，并还原原始运行时异常（去掉 CompletionException 包装）
+     *
+     * @param future 异步结果
+     * @return 结果
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private <T> CompletableFuture<T> send(String fullUrl, BodyReader<T> bodyReader) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(fullUrl))
+                .timeout(Duration.ofMillis(thirdPartyConfig.getTimeout()))
+                .GET()
+                .build();
+
+        log.info("发送第三方异步请求: {}", fullUrl);
+
+        // 响应体由 HttpClient 非阻塞接收完整后再交给解析线程，解析线程不等待网络 IO
+        return thirdPartyHttpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApplyAsync(response -> {
+                    log.info("第三方异步接口响应: status={}", response.statusCode());
+                    byte[] body = response.body();
+                    if (response.statusCode() / 100 != 2) {
+                        throw statusError(response.statusCode(), abbreviate(body));
+                    }
+                    boolean encrypted = response.headers()
+                            .allValues(ThirdPartyResponseReader.ENCRYPTION_HEADER).contains("true");
+                    try {
+                        return bodyReader.read(new ByteArrayInputStream(body), encrypted);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("第三方接口响应解析失败: " + e.getMessage(), e);
+                    }
+                }, thirdPartyAsyncExecutor);
+    }
+
+    /**
+     * 非 2xx 响应转换为与 RestTemplate 一致的 HttpStatusCodeException，便于上层区分 4xx 与 5xx
+     */
+    private static RuntimeException statusError(int statusCode, String body) {
+        String message = "第三方接口请求失败: " + statusCode + ": [" + body + "]";
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        HttpStatus status = HttpStatus.resolve(statusCode);
+        if (status != null && status.is4xxClientError()) {
+            return HttpClientErrorException.create(message, status, status.getReasonPhrase(), null, bytes,
+                    StandardCharsets.UTF_8);
+        }
+        if (status != null && status.is5xxServerError()) {
+            return HttpServerErrorException.create(message, status, status.getReasonPhrase(), null, bytes,
+                    StandardCharsets.UTF_8);
+        }
+        return new UnknownHttpStatusCodeException(message, statusCode, "", null, bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String abbreviate(byte[] body) {
+        return new String(body, 0, Math.min(body.length, MAX_ERROR_BODY_LENGTH), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 响应体读取函数
+     */
+    @FunctionalInterface
+    private interface BodyReader<T> {
+        T read(InputStream body, boolean encrypted) throws IOException;
+    }
+}
@@ -2,7 +2,8 @@ package com.aiqutepets.util;
 
 import com.aiqutepets.config.ThirdPartyConfig;
 import com.aiqutepets.entity.DeviceInfo;
-import com.aiqutepets.mapper.DeviceInfoMapper;
+import com.aiqutepets.enums.UpstreamEndpoint;
+import com.aiqutepets.service.DeviceInfoService;
 import com.aiqutepets.vo.AiBadgeListVO;
 import com.aiqutepets.vo.AiDiaryDateVO;
 import com.aiqutepets.vo.AiDiaryDetailVO;
@@ -15,12 +16,9 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.net.URI;
 import java.util.*;
-import javax.crypto.Cipher;
-import javax.crypto.spec.SecretKeySpec;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 第三方接口客户端工具类
@@ -52,7 +50,25 @@ public class ThirdPartyClient {
     private ThirdPartyConfig thirdPartyConfig;
 
     @Autowired
-    private DeviceInfoMapper deviceInfoMapper;
+    private DeviceInfoService deviceInfoService;
+
+    @Autowired
+    private ThirdPartyResponseReader responseReader;
+
+    @Autowired
+    private ThirdPartySigner signer;
+
+    @Autowired
+    private ThirdPartyAsyncClient asyncClient;
+
+    @Autowired
+    private UpstreamCallCoalescer coalescer;
+
+    @Autowired
+    private UpstreamGuard upstreamGuard;
+
+    @Autowired
+    private UpstreamHedger hedger;
 
     /**
      * 生成签名
@@ -72,70 +88,74 @@ public class ThirdPartyClient {
      * @return MD5 签名字符串（32位小写）
      */
     public String generateSignature(Map<String, Object> params, String secretKey) {
-        // 1. 过滤掉 signature 参数（如果存在）
-        Map<String, Object> filteredParams = new TreeMap<>();
-        for (Map.Entry<String, Object> entry : params.entrySet()) {
-            if (!"signature".equalsIgnoreCase(entry.getKey()) && entry.getValue() != null) {
-                filteredParams.put(entry.getKey(), entry.getValue());
-            }
-        }
-
-        // 2. 按 key 升序排序并拼接（TreeMap 自动排序）
-        StringBuilder sb = new StringBuilder();
-        for (Map.Entry<String, Object> entry : filteredParams.entrySet()) {
-            if (sb.length() > 0) {
-                sb.append("&");
-            }
-            sb.append(entry.getKey()).append("=").append(entry.getValue());
-        }
-
-        // 3. 末尾追加 secretkey
-        sb.append("&secretkey=").append(secretKey);
-
-        // 4. 转小写后 MD5 加密
-        String stringToSign = sb.toString().toLowerCase();
-        log.debug("待签名字符串: {}", stringToSign);
-
-        return md5(stringToSign);
+        return signer.sign(params, secretKey, ThirdPartySigner.Dialect.SECRETKEY_PARAM_LOWERCASE);
     }
 
     /**
-     * MD5 加密
+     * 发送带签名的 GET 请求
+     * 
+     * <p>
+     * 自动添加 timestamp 和 signature 参数
+     * </p>
      *
-     * @param input 输入字符串
-     * @return 32位小写 MD5 值
+     * @param url       请求 URL（不含 query 参数）
+     * @param params    请求参数
+     * @param secretKey 设备密钥
+     * @return 响应结果
      */
-    private String md5(String input) {
+    public String sendGetRequest(String url, Map<String, Object> params, String secretKey) {
+        String fullUrl = buildSignedUrl(url, params, secretKey);
+        log.info("发送第三方请求: {}", fullUrl);
+
         try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] digest = md.digest(input.getBytes(StandardCharsets.UTF_8));
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : digest) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("MD5 算法不可用", e);
+            ResponseEntity<String> response = restTemplate.getForEntity(fullUrl, String.class);
+            log.info("第三方接口响应: status={}", response.getStatusCode());
+            // 处理响应（含解密逻辑）
+            return processResponse(response, secretKey);
+        } catch (Exception e) {
+            log.error("第三方接口请求失败: {}", e.getMessage(), e);
+            throw new RuntimeException("第三方接口请求失败: " + e.getMessage(), e);
         }
     }
 
     /**
-     * 发送带签名的 GET 请求
-     * 
+     * 发送带签名的 GET 请求，并将响应流直接绑定为目标类型
+     *
      * <p>
-     * 自动添加 timestamp 和 signature 参数
+     * 响应体只读取一次：明文/密文判断、解密与 JSON 绑定均在同一条流水线中完成，
+     * 兼容 {"data": ...} 包装格式。
      * </p>
      *
+     * @param url          请求 URL（不含 query 参数）
+     * @param params       请求参数
+     * @param secretKey    设备密钥
+     * @param responseType 目标类型
+     * @return 绑定结果；响应为空或格式不匹配时返回 null
+     */
+    public <T> T sendGetRequest(String url, Map<String, Object> params, String secretKey, Class<T> responseType) {
+        String fullUrl = buildSignedUrl(url, params, secretKey);
+        log.info("发送第三方请求: {}", fullUrl);
+
+        try {
+            return restTemplate.execute(URI.create(fullUrl), HttpMethod.GET, null, response -> {
+                log.info("第三方接口响应: status={}", response.getStatusCode());
+                return responseReader.read(response, responseType);
+            });
+        } catch (Exception e) {
+            log.error("第三方接口请求失败: {}", e.getMessage(), e);
+            throw new RuntimeException("第三方接口请求失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 构建带 timestamp 和 signature 的完整 GET 请求 URL
+     *
      * @param url       请求 URL（不含 query 参数）
      * @param params    请求参数
      * @param secretKey 设备密钥
-     * @return 响应结果
+     * @return 编码后的完整 URL
      */
-    public String sendGetRequest(String url, Map<String, Object> params, String secretKey) {
+    private String buildSignedUrl(String url, Map<String, Object> params, String secretKey) {
         // 1. 添加 timestamp
         Map<String, Object> allParams = new HashMap<>(params);
         allParams.put("timestamp", System.currentTimeMillis());
@@ -149,20 +169,7 @@ public class ThirdPartyClient {
         for (Map.Entry<String, Object> entry : allParams.entrySet()) {
             builder.queryParam(entry.getKey(), entry.getValue());
         }
-        String fullUrl = builder.toUriString();
-
-        log.info("发送第三方请求: {}", fullUrl);
-
-        // 4. 发送请求
-        try {
-            ResponseEntity<String> response = restTemplate.getForEntity(fullUrl, String.class);
-            log.info("第三方接口响应: status={}", response.getStatusCode());
-            // 处理响应（含解密逻辑）
-            return processResponse(response, secretKey);
-        } catch (Exception e) {
-            log.error("第三方接口请求失败: {}", e.getMessage(), e);
-            throw new RuntimeException("第三方接口请求失败: " + e.getMessage(), e);
-        }
+        return builder.toUriString();
     }
 
     /**
@@ -209,7 +216,7 @@ public class ThirdPartyClient {
      * 解密触发条件（满足其一）：
      * <ol>
      * <li>响应头包含 X-Encryption: true</li>
-     * <li>JSON 解析失败</li>
+     * <li>首个非空白字符不是 '{' 或 '['（非明文 JSON）</li>
      * </ol>
      * </p>
      *
@@ -223,30 +230,18 @@ public class ThirdPartyClient {
             return body;
         }
 
-        boolean needDecrypt = false;
-
-        // 方式1: 检查响应头标记
-        HttpHeaders headers = response.getHeaders();
-        List<String> encryptionHeader = headers.get("X-Encryption");
-        if (encryptionHeader != null && encryptionHeader.contains("true")) {
-            needDecrypt = true;
+        boolean needDecrypt = responseReader.isEncryptedByHeader(response.getHeaders());
+        if (needDecrypt) {
             log.debug("检测到加密响应头 X-Encryption: true");
-        }
-
-        // 方式2: 尝试解析 JSON，如果失败则尝试解密
-        if (!needDecrypt) {
-            try {
-                objectMapper.readTree(body);
-            } catch (Exception e) {
-                log.debug("JSON 解析失败，尝试解密响应内容");
-                needDecrypt = true;
-            }
+        } else if (!responseReader.looksLikeJson(body)) {
+            log.debug("响应不是明文 JSON，尝试解密响应内容");
+            needDecrypt = true;
         }
 
         // 执行解密
         if (needDecrypt && secretKey != null && !secretKey.isEmpty()) {
             try {
-                body = aesDecrypt(body, secretKey);
+                body = responseReader.decryptToString(body);
                 log.debug("报文解密成功");
             } catch (Exception e) {
                 log.warn("报文解密失败，返回原始内容: {}", e.getMessage());
@@ -256,59 +251,6 @@ public class ThirdPartyClient {
         return body;
     }
 
-    /**
-     * AES 解密（ECB 模式）
-     * 
-     * <p>
-     * 根据《AI 玩具接入文档》1.3.1 节：
-     * <ul>
-     * <li>算法: AES/ECB/PKCS5Padding</li>
-     * <li>密钥: 固定密钥 "885ee6378f2b29c8" (16位，AES-128)</li>
-     * </ul>
-     * </p>
-     * 
-     * <p>
-     * 解密流程:
-     * <ol>
-     * <li>获取响应的 Base64 字符串</li>
-     * <li>Base64 解码 -> 得到字节数组 byte[]</li>
-     * <li>AES 解密 (ECB模式, 无IV) -> 得到解密后的 byte[]</li>
-     * <li>转 UTF-8 字符串 -> 解析 JSON</li>
-     * </ol>
-     * </p>
-     *
-     * @param encryptedData Base64 编码的加密数据
-     * @param secretKey     此参数暂不使用，保留以兼容接口（实际使用固定密钥）
-     * @return 解密后的明文
-     */
-    private String aesDecrypt(String encryptedData, String secretKey) {
-        // 固定解密密钥（参考《AI 玩具接入文档》1.3.1 节）
-        final String DECRYPT_KEY = "885ee6378f2b29c8";
-
-        try {
-            // 1. 创建 AES/ECB/PKCS5Padding 解密器
-            Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
-
-            // 2. 使用固定密钥（16位，AES-128）
-            byte[] keyBytes = DECRYPT_KEY.getBytes(StandardCharsets.UTF_8);
-            SecretKeySpec keySpec = new SecretKeySpec(keyBytes, "AES");
-            cipher.init(Cipher.DECRYPT_MODE, keySpec);
-
-            // 3. Base64 解码 -> AES 解密
-            byte[] encryptedBytes = Base64.getDecoder().decode(encryptedData);
-            byte[] decryptedBytes = cipher.doFinal(encryptedBytes);
-
-            // 4. 转 UTF-8 字符串
-            String result = new String(decryptedBytes, StandardCharsets.UTF_8);
-            log.debug("AES 解密成功，明文长度: {} 字符", result.length());
-            return result;
-
-        } catch (Exception e) {
-            log.error("AES 解密失败: {}", e.getMessage());
-            throw new RuntimeException("报文解密失败", e);
-        }
-    }
-
     // ==================== 具体业务方法 ====================
 
     /**
@@ -318,7 +260,7 @@ public class ThirdPartyClient {
      * @return 设备密钥
      */
     private String getSecretKey(String deviceUid) {
-        DeviceInfo device = deviceInfoMapper.selectByDeviceUid(deviceUid);
+        DeviceInfo device = deviceInfoService.getByDeviceUid(deviceUid);
         if (device == null) {
             throw new RuntimeException("设备不存在: " + deviceUid);
         }
@@ -342,7 +284,8 @@ public class ThirdPartyClient {
         params.put("endDate", endDate);
 
         String url = thirdPartyConfig.getBaseUrl() + thirdPartyConfig.getDiaryListUrl();
-        return sendGetRequest(url, params, secretKey);
+        return upstreamGuard.call(UpstreamEndpoint.DIARY_LIST, deviceUid,
+                () -> sendGetRequest(url, params, secretKey));
     }
 
     /**
@@ -361,7 +304,8 @@ public class ThirdPartyClient {
         params.put("endDate", endDate);
 
         String url = thirdPartyConfig.getBaseUrl() + thirdPartyConfig.getDiaryListUrl();
-        return sendGetRequest(url, params, secretKey);
+        return upstreamGuard.call(UpstreamEndpoint.DIARY_LIST, deviceUid,
+                () -> sendGetRequest(url, params, secretKey));
     }
 
     /**
@@ -377,7 +321,8 @@ public class ThirdPartyClient {
         params.put("uid", deviceUid);
 
         String url = thirdPartyConfig.getBaseUrl() + thirdPartyConfig.getOtaStatusUrl();
-        return sendGetRequest(url, params, secretKey);
+        return upstreamGuard.call(UpstreamEndpoint.OTA_CHECK, deviceUid,
+                () -> sendGetRequest(url, params, secretKey));
     }
 
     /**
@@ -392,7 +337,8 @@ public class ThirdPartyClient {
         params.put("uid", deviceUid);
 
         String url = thirdPartyConfig.getBaseUrl() + thirdPartyConfig.getOtaStatusUrl();
-        return sendGetRequest(url, params, secretKey);
+        return upstreamGuard.call(UpstreamEndpoint.OTA_CHECK, deviceUid,
+                () -> sendGetRequest(url, params, secretKey));
     }
 
     // ==================== 记忆页面相关方法 ====================
@@ -413,6 +359,11 @@ public class ThirdPartyClient {
      * @return 日记日期列表
      */
     public AiDiaryDateVO[] getDiaryDates(String uid, String secretKey, String startDate, String endDate) {
+        if (hedger.isEnabled(UpstreamEndpoint.DIARY_DATES)) {
+            // 对冲依赖异步传输：同步调用改走异步版本并等待结果
+            return ThirdPartyAsyncClient.await(getDiaryDatesAsync(uid, secretKey, startDate, endDate));
+        }
+
         Map<String, Object> params = new HashMap<>();
         params.put("start_date", startDate);
         params.put("end_date", endDate);
@@ -420,24 +371,57 @@ public class ThirdPartyClient {
         String urlTemplate = thirdPartyConfig.getBaseUrl() + thirdPartyConfig.getDiaryDatesUrl();
         String url = urlTemplate.replace("{uid}", uid);
 
-        String responseJson = sendGetRequest(url, params, secretKey);
-
-        try {
-            JsonNode root = objectMapper.readTree(responseJson);
-            JsonNode dataNode = root.path("data");
-            if (dataNode.isArray()) {
-                return objectMapper.convertValue(dataNode, AiDiaryDateVO[].class);
-            }
-            // 如果 data 不是数组，尝试直接解析 root
-            if (root.isArray()) {
-                return objectMapper.convertValue(root, AiDiaryDateVO[].class);
+        return coalescer.execute(UpstreamEndpoint.DIARY_DATES, diaryDatesKey(uid, startDate, endDate), () -> {
+            AiDiaryDateVO[] dates = upstreamGuard.call(UpstreamEndpoint.DIARY_DATES, uid,
+                    () -> sendGetRequest(url, params, secretKey, AiDiaryDateVO[].class));
+            if (dates == null) {
+                log.warn("日记日期列表响应格式异常: uid={}", uid);
+                return new AiDiaryDateVO[0];
             }
-            log.warn("日记日期列表响应格式异常: {}", responseJson);
-            return new AiDiaryDateVO[0];
-        } catch (Exception e) {
-            log.error("解析日记日期列表失败: {}", e.getMessage(), e);
-            throw new RuntimeException("解析日记日期列表失败", e);
-        }
+            return dates;
+        });
+    }
+
+    /**
+     * 异步获取日记日期列表
+     *
+     * <p>
+     * 非阻塞版本的 {@link #getDiaryDates(String, String, String, String)}，等待上游期间不占用调用线程。
+     * </p>
+     *
+     * @param uid       设备 UID
+     * @param secretKey 设备密钥
+     * @param startDate 开始日期（格式：yyyy-MM-dd）
+     * @param endDate   结束日期（格式：yyyy-MM-dd）
+     * @return 日记日期列表的 Future，响应格式异常时以空数组完成
+     */
+    public CompletableFuture<AiDiaryDateVO[]> getDiaryDatesAsync(String uid, String secretKey, String startDate,
+            String endDate) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("start_date", startDate);
+        params.put("end_date", endDate);
+
+        String urlTemplate = thirdPartyConfig.getBaseUrl() + thirdPartyConfig.getDiaryDatesUrl();
+        String url = urlTemplate.replace("{uid}", uid);
+
+        return coalescer.executeAsync(UpstreamEndpoint.DIARY_DATES, diaryDatesKey(uid, startDate, endDate),
+                () -> upstreamGuard.callAsync(UpstreamEndpoint.DIARY_DATES, uid,
+                        () -> asyncClient.get(UpstreamEndpoint.DIARY_DATES, uid, buildSignedUrl(url, params, secretKey),
+                                AiDiaryDateVO[].class))
+                        .thenApply(dates -> {
+                            if (dates == null) {
+                                log.warn("日记日期列表响应格式异常: uid={}", uid);
+                                return new AiDiaryDateVO[0];
+                            }
+                            return dates;
+                        }));
+    }
+
+    /**
+     * 日记日期列表的请求合并 key
+     */
+    private static String diaryDatesKey(String uid, String startDate, String endDate) {
+        return uid + '|' + startDate + '|' + endDate;
     }
 
     /**
@@ -453,25 +437,38 @@ public class ThirdPartyClient {
      * @return 日记详情
      */
     public AiDiaryDetailVO getDiaryDetail(String uid, String secretKey, String date) {
+        if (hedger.isEnabled(UpstreamEndpoint.DIARY_DETAIL)) {
+            return ThirdPartyAsyncClient.await(getDiaryDetailAsync(uid, secretKey, date));
+        }
+
         Map<String, Object> params = new HashMap<>();
 
         String urlTemplate = thirdPartyConfig.getBaseUrl() + thirdPartyConfig.getDiaryDetailUrl();
         String url = urlTemplate.replace("{uid}", uid).replace("{date}", date);
 
-        String responseJson = sendGetRequest(url, params, secretKey);
+        return coalescer.execute(UpstreamEndpoint.DIARY_DETAIL, uid + '|' + date,
+                () -> upstreamGuard.call(UpstreamEndpoint.DIARY_DETAIL, uid,
+                        () -> sendGetRequest(url, params, secretKey, AiDiaryDetailVO.class)));
+    }
 
-        try {
-            JsonNode root = objectMapper.readTree(responseJson);
-            JsonNode dataNode = root.path("data");
-            if (!dataNode.isMissingNode() && dataNode.isObject()) {
-                return objectMapper.convertValue(dataNode, AiDiaryDetailVO.class);
-            }
-            // 如果没有 data 包装，直接解析 root
-            return objectMapper.convertValue(root, AiDiaryDetailVO.class);
-        } catch (Exception e) {
-            log.error("解析日记详情失败: {}", e.getMessage(), e);
-            throw new RuntimeException("解析日记详情失败", e);
-        }
+    /**
+     * 异步获取日记详情
+     *
+     * @param uid       设备 UID
+     * @param secretKey 设备密钥
+     * @param date      日期（格式：yyyy-MM-dd）
+     * @return 日记详情的 Future
+     */
+    public CompletableFuture<AiDiaryDetailVO> getDiaryDetailAsync(String uid, String secretKey, String date) {
+        Map<String, Object> params = new HashMap<>();
+
+        String urlTemplate = thirdPartyConfig.getBaseUrl() + thirdPartyConfig.getDiaryDetailUrl();
+        String url = urlTemplate.replace("{uid}", uid).replace("{date}", date);
+
+        return coalescer.executeAsync(UpstreamEndpoint.DIARY_DETAIL, uid + '|' + date,
+                () -> upstreamGuard.callAsync(UpstreamEndpoint.DIARY_DETAIL, uid,
+                        () -> asyncClient.get(UpstreamEndpoint.DIARY_DETAIL, uid, buildSignedUrl(url, params, secretKey),
+                                AiDiaryDetailVO.class)));
     }
 
     /**
@@ -486,26 +483,39 @@ public class ThirdPartyClient {
      * @return 徽章列表
      */
     public AiBadgeListVO getBadgeList(String uid, String secretKey) {
+        if (hedger.isEnabled(UpstreamEndpoint.BADGES)) {
+            return ThirdPartyAsyncClient.await(getBadgeListAsync(uid, secretKey));
+        }
+
         Map<String, Object> params = new HashMap<>();
         params.put("status", "all");
 
         String urlTemplate = thirdPartyConfig.getBaseUrl() + thirdPartyConfig.getBadgeListUrl();
         String url = urlTemplate.replace("{uid}", uid);
 
-        String responseJson = sendGetRequest(url, params, secretKey);
+        return coalescer.execute(UpstreamEndpoint.BADGES, uid,
+                () -> upstreamGuard.call(UpstreamEndpoint.BADGES, uid,
+                        () -> sendGetRequest(url, params, secretKey, AiBadgeListVO.class)));
+    }
 
-        try {
-            JsonNode root = objectMapper.readTree(responseJson);
-            JsonNode dataNode = root.path("data");
-            if (!dataNode.isMissingNode() && dataNode.isObject()) {
-                return objectMapper.convertValue(dataNode, AiBadgeListVO.class);
-            }
-            // 如果没有 data 包装，直接解析 root
-            return objectMapper.convertValue(root, AiBadgeListVO.class);
-        } catch (Exception e) {
-            log.error("解析徽章列表失败: {}", e.getMessage(), e);
-            throw new RuntimeException("解析徽章列表失败", e);
-        }
+    /**
+     * 异步获取徽章列表
+     *
+     * @param uid       设备 UID
+     * @param secretKey 设备密钥
+     * @return 徽章列表的 Future
+     */
+    public CompletableFuture<AiBadgeListVO> getBadgeListAsync(String uid, String secretKey) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("status", "all");
+
+        String urlTemplate = thirdPartyConfig.getBaseUrl() + thirdPartyConfig.getBadgeListUrl();
+        String url = urlTemplate.replace("{uid}", uid);
+
+        return coalescer.executeAsync(UpstreamEndpoint.BADGES, uid,
+                () -> upstreamGuard.callAsync(UpstreamEndpoint.BADGES, uid,
+                        () -> asyncClient.get(UpstreamEndpoint.BADGES, uid, buildSignedUrl(url, params, secretKey),
+                                AiBadgeListVO.class)));
     }
 
     /**
@@ -526,7 +536,8 @@ public class ThirdPartyClient {
         String urlTemplate = thirdPartyConfig.getBaseUrl() + thirdPartyConfig.getBadgeMarkShownUrl();
         String url = urlTemplate.replace("{device_uid}", deviceUid).replace("{badge_code}", badgeCode);
 
-        String responseJson = sendPostRequest(url, params, secretKey);
+        String responseJson = upstreamGuard.call(UpstreamEndpoint.BADGE_MARK_SHOWN, deviceUid,
+                () -> sendPostRequest(url, params, secretKey));
 
         try {
             JsonNode root = objectMapper.readTree(responseJson);
@@ -0,0 +1,105 @@
+package com.aiqutepets.util;
+
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+/**
+ * 第三方加密报文解密器
+ *
+ * <p>
+ * 根据《AI 玩具接入文档》1.3.1 节：报文为 Base64 编码的 AES/ECB/PKCS5Padding 密文，固定密钥 (16位，AES-128)。
+ * </p>
+ *
+ * <p>
+ * 每个线程缓存一个已初始化的 Cipher，避免每次响应都执行 Cipher.getInstance 与密钥构建；
+ * 直接对响应字节做 Base64 → AES → UTF-8 字节，不再产生 Base64 字符串和明文字符串拷贝。
+ * </p>
+ */
+@Component
+public class ThirdPartyPayloadDecryptor {
+
+    /**
+     * 固定解密密钥（参考《AI 玩具接入文档》1.3.1 节）
+     */
+    private static final String DECRYPT_KEY = "885ee6378f2b29c8";
+
+    private static final String TRANSFORMATION = "AES/ECB/PKCS5Padding";
+
+    private static final SecretKeySpec KEY_SPEC = new SecretKeySpec(
+            DECRYPT_KEY.getBytes(StandardCharsets.UTF_8), "AES");
+
+    private static final ThreadLocal<CipherState> STATE = new ThreadLocal<>();
+
+    /**
+     * 解密完整的 Base64 密文
+     *
+     * @param base64Bytes Base64 编码的密文字节（允许包含换行等空白）
+     * @return 明文字节
+     */
+    public byte[] decrypt(byte[] base64Bytes) throws IOException {
+        CipherState state = acquire();
+        try {
+            return state.cipher.doFinal(Base64.getMimeDecoder().decode(base64Bytes));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            state.reset();
+            throw new IOException("报文解密失败: " + e.getMessage(), e);
+        } finally {
+            state.release();
+        }
+    }
+
+    /**
+     * 获取当前线程的 Cipher；同一线程上若已有正在使用的实例，则临时新建一个，互不干扰
+     */
+    private CipherState acquire() throws IOException {
+        CipherState state = STATE.get();
+        if (state == null) {
+            state = new CipherState();
+            STATE.set(state);
+        }
+        if (state.inUse) {
+            state = new CipherState();
+        }
+        state.inUse = true;
+        return state;
+    }
+
+    /**
+     * 线程私有的 Cipher
+     */
+    private static final class CipherState {
+
+        private final Cipher cipher;
+        private boolean inUse;
+
+        CipherState() throws IOException {
+            try {
+                this.cipher = Cipher.getInstance(TRANSFORMATION);
+                this.cipher.init(Cipher.DECRYPT_MODE, KEY_SPEC);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("初始化 AES 解密器失败", e);
+            }
+        }
+
+        /**
+         * 解密失败时重置 Cipher 内部状态，保证下次复用从头开始
+         */
+        void reset() {
+            try {
+                cipher.init(Cipher.DECRYPT_MODE, KEY_SPEC);
+            } catch (GeneralSecurityException e) {
+                STATE.remove();
+            }
+        }
+
+        void release() {
+            inUse = false;
+        }
+    }
+}
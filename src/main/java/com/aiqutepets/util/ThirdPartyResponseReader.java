@@ -0,0 +1,268 @@
+package com.aiqutepets.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 第三方响应读取器（单次读取流水线）
+ *
+ * <p>
+ * 直接读取 HTTP 响应流，一次遍历即完成：
+ * </p>
+ * <ol>
+ * <li>根据响应头 X-Encryption 或首个非空白字节判断明文/密文（'{' 或 '[' 为明文 JSON）</li>
+ * <li>密文整包交给 {@link ThirdPartyPayloadDecryptor} 解密（Base64 → AES → UTF-8 字节）；解密失败时与原
+ * processResponse 一致，记录告警后按原始报文继续解析</li>
+ * <li>字节流直接交给 Jackson 绑定到目标 VO，自动兼容 {"data": ...} 包装与无包装两种格式</li>
+ * </ol>
+ *
+ * <p>
+ * 明文响应直接流式解析；全程不生成中间 String 和 JsonNode 树，也不依赖异常判断是否需要解密。
+ * </p>
+ */
+@Slf4j
+@Component
+public class ThirdPartyResponseReader {
+
+    /**
+     * 加密标记响应头
+     */
+    public static final String ENCRYPTION_HEADER = "X-Encryption";
+
+    /**
+     * 数据包装字段名
+     */
+    private static final String DATA_FIELD = "data";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ThirdPartyPayloadDecryptor payloadDecryptor;
+
+    /**
+     * 读取响应并绑定到目标类型
+     *
+     * @param response     HTTP 响应
+     * @param responseType 目标类型（VO 或 VO 数组）
+     * @return 绑定结果；响应体为空或格式不匹配时返回 null
+     * @throws IOException 读取或解析失败
+     */
+    public <T> T read(ClientHttpResponse response, Class<T> responseType) throws IOException {
+        return read(response.getBody(), isEncryptedByHeader(response.getHeaders()), responseType);
+    }
+
+    /**
+     * 读取响应流并绑定到目标类型
+     *
+     * @param body            响应流
+     * @param encryptedHeader 响应头是否声明了加密
+     * @param responseType    目标类型（VO 或 VO 数组）
+     * @return 绑定结果；响应体为空或格式不匹配时返回 null
+     * @throws IOException 读取或解析失败
+     */
+    public <T> T read(InputStream body, boolean encryptedHeader, Class<T> responseType) throws IOException {
+        InputStream jsonStream = openJsonStream(body, encryptedHeader);
+        if (jsonStream == null) {
+            return null;
+        }
+        JavaType javaType = objectMapper.getTypeFactory().constructType(responseType);
+        try (JsonParser parser = objectMapper.getFactory().createParser(jsonStream)) {
+            return bind(parser, javaType);
+        }
+    }
+
+    /**
+     * 读取响应流并将根节点整体绑定为目标类型（不拆 data 包装，适用于 VO 本身包含 status/data 字段的接口）
+     *
+     * @param body            响应流
+     * @param encryptedHeader 响应头是否声明了加密
+     * @param responseType    目标类型
+     * @return 绑定结果；响应体为空时返回 null
+     * @throws IOException 读取或解析失败
+     */
+    public <T> T readRoot(InputStream body, boolean encryptedHeader, Class<T> responseType) throws IOException {
+        InputStream jsonStream = openJsonStream(body, encryptedHeader);
+        if (jsonStream == null) {
+            return null;
+        }
+        try (InputStream in = jsonStream) {
+            return objectMapper.readValue(in, responseType);
+        }
+    }
+
+    /**
+     * 读取响应流为明文字符串（需要保留原始报文的场景，如 OTA 日志）
+     *
+     * @param body            响应流
+     * @param encryptedHeader 响应头是否声明了加密
+     * @return 明文报文；响应体为空时返回 null
+     * @throws IOException 读取失败
+     */
+    public String readString(InputStream body, boolean encryptedHeader) throws IOException {
+        InputStream jsonStream = openJsonStream(body, encryptedHeader);
+        if (jsonStream == null) {
+            return null;
+        }
+        try (InputStream in = jsonStream) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 跳过前导空白并按需解密
+     *
+     * <p>
+     * 密文需读完整包才能确认填充是否正确，因此整包读入后解密；解密失败（非 Base64、密钥不符等）时
+     * 返回原始报文，由后续 JSON 解析决定成败，与原 processResponse 的回退行为一致。
+     * </p>
+     *
+     * @return 明文 JSON 字节流（解密失败时为原始报文）；响应体为空时返回 null
+     */
+    private InputStream openJsonStream(InputStream body, boolean encryptedHeader) throws IOException {
+        if (body == null) {
+            return null;
+        }
+
+        // 1. 跳过前导空白，窥视首个有效字节
+        PushbackInputStream in = new PushbackInputStream(body, 1);
+        int first = firstSignificantByte(in);
+        if (first == -1) {
+            in.close();
+            return null;
+        }
+        in.unread(first);
+
+        // 2. 判断是否需要解密
+        if (encryptedHeader || !isJsonStart(first)) {
+            log.debug("检测到加密响应，执行解密: header={}", encryptedHeader);
+            byte[] raw;
+            try (InputStream cipherText = in) {
+                raw = cipherText.readAllBytes();
+            }
+            try {
+                return new ByteArrayInputStream(payloadDecryptor.decrypt(raw));
+            } catch (IOException e) {
+                log.warn("报文解密失败，返回原始内容: {}", e.getMessage());
+                return new ByteArrayInputStream(raw);
+            }
+        }
+        return in;
+    }
+
+    /**
+     * 判断响应头是否声明了加密
+     */
+    public boolean isEncryptedByHeader(HttpHeaders headers) {
+        List<String> encryptionHeader = headers.get(ENCRYPTION_HEADER);
+        return encryptionHeader != null && encryptionHeader.contains("true");
+    }
+
+    /**
+     * 判断字符串响应是否为明文 JSON（按首个非空白字符判断）
+     */
+    public boolean looksLikeJson(String body) {
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return isJsonStart(c);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * AES 解密字符串报文
+     *
+     * @param encryptedData Base64 编码的加密数据
+     * @return 解密后的明文
+     */
+    public String decryptToString(String encryptedData) {
+        try {
+            byte[] plain = payloadDecryptor.decrypt(encryptedData.trim().getBytes(StandardCharsets.US_ASCII));
+            return new String(plain, StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            log.error("AES 解密失败: {}", e.getMessage());
+            throw new RuntimeException("报文解密失败", e);
+        }
+    }
+
+    /**
+     * 按目标类型绑定，兼容 data 包装
+     *
+     * <ul>
+     * <li>数组类型：根为数组直接绑定；根为对象则取 data 数组</li>
+     * <li>对象类型：存在 data 对象则绑定 data；否则把根对象本身绑定为 VO</li>
+     * </ul>
+     */
+    private <T> T bind(JsonParser parser, JavaType javaType) throws IOException {
+        JsonToken rootToken = parser.nextToken();
+        boolean expectArray = javaType.isArrayType() || javaType.isCollectionLikeType();
+        JsonToken expectedDataToken = expectArray ? JsonToken.START_ARRAY : JsonToken.START_OBJECT;
+
+        if (rootToken == JsonToken.START_ARRAY) {
+            return expectArray ? objectMapper.readValue(parser, javaType) : null;
+        }
+        if (rootToken != JsonToken.START_OBJECT) {
+            return null;
+        }
+
+        // 根对象的非 data 字段暂存为 token 序列，用于无包装格式的兜底绑定
+        TokenBuffer rootFields = expectArray ? null : new TokenBuffer(parser);
+        if (rootFields != null) {
+            rootFields.writeStartObject();
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken valueToken = parser.nextToken();
+
+            if (DATA_FIELD.equals(fieldName) && valueToken == expectedDataToken) {
+                // 命中 data 包装，直接绑定，剩余字段无需再读
+                return objectMapper.readValue(parser, javaType);
+            }
+
+            if (rootFields != null) {
+                rootFields.writeFieldName(fieldName);
+                rootFields.copyCurrentStructure(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (rootFields == null) {
+            return null;
+        }
+        rootFields.writeEndObject();
+        try (JsonParser bufferedParser = rootFields.asParser(parser.getCodec())) {
+            return objectMapper.readValue(bufferedParser, javaType);
+        }
+    }
+
+    private static int firstSignificantByte(InputStream in) throws IOException {
+        int b;
+        do {
+            b = in.read();
+        } while (b == ' ' || b == '\n' || b == '\r' || b == '\t');
+        return b;
+    }
+
+    private static boolean isJsonStart(int c) {
+        return c == '{' || c == '[';
+    }
+}
@@ -0,0 +1,257 @@
+package com.aiqutepets.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * 第三方接口签名组件（MD5）
+ *
+ * <p>
+ * 统一 {@link ThirdPartyClient} 与 OTA 服务两套签名规则，通过 {@link Dialect} 显式区分：
+ * </p>
+ * <ul>
+ * <li>{@link Dialect#SECRETKEY_PARAM_LOWERCASE}：排除 signature 与值为 null 的参数，key=value&...&secretkey=xxx，
+ * 整体转小写后 MD5（AI 玩具接入文档 1.4 节）</li>
+ * <li>{@link Dialect#RAW_KEY_SUFFIX}：全部参数（null 值写作 "null"），key=value&...xxx（末尾直接拼接密钥，不转小写）后 MD5
+ * （设备管理 OTA 接口）</li>
+ * </ul>
+ *
+ * <p>
+ * 实现上不拼接中间字符串：参数按 key 升序直接以 UTF-8 编码写入线程私有的可复用字节缓冲区，
+ * 每个线程复用一个 MessageDigest，并用查表法输出 32 位小写十六进制，单次签名只产生结果字符串一次分配。
+ * 转小写时纯 ASCII 片段逐字节转换；含非 ASCII 字符的片段使用 String#toLowerCase(Locale.ROOT)，
+ * 保留特殊大小写映射（如 İ、词尾 Σ）的结果与原整体 toLowerCase 一致。
+ * </p>
+ */
+@Slf4j
+@Component
+public class ThirdPartySigner {
+
+    /**
+     * 签名规则
+     */
+    public enum Dialect {
+
+        /**
+         * 排除 signature 与 null 值参数，末尾追加 &secretkey=xxx，整体转小写
+         */
+        SECRETKEY_PARAM_LOWERCASE,
+
+        /**
+         * 全部参数参与签名，末尾直接追加密钥，保持原始大小写
+         */
+        RAW_KEY_SUFFIX
+    }
+
+    /**
+     * 签名参数名（参与排序前需排除）
+     */
+    private static final String SIGNATURE_PARAM = "signature";
+
+    private static final byte[] SECRETKEY_PARAM = "&secretkey=".getBytes(StandardCharsets.US_ASCII);
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<SignState> STATE = ThreadLocal.withInitial(SignState::new);
+
+    /**
+     * 生成签名
+     *
+     * @param params    请求参数（SECRETKEY_PARAM_LOWERCASE 规则下 signature 与值为 null 的参数不参与签名）
+     * @param secretKey 设备密钥
+     * @param dialect   签名规则
+     * @return 32 位小写 MD5 签名
+     */
+    public String sign(Map<String, ?> params, String secretKey, Dialect dialect) {
+        boolean lowercase = dialect == Dialect.SECRETKEY_PARAM_LOWERCASE;
+        SignState state = STATE.get();
+        state.reset();
+
+        // 1. 按 key 升序拼接 key=value&key=value
+        boolean first = true;
+        if (params instanceof SortedMap && ((SortedMap<String, ?>) params).comparator() == null) {
+            for (Map.Entry<String, ?> entry : params.entrySet()) {
+                first = appendParam(state, entry.getKey(), entry.getValue(), first, lowercase);
+            }
+        } else {
+            String[] keys = params.keySet().toArray(new String[0]);
+            Arrays.sort(keys);
+            for (String key : keys) {
+                first = appendParam(state, key, params.get(key), first, lowercase);
+            }
+        }
+
+        // 2. 追加密钥
+        if (lowercase) {
+            state.write(SECRETKEY_PARAM);
+        }
+        if (secretKey != null) {
+            state.write(secretKey, lowercase);
+        } else {
+            state.write("null", false);
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("待签名字符串: {}", new String(state.buf, 0, state.len, StandardCharsets.UTF_8));
+        }
+
+        // 3. MD5 + 十六进制
+        return state.md5Hex();
+    }
+
+    private static boolean appendParam(SignState state, String key, Object value, boolean first, boolean lowercase) {
+        if (lowercase && (value == null || SIGNATURE_PARAM.equalsIgnoreCase(key))) {
+            return first;
+        }
+        if (!first) {
+            state.write((byte) '&');
+        }
+        state.write(key, lowercase);
+        state.write((byte) '=');
+        if (value instanceof Long || value instanceof Integer) {
+            state.writeLong(((Number) value).longValue());
+        } else {
+            state.write(String.valueOf(value), lowercase);
+        }
+        return false;
+    }
+
+    /**
+     * 线程私有的签名状态：复用的字节缓冲区、MessageDigest 与输出缓冲
+     */
+    private static final class SignState {
+
+        private final MessageDigest md5;
+        private final byte[] digest = new byte[16];
+        private final char[] hex = new char[32];
+        private final byte[] digits = new byte[20];
+        private byte[] buf = new byte[256];
+        private int len;
+
+        SignState() {
+            try {
+                this.md5 = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("MD5 算法不可用", e);
+            }
+        }
+
+        void reset() {
+            len = 0;
+        }
+
+        void write(byte b) {
+            ensureCapacity(1);
+            buf[len++] = b;
+        }
+
+        void write(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buf, len, bytes.length);
+            len += bytes.length;
+        }
+
+        /**
+         * 以 UTF-8 编码写入字符串，可选按 Locale.ROOT 规则转小写
+         */
+        void write(String s, boolean lowercase) {
+            if (lowercase && !isAscii(s)) {
+                // 非 ASCII 的大小写映射可能改变长度或依赖上下文，交给 String#toLowerCase
+                s = s.toLowerCase(Locale.ROOT);
+                lowercase = false;
+            }
+            ensureCapacity(s.length() * 3);
+            for (int i = 0; i < s.length(); i++) {
+                int cp = s.charAt(i);
+                if (Character.isHighSurrogate((char) cp) && i + 1 < s.length()
+                        && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    cp = Character.toCodePoint((char) cp, s.charAt(++i));
+                }
+                if (lowercase && cp >= 'A' && cp <= 'Z') {
+                    cp += 'a' - 'A';
+                }
+                if (cp < 0x80) {
+                    buf[len++] = (byte) cp;
+                } else if (cp < 0x800) {
+                    buf[len++] = (byte) (0xC0 | (cp >> 6));
+                    buf[len++] = (byte) (0x80 | (cp & 0x3F));
+                } else if (cp < 0x10000) {
+                    if (Character.isSurrogate((char) cp)) {
+                        // 孤立代理项与 String#getBytes 行为保持一致，替换为 '?'
+                        buf[len++] = '?';
+                        continue;
+                    }
+                    buf[len++] = (byte) (0xE0 | (cp >> 12));
+                    buf[len++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    buf[len++] = (byte) (0x80 | (cp & 0x3F));
+                } else {
+                    buf[len++] = (byte) (0xF0 | (cp >> 18));
+                    buf[len++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    buf[len++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    buf[len++] = (byte) (0x80 | (cp & 0x3F));
+                }
+            }
+        }
+
+        /**
+         * 直接写入十进制数字，避免 Long#toString 的临时字符串
+         */
+        void writeLong(long value) {
+            if (value == Long.MIN_VALUE) {
+                write(String.valueOf(value), false);
+                return;
+            }
+            if (value < 0) {
+                write((byte) '-');
+                value = -value;
+            }
+            int pos = digits.length;
+            do {
+                digits[--pos] = (byte) ('0' + (value % 10));
+                value /= 10;
+            } while (value != 0);
+            ensureCapacity(digits.length - pos);
+            System.arraycopy(digits, pos, buf, len, digits.length - pos);
+            len += digits.length - pos;
+        }
+
+        private static boolean isAscii(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                if (s.charAt(i) >= 0x80) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String md5Hex() {
+            md5.update(buf, 0, len);
+            try {
+                md5.digest(digest, 0, digest.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException("MD5 计算失败", e);
+            }
+            for (int i = 0; i < digest.length; i++) {
+                int v = digest[i] & 0xFF;
+                hex[i * 2] = HEX_DIGITS[v >>> 4];
+                hex[i * 2 + 1] = HEX_DIGITS[v & 0x0F];
+            }
+            return new String(hex);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (len + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.aiqutepets.util;
+
+import com.aiqutepets.enums.UpstreamEndpoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * 上游请求合并器（Single-Flight）
+ *
+ * <p>
+ * 以「接口 + 业务参数」为 key，同一时刻相同的上游请求只真正发出一次，
+ * 其余并发调用方等待并共享同一个结果（或同一个异常）。
+ * 适用于多位家庭成员同时打开 App、客户端重试等场景。
+ * </p>
+ *
+ * <p>
+ * 指标：thirdparty.coalesce.calls{endpoint}（实际发出）与 thirdparty.coalesce.collapsed{endpoint}（被合并）。
+ * </p>
+ *
+ * <p>
+ * <b>注意：</b>合并后的结果对象由多个调用方共享，调用方不应修改返回的 VO。
+ * </p>
+ */
+@Slf4j
+@Component
+public class UpstreamCallCoalescer {
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 同步执行（相同 key 的并发调用合并为一次）
+     *
+     * @param endpoint 上游接口
+     * @param key      业务参数组成的 key（不含 timestamp/signature）
+     * @param call     实际调用
+     * @return 调用结果
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(UpstreamEndpoint endpoint, String key, Supplier<T> call) {
+        String flightKey = flightKey(endpoint, key);
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, mine);
+
+        if (existing != null) {
+            collapsedCounter(endpoint).increment();
+            log.debug("合并进行中的上游请求: endpoint={}, key={}", endpoint.getCode(), key);
+            return (T) await(existing);
+        }
+
+        callsCounter(endpoint).increment();
+        try {
+            T result = call.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, mine);
+        }
+    }
+
+    /**
+     * 异步执行（相同 key 的并发调用共享同一个 Future）
+     *
+     * @param endpoint 上游接口
+     * @param key      业务参数组成的 key（不含 timestamp/signature）
+     * @param call     发起实际调用的函数
+     * @return 调用结果的 Future
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> executeAsync(UpstreamEndpoint endpoint, String key,
+            Supplier<CompletableFuture<T>> call) {
+        String flightKey = flightKey(endpoint, key);
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, mine);
+
+        if (existing != null) {
+            collapsedCounter(endpoint).increment();
+            log.debug("合并进行中的上游异步请求: endpoint={}, key={}", endpoint.getCode(), key);
+            return (CompletableFuture<T>) (CompletableFuture<?>) existing.thenApply(r -> r);
+        }
+
+        callsCounter(endpoint).increment();
+        CompletableFuture<T> source;
+        try {
+            source = call.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(flightKey, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        source.whenComplete((result, error) -> {
+            inFlight.remove(flightKey, mine);
+            if (error != null) {
+                mine.completeExceptionally(error);
+            } else {
+                mine.complete(result);
+            }
+        });
+        // 发起方同样拿到派生的 Future，调用方对其 completeOnTimeout/cancel 不会影响合并进来的其他调用方
+        return source.thenApply(r -> r);
+    }
+
+    /**
+     * 当前进行中的合并请求数
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待上游请求结果被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    private static String flightKey(UpstreamEndpoint endpoint, String key) {
+        return endpoint.getCode() + ':' + key;
+    }
+
+    private Counter callsCounter(UpstreamEndpoint endpoint) {
+        return meterRegistry.counter("thirdparty.coalesce.calls", "endpoint", endpoint.getCode());
+    }
+
+    private Counter collapsedCounter(UpstreamEndpoint endpoint) {
+        return meterRegistry.counter("thirdparty.coalesce.collapsed", "endpoint", endpoint.getCode());
+    }
+}
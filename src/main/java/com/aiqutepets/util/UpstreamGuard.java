@@ -0,0 +1,394 @@
+package com.aiqutepets.util;
+
+import com.aiqutepets.common.UpstreamUnavailableException;
+import com.aiqutepets.config.ThirdPartyConfig;
+import com.aiqutepets.enums.UpstreamEndpoint;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 上游接口保护组件（限流 + 熔断器 + 舱壁）
+ *
+ * <p>
+ * 每个 {@link UpstreamEndpoint} 独立一套熔断器与舱壁状态，两者都放行后才经 {@link UpstreamRateLimiter}
+ * 获取接口级与设备级令牌，被熔断或舱壁拒绝的调用不消耗限流令牌；令牌获取失败时归还舱壁与熔断许可：
+ * </p>
+ * <ul>
+ * <li>熔断器：基于最近 N 次调用的计数窗口，失败（含慢调用）比例达到阈值后打开，
+ * 冷却期内直接拒绝；冷却结束进入半开状态，放行少量试探调用，全部成功才关闭</li>
+ * <li>舱壁：信号量限制单个接口的并发调用数，避免某个慢接口占满 Tomcat 线程与连接池</li>
+ * </ul>
+ *
+ * <p>
+ * 拒绝时抛出 {@link UpstreamUnavailableException}，调用方既有的 catch 分支会立即走兜底逻辑，不再等待超时。
+ * 上游返回的 4xx（如 4004 无记录）属于业务结果，不计为失败。
+ * </p>
+ *
+ * <p>
+ * 指标：thirdparty.circuit.state{endpoint}（0=关闭 1=打开 2=半开）、
+ * thirdparty.bulkhead.available{endpoint}、thirdparty.upstream.rejected{endpoint,reason}。
+ * </p>
+ */
+@Slf4j
+@Component
+public class UpstreamGuard {
+
+    private static final String REASON_CIRCUIT_OPEN = "circuit_open";
+    private static final String REASON_BULKHEAD_FULL = "bulkhead_full";
+
+    private final ConcurrentMap<UpstreamEndpoint, EndpointState> states = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ThirdPartyConfig thirdPartyConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UpstreamRateLimiter rateLimiter;
+
+    /**
+     * 同步调用上游接口
+     *
+     * @param endpoint  上游接口
+     * @param deviceUid 设备 UID（设备级限流与配额统计）
+     * @param call      实际调用
+     * @return 调用结果
+     * @throws UpstreamUnavailableException 调用频率超限、熔断打开或并发已满
+     */
+    public <T> T call(UpstreamEndpoint endpoint, String deviceUid, Supplier<T> call) {
+        EndpointState state = state(endpoint);
+        acquire(endpoint, state, thirdPartyConfig.getBulkheadMaxWait());
+        try {
+            rateLimiter.acquire(endpoint, deviceUid);
+        } catch (RuntimeException e) {
+            release(state);
+            throw e;
+        }
+
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            state.breaker.onResult(true, elapsedMillis(start));
+            return result;
+        } catch (RuntimeException | Error e) {
+            state.breaker.onResult(isClientError(e), elapsedMillis(start));
+            throw e;
+        } finally {
+            state.bulkhead.release();
+        }
+    }
+
+    /**
+     * 异步调用上游接口（不等待舱壁许可；限流排队不占用线程，排队期间保留舱壁与熔断许可，Future 完成时归还）
+     *
+     * @param endpoint  上游接口
+     * @param deviceUid 设备 UID（设备级限流与配额统计）
+     * @param call      发起实际调用的函数
+     * @return 调用结果的 Future；被拒绝时以 {@link UpstreamUnavailableException} 异常完成
+     */
+    public <T> CompletableFuture<T> callAsync(UpstreamEndpoint endpoint, String deviceUid,
+            Supplier<CompletableFuture<T>> call) {
+        EndpointState state = state(endpoint);
+        try {
+            acquire(endpoint, state, 0);
+        } catch (UpstreamUnavailableException e) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+        return rateLimiter.acquireAsync(endpoint, deviceUid)
+                .whenComplete((permit, e) -> {
+                    if (e != null) {
+                        release(state);
+                    }
+                })
+                .thenCompose(permit -> invokeAsync(state, call));
+    }
+
+    /**
+     * 不排队地调用上游接口（用于对冲等可放弃的额外请求），与普通调用共用限流令牌、舱壁与熔断器
+     *
+     * @param endpoint  上游接口
+     * @param deviceUid 设备 UID（设备级限流与配额统计）
+     * @param call      发起实际调用的函数
+     * @return 调用结果的 Future；并发已满、熔断打开或限流令牌不足时返回 null，不发出请求
+     */
+    public <T> CompletableFuture<T> tryCallAsync(UpstreamEndpoint endpoint, String deviceUid,
+            Supplier<CompletableFuture<T>> call) {
+        EndpointState state = state(endpoint);
+        if (!state.breaker.isCallPermitted() || !state.bulkhead.tryAcquire()) {
+            return null;
+        }
+        if (!state.breaker.tryAcquire()) {
+            state.bulkhead.release();
+            return null;
+        }
+        if (!rateLimiter.tryAcquireNow(endpoint, deviceUid)) {
+            release(state);
+            return null;
+        }
+        return invokeAsync(state, call);
+    }
+
+    /**
+     * 发起调用（已持有舱壁与熔断许可），Future 完成时记录结果并归还舱壁许可
+     */
+    private <T> CompletableFuture<T> invokeAsync(EndpointState state, Supplier<CompletableFuture<T>> call) {
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException | Error e) {
+            state.breaker.onResult(isClientError(e), elapsedMillis(start));
+            state.bulkhead.release();
+            throw e;
+        }
+        return future.whenComplete((result, error) -> {
+            state.breaker.onResult(error == null || isClientError(error), elapsedMillis(start));
+            state.bulkhead.release();
+        });
+    }
+
+    /**
+     * 依次检查熔断器（不占用半开试探名额）、获取舱壁许可与熔断许可
+     */
+    private void acquire(UpstreamEndpoint endpoint, EndpointState state, long maxWaitMillis) {
+        if (!state.breaker.isCallPermitted()) {
+            rejected(endpoint, REASON_CIRCUIT_OPEN);
+            throw new UpstreamUnavailableException(endpoint, "上游接口熔断中: " + endpoint.getDescription());
+        }
+        if (!tryAcquireBulkhead(state.bulkhead, maxWaitMillis)) {
+            rejected(endpoint, REASON_BULKHEAD_FULL);
+            throw new UpstreamUnavailableException(endpoint, "上游接口并发已满: " + endpoint.getDescription());
+        }
+        if (!state.breaker.tryAcquire()) {
+            state.bulkhead.release();
+            rejected(endpoint, REASON_CIRCUIT_OPEN);
+            throw new UpstreamUnavailableException(endpoint, "上游接口熔断中: " + endpoint.getDescription());
+        }
+    }
+
+    /**
+     * 归还未发出调用的舱壁与熔断许可
+     */
+    private static void release(EndpointState state) {
+        state.breaker.releasePermit();
+        state.bulkhead.release();
+    }
+
+    private static boolean tryAcquireBulkhead(Semaphore bulkhead, long maxWaitMillis) {
+        if (maxWaitMillis <= 0) {
+            return bulkhead.tryAcquire();
+        }
+        try {
+            return bulkhead.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void rejected(UpstreamEndpoint endpoint, String reason) {
+        log.warn("上游接口调用被拒绝: endpoint={}, reason={}", endpoint.getCode(), reason);
+        meterRegistry.counter("thirdparty.upstream.rejected",
+                "endpoint", endpoint.getCode(), "reason", reason).increment();
+    }
+
+    /**
+     * 上游明确返回 4xx 视为业务结果（接口本身健康），不计入熔断失败
+     */
+    private static boolean isClientError(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof HttpClientErrorException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private EndpointState state(UpstreamEndpoint endpoint) {
+        EndpointState state = states.get(endpoint);
+        if (state != null) {
+            return state;
+        }
+        return states.computeIfAbsent(endpoint, this::createState);
+    }
+
+    private EndpointState createState(UpstreamEndpoint endpoint) {
+        EndpointState state = new EndpointState(endpoint, thirdPartyConfig);
+        Gauge.builder("thirdparty.circuit.state", state.breaker, CircuitBreaker::stateCode)
+                .description("熔断器状态: 0=关闭 1=打开 2=半开")
+                .tag("endpoint", endpoint.getCode())
+                .register(meterRegistry);
+        Gauge.builder("thirdparty.bulkhead.available", state.bulkhead, Semaphore::availablePermits)
+                .description("舱壁剩余并发许可数")
+                .tag("endpoint", endpoint.getCode())
+                .register(meterRegistry);
+        return state;
+    }
+
+    /**
+     * 单个上游接口的保护状态
+     */
+    private static final class EndpointState {
+
+        private final CircuitBreaker breaker;
+        private final Semaphore bulkhead;
+
+        EndpointState(UpstreamEndpoint endpoint, ThirdPartyConfig config) {
+            this.breaker = new CircuitBreaker(endpoint, config);
+            this.bulkhead = new Semaphore(config.getBulkheadMaxConcurrentCalls());
+        }
+    }
+
+    /**
+     * 基于计数窗口的熔断器
+     */
+    private static final class CircuitBreaker {
+
+        private static final int CLOSED = 0;
+        private static final int OPEN = 1;
+        private static final int HALF_OPEN = 2;
+
+        private final UpstreamEndpoint endpoint;
+        private final boolean[] window;
+        private final int minimumCalls;
+        private final int failureRateThreshold;
+        private final long slowCallThresholdMillis;
+        private final long openMillis;
+        private final int halfOpenCalls;
+
+        private int state = CLOSED;
+        private int windowIndex;
+        private int windowCount;
+        private int windowFailures;
+        private long openedAt;
+        private int halfOpenPermits;
+        private int halfOpenSuccesses;
+
+        CircuitBreaker(UpstreamEndpoint endpoint, ThirdPartyConfig config) {
+            this.endpoint = endpoint;
+            this.window = new boolean[Math.max(1, config.getCircuitBreakerWindowSize())];
+            this.minimumCalls = Math.max(1, Math.min(config.getCircuitBreakerMinimumCalls(), window.length));
+            this.failureRateThreshold = config.getCircuitBreakerFailureRateThreshold();
+            this.slowCallThresholdMillis = config.getCircuitBreakerSlowCallThreshold();
+            this.openMillis = TimeUnit.SECONDS.toMillis(config.getCircuitBreakerOpenSeconds());
+            this.halfOpenCalls = Math.max(1, config.getCircuitBreakerHalfOpenCalls());
+        }
+
+        /**
+         * 当前是否会放行调用（只检查，不占用半开试探名额）
+         */
+        synchronized boolean isCallPermitted() {
+            if (state == OPEN) {
+                return System.currentTimeMillis() - openedAt >= openMillis;
+            }
+            return state != HALF_OPEN || halfOpenPermits < halfOpenCalls;
+        }
+
+        /**
+         * 是否允许本次调用
+         */
+        synchronized boolean tryAcquire() {
+            if (state == OPEN) {
+                if (System.currentTimeMillis() - openedAt < openMillis) {
+                    return false;
+                }
+                transitionTo(HALF_OPEN);
+            }
+            if (state == HALF_OPEN) {
+                if (halfOpenPermits >= halfOpenCalls) {
+                    return false;
+                }
+                halfOpenPermits++;
+            }
+            return true;
+        }
+
+        /**
+         * 归还未发出调用的许可（半开状态下退回试探名额）
+         */
+        synchronized void releasePermit() {
+            if (state == HALF_OPEN && halfOpenPermits > 0) {
+                halfOpenPermits--;
+            }
+        }
+
+        /**
+         * 记录调用结果
+         *
+         * @param success       调用是否成功
+         * @param elapsedMillis 调用耗时
+         */
+        synchronized void onResult(boolean success, long elapsedMillis) {
+            boolean failed = !success || elapsedMillis > slowCallThresholdMillis;
+
+            if (state == HALF_OPEN) {
+                if (failed) {
+                    transitionTo(OPEN);
+                } else if (++halfOpenSuccesses >= halfOpenCalls) {
+                    transitionTo(CLOSED);
+                }
+                return;
+            }
+            if (state == OPEN) {
+                // 打开前已放行的调用，结果不再影响状态
+                return;
+            }
+
+            if (windowCount == window.length) {
+                if (window[windowIndex]) {
+                    windowFailures--;
+                }
+            } else {
+                windowCount++;
+            }
+            window[windowIndex] = failed;
+            if (failed) {
+                windowFailures++;
+            }
+            windowIndex = (windowIndex + 1) % window.length;
+
+            if (windowCount >= minimumCalls && windowFailures * 100 >= failureRateThreshold * windowCount) {
+                log.warn("上游接口失败率 {}/{} 达到阈值，打开熔断: endpoint={}",
+                        windowFailures, windowCount, endpoint.getCode());
+                transitionTo(OPEN);
+            }
+        }
+
+        private void transitionTo(int newState) {
+            if (newState == OPEN) {
+                openedAt = System.currentTimeMillis();
+            }
+            if (newState == CLOSED) {
+                log.info("上游接口恢复，关闭熔断: endpoint={}", endpoint.getCode());
+            }
+            halfOpenPermits = 0;
+            halfOpenSuccesses = 0;
+            windowIndex = 0;
+            windowCount = 0;
+            windowFailures = 0;
+            state = newState;
+        }
+
+        synchronized int stateCode() {
+            return state;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.aiqutepets.util;
+
+import com.aiqutepets.config.ThirdPartyConfig;
+import com.aiqutepets.enums.UpstreamEndpoint;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 上游对冲请求组件（Hedged Request）
+ *
+ * <p>
+ * 对幂等 GET（{@link UpstreamEndpoint#isHedgeable()}）：请求耗时超过该接口近期耗时的指定分位数仍未返回时，
+ * 再发出一个完全相同的已签名请求，取先返回的结果，以削减长尾延迟。
+ * </p>
+ *
+ * <ul>
+ * <li>分位数基于每个接口最近 {@value #SAMPLE_SIZE} 次成功调用的耗时计算，样本不足时不对冲</li>
+ * <li>预算：每个普通请求积累 hedge-budget-percent 点额度，一次对冲消耗 100 点，
+ * 保证对冲带来的额外请求不超过该比例</li>
+ * <li>仅在主请求超时未返回时对冲；主请求已失败则直接失败，由熔断器处理</li>
+ * <li>对冲请求与普通请求一样经过 {@link UpstreamGuard}：占用限流令牌与舱壁许可、计入熔断统计；
+ * 令牌不足、并发已满或熔断打开时不对冲（不排队等待），只等待主请求</li>
+ * <li>落后的请求不会被取消（JDK 11 的 HttpClient 取消 Future 并不会中断请求，且需读完响应体归还连接），
+ * 其结果直接丢弃</li>
+ * </ul>
+ *
+ * <p>
+ * 指标：thirdparty.hedge.sent / thirdparty.hedge.won / thirdparty.hedge.budget_exhausted /
+ * thirdparty.hedge.rejected（按 endpoint），
+ * thirdparty.hedge.delay（当前对冲触发阈值，毫秒）。
+ * </p>
+ */
+@Slf4j
+@Component
+public class UpstreamHedger {
+
+    /**
+     * 每个接口保留的耗时样本数
+     */
+    private static final int SAMPLE_SIZE = 256;
+
+    /**
+     * 每新增多少个样本重新计算一次分位数
+     */
+    private static final int RECOMPUTE_INTERVAL = 32;
+
+    /**
+     * 一次对冲消耗的额度
+     */
+    private static final long HEDGE_COST = 100;
+
+    /**
+     * 额度上限（最多可连续对冲的次数 × 单次消耗），避免长时间空闲后突发大量对冲
+     */
+    private static final long MAX_CREDITS = 10 * HEDGE_COST;
+
+    private final ConcurrentMap<UpstreamEndpoint, EndpointStats> stats = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ThirdPartyConfig thirdPartyConfig;
+
+    @Autowired
+    private ThreadPoolTaskExecutor thirdPartyAsyncExecutor;
+
+    @Autowired
+    private UpstreamGuard upstreamGuard;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 该接口当前是否启用对冲
+     */
+    public boolean isEnabled(UpstreamEndpoint endpoint) {
+        return Boolean.TRUE.equals(thirdPartyConfig.getHedgeEnabled()) && endpoint.isHedgeable();
+    }
+
+    /**
+     * 执行（可能对冲的）上游请求
+     *
+     * @param endpoint  上游接口
+     * @param deviceUid 设备 UID（对冲请求的设备级限流）
+     * @param attempt   发起一次完整请求的函数（每次调用发出一个相同的请求）
+     * @return 先成功返回的结果
+     */
+    public <T> CompletableFuture<T> execute(UpstreamEndpoint endpoint, String deviceUid,
+            Supplier<CompletableFuture<T>> attempt) {
+        EndpointStats endpointStats = stats(endpoint);
+        CompletableFuture<T> primary = timed(endpointStats, attempt);
+        if (!isEnabled(endpoint)) {
+            return primary;
+        }
+
+        endpointStats.deposit(thirdPartyConfig.getHedgeBudgetPercent());
+        long delay = endpointStats.hedgeDelayMillis();
+        if (delay < 0) {
+            return primary;
+        }
+
+        HedgedCall<T> call = new HedgedCall<>();
+        primary.whenComplete((result, error) -> call.onAttemptComplete(result, error, false, endpoint));
+
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, thirdPartyAsyncExecutor).execute(() -> {
+            if (!call.tryStartBackup()) {
+                return;
+            }
+            if (!endpointStats.tryWithdraw()) {
+                call.abandonBackup();
+                meterRegistry.counter("thirdparty.hedge.budget_exhausted", "endpoint", endpoint.getCode())
+                        .increment();
+                return;
+            }
+            CompletableFuture<T> backup;
+            try {
+                backup = upstreamGuard.tryCallAsync(endpoint, deviceUid, () -> timed(endpointStats, attempt));
+            } catch (RuntimeException e) {
+                call.onAttemptComplete(null, e, true, endpoint);
+                return;
+            }
+            if (backup == null) {
+                // 限流令牌不足、并发已满或熔断打开：放弃对冲并退回额度
+                endpointStats.refund();
+                call.abandonBackup();
+                meterRegistry.counter("thirdparty.hedge.rejected", "endpoint", endpoint.getCode()).increment();
+                return;
+            }
+            log.debug("上游请求超过 {}ms 未返回，发出对冲请求: endpoint={}", delay, endpoint.getCode());
+            meterRegistry.counter("thirdparty.hedge.sent", "endpoint", endpoint.getCode()).increment();
+            backup.whenComplete((result, error) -> call.onAttemptComplete(result, error, true, endpoint));
+        });
+        return call.result;
+    }
+
+    /**
+     * 发起一次请求并记录成功调用的耗时
+     */
+    private static <T> CompletableFuture<T> timed(EndpointStats endpointStats,
+            Supplier<CompletableFuture<T>> attempt) {
+        long start = System.nanoTime();
+        return attempt.get().whenComplete((result, error) -> {
+            if (error == null) {
+                endpointStats.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        });
+    }
+
+    private EndpointStats stats(UpstreamEndpoint endpoint) {
+        EndpointStats endpointStats = stats.get(endpoint);
+        if (endpointStats != null) {
+            return endpointStats;
+        }
+        return stats.computeIfAbsent(endpoint, this::createStats);
+    }
+
+    private EndpointStats createStats(UpstreamEndpoint endpoint) {
+        EndpointStats endpointStats = new EndpointStats();
+        Gauge.builder("thirdparty.hedge.delay", endpointStats, EndpointStats::hedgeDelayMillis)
+                .description("当前对冲触发阈值（毫秒），-1 表示样本不足")
+                .tag("endpoint", endpoint.getCode())
+                .register(meterRegistry);
+        return endpointStats;
+    }
+
+    /**
+     * 一次对冲调用的状态：先成功者完成结果；全部失败时以第一个异常完成
+     */
+    private final class HedgedCall<T> {
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final AtomicInteger outstanding = new AtomicInteger(1);
+        private final AtomicReference<Throwable> firstError = new AtomicReference<>();
+
+        /**
+         * 占位对冲请求；主请求已结束时返回 false
+         */
+        boolean tryStartBackup() {
+            outstanding.incrementAndGet();
+            if (result.isDone()) {
+                abandonBackup();
+                return false;
+            }
+            return true;
+        }
+
+        void abandonBackup() {
+            finishOne();
+        }
+
+        void onAttemptComplete(T value, Throwable error, boolean backup, UpstreamEndpoint endpoint) {
+            if (error == null) {
+                if (result.complete(value) && backup) {
+                    meterRegistry.counter("thirdparty.hedge.won", "endpoint", endpoint.getCode()).increment();
+                }
+            } else {
+                firstError.compareAndSet(null, error);
+            }
+            finishOne();
+        }
+
+        /**
+         * 一个请求结束；全部结束且无成功结果时以第一个异常完成
+         */
+        private void finishOne() {
+            if (outstanding.decrementAndGet() == 0) {
+                Throwable error = firstError.get();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                }
+            }
+        }
+    }
+
+    /**
+     * 单个接口的耗时样本与对冲额度
+     */
+    private final class EndpointStats {
+
+        private final long[] samples = new long[SAMPLE_SIZE];
+        private final AtomicLong credits = new AtomicLong(MAX_CREDITS);
+        private int index;
+        private int count;
+        private int sinceRecompute;
+        private volatile long hedgeDelay = -1;
+
+        synchronized void record(long elapsedMillis) {
+            samples[index] = elapsedMillis;
+            index = (index + 1) % SAMPLE_SIZE;
+            if (count < SAMPLE_SIZE) {
+                count++;
+            }
+            if (++sinceRecompute >= RECOMPUTE_INTERVAL || (hedgeDelay < 0 && count >= minSamples())) {
+                sinceRecompute = 0;
+                hedgeDelay = computeDelay();
+            }
+        }
+
+        long hedgeDelayMillis() {
+            return hedgeDelay;
+        }
+
+        void deposit(int budgetPercent) {
+            credits.accumulateAndGet(budgetPercent, (current, add) -> Math.min(MAX_CREDITS, current + add));
+        }
+
+        void refund() {
+            credits.accumulateAndGet(HEDGE_COST, (current, add) -> Math.min(MAX_CREDITS, current + add));
+        }
+
+        boolean tryWithdraw() {
+            long current;
+            do {
+                current = credits.get();
+                if (current < HEDGE_COST) {
+                    return false;
+                }
+            } while (!credits.compareAndSet(current, current - HEDGE_COST));
+            return true;
+        }
+
+        private long computeDelay() {
+            if (count < minSamples()) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int percentile = Math.max(1, Math.min(99, thirdPartyConfig.getHedgePercentile()));
+            int rank = (int) Math.ceil(percentile / 100.0 * count) - 1;
+            return Math.max(thirdPartyConfig.getHedgeMinDelay(), sorted[Math.max(0, rank)]);
+        }
+
+        private int minSamples() {
+            return Math.max(1, Math.min(SAMPLE_SIZE, thirdPartyConfig.getHedgeMinSamples()));
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.aiqutepets.util;
+
+import com.aiqutepets.common.UpstreamUnavailableException;
+import com.aiqutepets.config.ThirdPartyConfig;
+import com.aiqutepets.enums.UpstreamEndpoint;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上游出站限流器（Redis 令牌桶，集群共享）
+ *
+ * <p>
+ * 每次调用上游前，在一个 Lua 脚本内原子地检查两个令牌桶：
+ * </p>
+ * <ul>
+ * <li>接口桶 thirdparty:ratelimit:ep:{endpoint}：限制整个集群对某个上游接口的调用速率</li>
+ * <li>设备桶 thirdparty:ratelimit:dev:{deviceUid}：限制单台设备（所有接口合计）的调用速率，
+ * 防止个别失控客户端耗尽整个平台配额</li>
+ * </ul>
+ *
+ * <p>
+ * 两个桶都有令牌时同时扣减并在 thirdparty:quota:{yyyyMMdd} 中累加该设备当日调用次数；
+ * 否则返回需要等待的毫秒数：不超过 rate-limit-max-wait 时短暂排队后重试，超过则直接拒绝（抛出
+ * {@link UpstreamUnavailableException}，由调用方走兜底）。
+ * </p>
+ *
+ * <p>
+ * Redis 不可用时放行（fail open），并在 rate-limit-redis-retry-seconds 内跳过限流，避免每次调用都等待 Redis 超时。
+ * </p>
+ */
+@Slf4j
+@Component
+public class UpstreamRateLimiter {
+
+    private static final String ENDPOINT_BUCKET_PREFIX = "thirdparty:ratelimit:ep:";
+    private static final String DEVICE_BUCKET_PREFIX = "thirdparty:ratelimit:dev:";
+    private static final String QUOTA_KEY_PREFIX = "thirdparty:quota:";
+
+    /**
+     * 设备每日调用计数保留天数
+     */
+    private static final long QUOTA_RETENTION_SECONDS = TimeUnit.DAYS.toSeconds(3);
+
+    private static final DateTimeFormatter QUOTA_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    /**
+     * KEYS: 接口桶, 设备桶, 当日配额 hash
+     * ARGV: 当前毫秒, 接口速率(/s), 接口容量, 设备速率(/s), 设备容量, 设备UID, 配额保留秒数
+     * 返回: 0 表示已获取令牌，否则为需要等待的毫秒数
+     */
+    private static final String TOKEN_BUCKET_SCRIPT = String.join("\n",
+            "local function available(key, rate, burst, now)",
+            "  local bucket = redis.call('HMGET', key, 'tokens', 'ts')",
+            "  local tokens = tonumber(bucket[1])",
+            "  local ts = tonumber(bucket[2])",
+            "  if tokens == nil or ts == nil then return burst end",
+            "  return math.min(burst, tokens + math.max(0, now - ts) * rate / 1000)",
+            "end",
+            "local function take(key, tokens, rate, burst, now)",
+            "  redis.call('HMSET', key, 'tokens', tokens - 1, 'ts', now)",
+            "  redis.call('PEXPIRE', key, math.ceil(burst * 1000 / rate) + 1000)",
+            "end",
+            "local now = tonumber(ARGV[1])",
+            "local epRate, epBurst = tonumber(ARGV[2]), tonumber(ARGV[3])",
+            "local devRate, devBurst = tonumber(ARGV[4]), tonumber(ARGV[5])",
+            "local ep = available(KEYS[1], epRate, epBurst, now)",
+            "local dev = available(KEYS[2], devRate, devBurst, now)",
+            "local wait = 0",
+            "if ep < 1 then wait = math.max(wait, math.ceil((1 - ep) * 1000 / epRate)) end",
+            "if dev < 1 then wait = math.max(wait, math.ceil((1 - dev) * 1000 / devRate)) end",
+            "if wait > 0 then return wait end",
+            "take(KEYS[1], ep, epRate, epBurst, now)",
+            "take(KEYS[2], dev, devRate, devBurst, now)",
+            "redis.call('HINCRBY', KEYS[3], ARGV[6], 1)",
+            "redis.call('EXPIRE', KEYS[3], ARGV[7])",
+            "return 0");
+
+    private static final DefaultRedisScript<Long> SCRIPT = new DefaultRedisScript<>(TOKEN_BUCKET_SCRIPT, Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ThirdPartyConfig thirdPartyConfig;
+
+    @Autowired
+    private ThreadPoolTaskExecutor thirdPartyAsyncExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Redis 故障后跳过限流的截止时间
+     */
+    private volatile long bypassUntil;
+
+    /**
+     * 同步获取调用许可，必要时短暂排队
+     *
+     * @param endpoint  上游接口
+     * @param deviceUid 设备 UID
+     * @throws UpstreamUnavailableException 等待时间超过上限
+     */
+    public void acquire(UpstreamEndpoint endpoint, String deviceUid) {
+        long deadline = System.currentTimeMillis() + thirdPartyConfig.getRateLimitMaxWait();
+        while (true) {
+            long wait = tryAcquire(endpoint, deviceUid);
+            if (wait <= 0) {
+                return;
+            }
+            if (System.currentTimeMillis() + wait > deadline) {
+                throw throttled(endpoint, deviceUid);
+            }
+            meterRegistry.counter("thirdparty.ratelimit.delayed", "endpoint", endpoint.getCode()).increment();
+            try {
+                TimeUnit.MILLISECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw throttled(endpoint, deviceUid);
+            }
+        }
+    }
+
+    /**
+     * 异步获取调用许可，排队期间不占用线程
+     *
+     * @param endpoint  上游接口
+     * @param deviceUid 设备 UID
+     * @return 获取到许可时完成；等待超过上限时以 {@link UpstreamUnavailableException} 异常完成
+     */
+    public CompletableFuture<Void> acquireAsync(UpstreamEndpoint endpoint, String deviceUid) {
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        acquireAsync(endpoint, deviceUid, System.currentTimeMillis() + thirdPartyConfig.getRateLimitMaxWait(),
+                permit);
+        return permit;
+    }
+
+    private void acquireAsync(UpstreamEndpoint endpoint, String deviceUid, long deadline,
+            CompletableFuture<Void> permit) {
+        long wait;
+        try {
+            wait = tryAcquire(endpoint, deviceUid);
+        } catch (RuntimeException e) {
+            permit.completeExceptionally(e);
+            return;
+        }
+        if (wait <= 0) {
+            permit.complete(null);
+            return;
+        }
+        if (System.currentTimeMillis() + wait > deadline) {
+            permit.completeExceptionally(throttled(endpoint, deviceUid));
+            return;
+        }
+        meterRegistry.counter("thirdparty.ratelimit.delayed", "endpoint", endpoint.getCode()).increment();
+        CompletableFuture.delayedExecutor(wait, TimeUnit.MILLISECONDS, thirdPartyAsyncExecutor)
+                .execute(() -> acquireAsync(endpoint, deviceUid, deadline, permit));
+    }
+
+    /**
+     * 不排队地获取调用许可（用于对冲等可放弃的额外请求）
+     *
+     * @param endpoint  上游接口
+     * @param deviceUid 设备 UID
+     * @return 是否获取到许可；令牌不足时不扣减、不等待
+     */
+    public boolean tryAcquireNow(UpstreamEndpoint endpoint, String deviceUid) {
+        return tryAcquire(endpoint, deviceUid) <= 0;
+    }
+
+    /**
+     * 查询设备某日的上游调用次数
+     *
+     * @param deviceUid 设备 UID
+     * @param date      日期
+     * @return 调用次数，无记录返回 0
+     */
+    public long getDailyCallCount(String deviceUid, LocalDate date) {
+        Object count = stringRedisTemplate.opsForHash().get(quotaKey(date), deviceUid);
+        return count == null ? 0 : Long.parseLong(count.toString());
+    }
+
+    /**
+     * 尝试获取令牌
+     *
+     * @return 0 表示获取成功，否则为建议等待的毫秒数
+     */
+    private long tryAcquire(UpstreamEndpoint endpoint, String deviceUid) {
+        if (!Boolean.TRUE.equals(thirdPartyConfig.getRateLimitEnabled()) || deviceUid == null) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        if (now < bypassUntil) {
+            return 0;
+        }
+
+        List<String> keys = Arrays.asList(
+                ENDPOINT_BUCKET_PREFIX + endpoint.getCode(),
+                DEVICE_BUCKET_PREFIX + deviceUid,
+                quotaKey(LocalDate.now()));
+        try {
+            Long wait = stringRedisTemplate.execute(SCRIPT, keys,
+                    String.valueOf(now),
+                    String.valueOf(thirdPartyConfig.getRateLimitEndpointPermitsPerSecond()),
+                    String.valueOf(thirdPartyConfig.getRateLimitEndpointBurst()),
+                    String.valueOf(thirdPartyConfig.getRateLimitDevicePermitsPerSecond()),
+                    String.valueOf(thirdPartyConfig.getRateLimitDeviceBurst()),
+                    deviceUid,
+                    String.valueOf(QUOTA_RETENTION_SECONDS));
+            return wait == null ? 0 : wait;
+        } catch (RuntimeException e) {
+            bypassUntil = now + TimeUnit.SECONDS.toMillis(thirdPartyConfig.getRateLimitRedisRetrySeconds());
+            log.warn("限流器访问 Redis 失败，暂时放行所有上游调用: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    private UpstreamUnavailableException throttled(UpstreamEndpoint endpoint, String deviceUid) {
+        log.warn("上游调用频率超限，拒绝请求: endpoint={}, deviceUid={}", endpoint.getCode(), deviceUid);
+        meterRegistry.counter("thirdparty.ratelimit.throttled", "endpoint", endpoint.getCode()).increment();
+        return new UpstreamUnavailableException(endpoint, "上游接口调用频率超限: " + endpoint.getDescription());
+    }
+
+    private static String quotaKey(LocalDate date) {
+        return QUOTA_KEY_PREFIX + date.format(QUOTA_DATE_FORMATTER);
+    }
+}
@@ -55,6 +55,27 @@ public class AiGrowthStatsVO {
          */
         @JsonProperty("next_level_requirements")
         private LevelValues nextLevelRequirements;
+
+        /**
+         * 当前等级亲密度进度百分比（0-100，向下取整）
+         * 下一等级所需亲密值为 0 或缺失时视为已满（100）
+         *
+         * @return 百分比；缺少当前/下一等级数值时返回 null
+         */
+        public Integer intimacyPercentage() {
+            if (currentLevelValues == null || nextLevelRequirements == null) {
+                return null;
+            }
+            Integer currentIntimacy = currentLevelValues.getIntimacyValue();
+            Integer nextIntimacy = nextLevelRequirements.getIntimacyValue();
+            if (nextIntimacy == null || nextIntimacy == 0) {
+                return 100;
+            }
+            if (currentIntimacy == null) {
+                return null;
+            }
+            return Math.min(100, (int) ((currentIntimacy * 100.0) / nextIntimacy));
+        }
     }
 
     /**
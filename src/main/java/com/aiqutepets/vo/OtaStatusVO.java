@@ -85,4 +85,21 @@ public class OtaStatusVO {
         // 有目标版本号才算有新版本
         return this.targetVersion != null && !this.targetVersion.isEmpty();
     }
+
+    /**
+     * 创建一个"查询失败"的兜底对象（result=0，按无升级状态处理）
+     *
+     * @param deviceUid  设备UID
+     * @param statusText 失败说明
+     * @return 兜底 VO
+     */
+    public static OtaStatusVO queryFailed(String deviceUid, String statusText) {
+        return OtaStatusVO.builder()
+                .deviceUid(deviceUid)
+                .result(0)
+                .status(OtaStatusEnum.NONE.getCode())
+                .statusText(statusText)
+                .hasNewVersion(false)
+                .build();
+    }
 }
@@ -0,0 +1,148 @@
+package com.aiqutepets.service.impl;
+
+import com.aiqutepets.vo.OtaFirmwareInfoVO;
+import com.aiqutepets.vo.OtaStatusVO;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OTA 响应解码器（{@link com.aiqutepets.util.JsonAliasDecoder}）与原 readTree + path(...) 解析的对比基准
+ *
+ * <p>
+ * legacy* 方法是 ThirdPartyOtaServiceImpl 中 parseOtaStatusResponse / parseFirmwareInfoResponse 原有的字段解析代码，
+ * 只保留字段提取部分（不含 statusText 等派生字段及 result != 1 时的提前返回），与解码器的输出逐字段对应，
+ * 等价性由 {@link OtaResponseDecoderTest} 校验。
+ * 运行（附带 GC 分析，关注 gc.alloc.rate.norm 即每次解析的分配字节数）：
+ * </p>
+ *
+ * <pre>
+ * mvn -B test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.aiqutepets.service.impl.OtaResponseDecoderBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OtaResponseDecoderBenchmark {
+
+    static final String OTA_STATUS_RESPONSE = "{\"result\":1,\"status\":4,\"current_version\":\"1.2.3\","
+            + "\"target_version\":\"1.3.0\",\"progress\":\"56\",\"update_description\":\"修复若干问题\","
+            + "\"deviceUid\":\"AQP-A1B2C3D4E5F6\",\"timestamp\":1760659200000}";
+
+    static final String FIRMWARE_INFO_RESPONSE = "{\"result\":1,\"msg\":\"ok\",\"is_update\":1,"
+            + "\"latestVersion\":\"1.3.0\",\"updateDescription\":\"1. 优化续航\\n2. 修复若干问题\","
+            + "\"publish_date\":\"2026-10-01\",\"file_size\":\"5242880\",\"is_force\":false,"
+            + "\"md5\":\"0f343b0931126a20f133d67c2b018a3b\",\"extra\":{\"channel\":\"stable\",\"regions\":[\"cn\",\"sg\"]}}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final JsonFactory jsonFactory = objectMapper.getFactory();
+
+    @Benchmark
+    public OtaStatusVO decoderOtaStatus() throws IOException {
+        return ThirdPartyOtaServiceImpl.OTA_STATUS_DECODER.decode(jsonFactory, OTA_STATUS_RESPONSE);
+    }
+
+    @Benchmark
+    public OtaStatusVO legacyOtaStatus() throws IOException {
+        return legacyOtaStatus(objectMapper, OTA_STATUS_RESPONSE);
+    }
+
+    @Benchmark
+    public OtaFirmwareInfoVO decoderFirmwareInfo() throws IOException {
+        return ThirdPartyOtaServiceImpl.FIRMWARE_INFO_DECODER.decode(jsonFactory, FIRMWARE_INFO_RESPONSE);
+    }
+
+    @Benchmark
+    public OtaFirmwareInfoVO legacyFirmwareInfo() throws IOException {
+        return legacyFirmwareInfo(objectMapper, FIRMWARE_INFO_RESPONSE);
+    }
+
+    /**
+     * 原 ThirdPartyOtaServiceImpl#parseOtaStatusResponse 的字段解析
+     */
+    static OtaStatusVO legacyOtaStatus(ObjectMapper objectMapper, String responseBody) throws IOException {
+        JsonNode root = objectMapper.readTree(responseBody);
+
+        int result = root.path("result").asInt(0);
+        int status = root.path("status").asInt(0);
+        String currentVersion = root.path("currentVersion").asText(
+                root.path("current_version").asText(""));
+        String targetVersion = root.path("targetVersion").asText(
+                root.path("target_version").asText(
+                        root.path("latestVersion").asText("")));
+        int progress = root.path("progress").asInt(0);
+        String updateDescription = root.path("updateDescription").asText(
+                root.path("update_description").asText(""));
+
+        return OtaStatusVO.builder()
+                .result(result)
+                .status(status)
+                .currentVersion(currentVersion)
+                .targetVersion(targetVersion)
+                .progress(progress)
+                .updateDescription(updateDescription)
+                .build();
+    }
+
+    /**
+     * 原 ThirdPartyOtaServiceImpl#parseFirmwareInfoResponse 的字段解析
+     */
+    static OtaFirmwareInfoVO legacyFirmwareInfo(ObjectMapper objectMapper, String responseBody) throws IOException {
+        JsonNode root = objectMapper.readTree(responseBody);
+
+        int result = root.path("result").asInt(0);
+        int isUpdate = root.path("isUpdate").asInt(
+                root.path("is_update").asInt(0));
+        String version = root.path("version").asText(
+                root.path("latestVersion").asText(""));
+        String description = root.path("description").asText(
+                root.path("updateDescription").asText(
+                        root.path("desc").asText("")));
+        String publishDate = root.path("publishDate").asText(
+                root.path("publish_date").asText(""));
+        long fileSize = root.path("fileSize").asLong(
+                root.path("file_size").asLong(0));
+        int isForce = root.path("isForce").asInt(
+                root.path("is_force").asInt(0));
+
+        return OtaFirmwareInfoVO.builder()
+                .result(result)
+                .isUpdate(isUpdate)
+                .version(version)
+                .description(description)
+                .publishDate(publishDate)
+                .fileSize(fileSize)
+                .isForce(isForce)
+                .build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(OtaResponseDecoderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
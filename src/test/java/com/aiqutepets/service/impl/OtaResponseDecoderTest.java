@@ -0,0 +1,104 @@
+package com.aiqutepets.service.impl;
+
+import com.aiqutepets.vo.OtaFirmwareInfoVO;
+import com.aiqutepets.vo.OtaStatusVO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * OTA 响应解码器与原 readTree + path(...) 解析（{@link OtaResponseDecoderBenchmark} 中的 legacy* 方法）的等价性校验
+ */
+class OtaResponseDecoderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            OtaResponseDecoderBenchmark.OTA_STATUS_RESPONSE,
+            // 驼峰命名
+            "{\"result\":1,\"status\":5,\"currentVersion\":\"1.2.3\",\"targetVersion\":\"1.3.0\",\"progress\":100,"
+                    + "\"updateDescription\":\"desc\"}",
+            // 多个别名同时出现时取别名列表中靠前者，与字段出现顺序无关
+            "{\"latestVersion\":\"c\",\"target_version\":\"b\",\"targetVersion\":\"a\",\"current_version\":\"y\","
+                    + "\"currentVersion\":\"x\"}",
+            "{\"latestVersion\":\"c\",\"target_version\":\"b\"}",
+            // null 视为不存在，继续使用后面的别名
+            "{\"targetVersion\":null,\"target_version\":null,\"latestVersion\":\"1.4.0\",\"currentVersion\":null,"
+                    + "\"result\":null,\"status\":null}",
+            // 数字文本、小数、带空白、空文本、非数字文本与布尔值
+            "{\"result\":\"1\",\"status\":\" 4 \",\"progress\":\"12.7\"}",
+            "{\"result\":true,\"status\":false,\"progress\":\"\"}",
+            "{\"result\":\"abc\",\"status\":\"4a\",\"progress\":56.9}",
+            // 文本字段取数字与布尔值的文本形式
+            "{\"currentVersion\":2,\"targetVersion\":true,\"updateDescription\":false}",
+            // 数值字段为对象或数组时视为不存在
+            "{\"result\":{\"code\":1},\"status\":[4],\"progress\":{}}",
+            // 未声明字段及嵌套对象/数组中的同名字段被忽略
+            "{\"data\":{\"status\":4,\"targetVersion\":\"9.9.9\"},\"list\":[{\"progress\":50}],\"status\":1}",
+            "{}",
+            "[]",
+            "\"text\""
+    })
+    void otaStatusDecoderMatchesLegacyParser(String json) throws IOException {
+        OtaStatusVO expected = OtaResponseDecoderBenchmark.legacyOtaStatus(objectMapper, json);
+        OtaStatusVO actual = ThirdPartyOtaServiceImpl.OTA_STATUS_DECODER.decode(objectMapper.getFactory(), json);
+        assertEquals(expected, actual);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            OtaResponseDecoderBenchmark.FIRMWARE_INFO_RESPONSE,
+            // 驼峰命名
+            "{\"result\":1,\"isUpdate\":1,\"version\":\"1.3.0\",\"description\":\"desc\",\"publishDate\":\"2026-10-01\","
+                    + "\"fileSize\":5242880,\"isForce\":1}",
+            // 三个描述别名的优先级
+            "{\"desc\":\"c\",\"updateDescription\":\"b\",\"description\":\"a\"}",
+            "{\"desc\":\"c\",\"updateDescription\":\"b\"}",
+            "{\"desc\":\"c\",\"updateDescription\":null,\"description\":null}",
+            // 超出 int 范围的文件大小、数字文本与非数字文本
+            "{\"fileSize\":5000000000,\"is_update\":\"1\",\"isForce\":\"yes\",\"is_force\":\"1\"}",
+            "{\"fileSize\":\"big\",\"file_size\":\"1024\",\"isUpdate\":\"\",\"is_update\":true}",
+            "{\"fileSize\":1.5E3,\"isForce\":true}",
+            // 数值字段为对象时继续使用后面的别名
+            "{\"isUpdate\":{\"v\":1},\"is_update\":1,\"fileSize\":[1],\"file_size\":2048}",
+            // 未声明字段及嵌套对象/数组中的同名字段被忽略
+            "{\"result\":1,\"extra\":{\"version\":\"9.9.9\",\"list\":[{\"isForce\":1}]},\"version\":\"1.0.0\"}",
+            "{}"
+    })
+    void firmwareInfoDecoderMatchesLegacyParser(String json) throws IOException {
+        OtaFirmwareInfoVO expected = OtaResponseDecoderBenchmark.legacyFirmwareInfo(objectMapper, json);
+        OtaFirmwareInfoVO actual = ThirdPartyOtaServiceImpl.FIRMWARE_INFO_DECODER.decode(objectMapper.getFactory(),
+                json);
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * 已知差异：文本别名的值为对象时，原解析返回空串，解码器改为继续使用后面的别名
+     */
+    @Test
+    void textAliasHoldingObjectFallsBackToNextAlias() throws IOException {
+        String json = "{\"version\":{\"major\":1},\"latestVersion\":\"1.3.0\"}";
+
+        assertEquals("", OtaResponseDecoderBenchmark.legacyFirmwareInfo(objectMapper, json).getVersion());
+        assertEquals("1.3.0", ThirdPartyOtaServiceImpl.FIRMWARE_INFO_DECODER
+                .decode(objectMapper.getFactory(), json).getVersion());
+    }
+
+    @Test
+    void malformedJsonFailsLikeLegacyParser() {
+        String json = "{\"result\":1,\"status\":";
+
+        assertThrows(JsonProcessingException.class,
+                () -> OtaResponseDecoderBenchmark.legacyOtaStatus(objectMapper, json));
+        assertThrows(JsonProcessingException.class,
+                () -> ThirdPartyOtaServiceImpl.OTA_STATUS_DECODER.decode(objectMapper.getFactory(), json));
+    }
+}
@@ -0,0 +1,158 @@
+package com.aiqutepets.util;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ThirdPartySigner} 与原 generateSignature 实现的对比基准
+ *
+ * <p>
+ * legacy* 方法是 ThirdPartyClient / ThirdPartyOtaServiceImpl 中原有的签名代码（StringBuilder 拼接、
+ * toLowerCase、每次 MessageDigest.getInstance、Integer.toHexString 逐字节输出），不含其中的 debug 日志；
+ * 相应地基准中把 ThirdPartySigner 的日志级别设为 INFO，只比较签名本身。
+ * 运行（附带 GC 分析，关注 gc.alloc.rate.norm 即每次签名的分配字节数）：
+ * </p>
+ *
+ * <pre>
+ * mvn -B test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.aiqutepets.util.ThirdPartySignerBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThirdPartySignerBenchmark {
+
+    private static final String SECRET_KEY = "8f2c1E9aB7d34c0fA6e5";
+
+    private final ThirdPartySigner signer = new ThirdPartySigner();
+
+    private Map<String, Object> clientParams;
+
+    private Map<String, String> otaParams;
+
+    @Setup
+    public void setUp() {
+        ((Logger) LoggerFactory.getLogger(ThirdPartySigner.class)).setLevel(Level.INFO);
+
+        clientParams = new HashMap<>();
+        clientParams.put("device_uid", "AQP-A1B2C3D4E5F6");
+        clientParams.put("user_id", 10086L);
+        clientParams.put("timestamp", 1760659200000L);
+
+        otaParams = new TreeMap<>();
+        otaParams.put("device_uid", "AQP-A1B2C3D4E5F6");
+        otaParams.put("product_model", "QP-01");
+        otaParams.put("version", "1.2.3");
+        otaParams.put("timestamp", "1760659200000");
+    }
+
+    @Benchmark
+    public String signerSecretkeyLowercase() {
+        return signer.sign(clientParams, SECRET_KEY, ThirdPartySigner.Dialect.SECRETKEY_PARAM_LOWERCASE);
+    }
+
+    @Benchmark
+    public String legacySecretkeyLowercase() {
+        return legacyClientSignature(clientParams, SECRET_KEY);
+    }
+
+    @Benchmark
+    public String signerRawKeySuffix() {
+        return signer.sign(otaParams, SECRET_KEY, ThirdPartySigner.Dialect.RAW_KEY_SUFFIX);
+    }
+
+    @Benchmark
+    public String legacyRawKeySuffix() {
+        return legacyOtaSignature(otaParams, SECRET_KEY);
+    }
+
+    /**
+     * 原 ThirdPartyClient#generateSignature
+     */
+    static String legacyClientSignature(Map<String, Object> params, String secretKey) {
+        Map<String, Object> filteredParams = new TreeMap<>();
+        for (Map.Entry<String, Object> entry : params.entrySet()) {
+            if (!"signature".equalsIgnoreCase(entry.getKey()) && entry.getValue() != null) {
+                filteredParams.put(entry.getKey(), entry.getValue());
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Object> entry : filteredParams.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append("&");
+            }
+            sb.append(entry.getKey()).append("=").append(entry.getValue());
+        }
+        sb.append("&secretkey=").append(secretKey);
+        return legacyMd5(sb.toString().toLowerCase().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 原 ThirdPartyOtaServiceImpl#generateSignature（原实现使用平台默认编码，此处固定 UTF-8）
+     */
+    static String legacyOtaSignature(Map<String, String> params, String secretKey) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append("&");
+            }
+            sb.append(entry.getKey()).append("=").append(entry.getValue());
+        }
+        sb.append(secretKey);
+        return legacyMd5(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String legacyMd5(byte[] input) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            byte[] digest = md.digest(input);
+            StringBuilder hexString = new StringBuilder();
+            for (byte b : digest) {
+                String hex = Integer.toHexString(0xff & b);
+                if (hex.length() == 1) {
+                    hexString.append('0');
+                }
+                hexString.append(hex);
+            }
+            return hexString.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("MD5 算法不可用", e);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ThirdPartySignerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,142 @@
+package com.aiqutepets.util;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * {@link ThirdPartySigner} 与原签名实现（{@link ThirdPartySignerBenchmark} 中的 legacy* 方法）的等价性校验
+ *
+ * <p>
+ * 原 ThirdPartyClient 使用默认 Locale 的 toLowerCase，签名器固定 Locale.ROOT；校验期间把默认 Locale 设为 ROOT
+ * （只有 tr/az/lt 等 Locale 下两者对 I、İ 等字符的结果不同）。
+ * </p>
+ */
+class ThirdPartySignerTest {
+
+    private static final String SECRET_KEY = "8f2c1E9aB7d34c0fA6e5";
+
+    private static Locale defaultLocale;
+
+    private final ThirdPartySigner signer = new ThirdPartySigner();
+
+    @BeforeAll
+    static void useRootLocale() {
+        defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.ROOT);
+    }
+
+    @AfterAll
+    static void restoreLocale() {
+        Locale.setDefault(defaultLocale);
+    }
+
+    static Stream<Arguments> clientParams() {
+        return Stream.of(
+                Arguments.of(params("device_uid", "AQP-A1B2C3D4E5F6", "user_id", 10086L, "timestamp", 1760659200000L),
+                        SECRET_KEY),
+                // 大写 key 与值、密钥大写
+                Arguments.of(params("Device_UID", "AQP-ABC", "Page", 1), "SECRET-KEY"),
+                // 非 ASCII：中文、带变音符号、İ（转小写后变为两个字符）、词尾 Σ、ẞ、代理对、孤立代理项
+                Arguments.of(params("nickname", "小芽ÄÖÜ", "title", "İSTANBUL"), SECRET_KEY),
+                Arguments.of(params("word", "ΟΔΟΣ", "mixed", "ΣΑΣ.ΣΑΣ:Σ", "sharp", "STRAẞE"), "ΚΛΕΙΔΙ"),
+                Arguments.of(params("emoji", "😀𐐀AB", "broken", "A\uD800B"), SECRET_KEY),
+                // Long / Integer（含负数与边界值）及其他数字类型
+                Arguments.of(params("a", Long.MIN_VALUE, "b", Long.MAX_VALUE, "c", Integer.MIN_VALUE, "d", -1, "e", 0),
+                        SECRET_KEY),
+                Arguments.of(params("short", (short) 7, "double", 1.5, "bool", Boolean.TRUE), SECRET_KEY),
+                // null 值与 signature（不区分大小写）不参与签名
+                Arguments.of(params("device_uid", "AQP-1", "empty", null, "signature", "abc", "SIGNATURE", "def"),
+                        SECRET_KEY),
+                Arguments.of(params(), SECRET_KEY),
+                Arguments.of(params("device_uid", "AQP-1"), null));
+    }
+
+    static Stream<Arguments> otaParams() {
+        return Stream.of(
+                Arguments.of(stringParams("device_uid", "AQP-A1B2C3D4E5F6", "product_model", "QP-01",
+                        "version", "1.2.3", "timestamp", "1760659200000"), SECRET_KEY),
+                // 不转小写
+                Arguments.of(stringParams("Device_UID", "AQP-ABC", "Version", "V1.2.3-RC"), "SECRET-KEY"),
+                Arguments.of(stringParams("nickname", "小芽ÄÖÜ", "emoji", "😀𐐀", "title", "İSTANBUL"), "ΚΛΕΙΔΙ"),
+                // 与原实现一致：null 值写作 "null"，signature 参与签名
+                Arguments.of(stringParams("device_uid", "AQP-1", "empty", null, "signature", "abc"), SECRET_KEY),
+                Arguments.of(stringParams(), SECRET_KEY),
+                Arguments.of(stringParams("device_uid", "AQP-1"), null));
+    }
+
+    @ParameterizedTest
+    @MethodSource("clientParams")
+    void secretkeyLowercaseMatchesLegacyClientSignature(Map<String, Object> params, String secretKey) {
+        String expected = ThirdPartySignerBenchmark.legacyClientSignature(params, secretKey);
+
+        assertEquals(expected, signer.sign(params, secretKey, ThirdPartySigner.Dialect.SECRETKEY_PARAM_LOWERCASE));
+        assertEquals(expected, signer.sign(new TreeMap<>(params), secretKey,
+                ThirdPartySigner.Dialect.SECRETKEY_PARAM_LOWERCASE));
+    }
+
+    @ParameterizedTest
+    @MethodSource("otaParams")
+    void rawKeySuffixMatchesLegacyOtaSignature(Map<String, String> params, String secretKey) {
+        String expected = ThirdPartySignerBenchmark.legacyOtaSignature(new TreeMap<>(params), secretKey);
+
+        assertEquals(expected, signer.sign(params, secretKey, ThirdPartySigner.Dialect.RAW_KEY_SUFFIX));
+        assertEquals(expected, signer.sign(new TreeMap<>(params), secretKey,
+                ThirdPartySigner.Dialect.RAW_KEY_SUFFIX));
+    }
+
+    /**
+     * 复用的线程缓冲区扩容后结果不受上一次签名影响
+     */
+    @Test
+    void longInputFollowedByShortInput() {
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            longValue.append("值Value");
+        }
+        Map<String, Object> longParams = params("text", longValue.toString());
+        Map<String, Object> shortParams = params("a", "B");
+
+        assertEquals(ThirdPartySignerBenchmark.legacyClientSignature(longParams, SECRET_KEY),
+                signer.sign(longParams, SECRET_KEY, ThirdPartySigner.Dialect.SECRETKEY_PARAM_LOWERCASE));
+        assertEquals(ThirdPartySignerBenchmark.legacyClientSignature(shortParams, SECRET_KEY),
+                signer.sign(shortParams, SECRET_KEY, ThirdPartySigner.Dialect.SECRETKEY_PARAM_LOWERCASE));
+    }
+
+    @Test
+    void dialectsDifferOnSameInput() {
+        Map<String, Object> params = params("device_uid", "AQP-1");
+
+        assertNotEquals(signer.sign(params, SECRET_KEY, ThirdPartySigner.Dialect.SECRETKEY_PARAM_LOWERCASE),
+                signer.sign(params, SECRET_KEY, ThirdPartySigner.Dialect.RAW_KEY_SUFFIX));
+    }
+
+    private static Map<String, Object> params(Object... keyValues) {
+        Map<String, Object> params = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            params.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return params;
+    }
+
+    private static Map<String, String> stringParams(String... keyValues) {
+        Map<String, String> params = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            params.put(keyValues[i], keyValues[i + 1]);
+        }
+        return params;
+    }
+}